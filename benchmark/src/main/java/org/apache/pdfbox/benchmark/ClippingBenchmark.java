@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.util.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering a CAD-style drawing, where every part is clipped to its nested viewports. With
+ * axis-aligned viewports the clipping rectangles are intersected directly, rotated viewports
+ * need the general clipping with Area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ClippingBenchmark
+{
+    private static final int VIEWPORT_COUNT = 200;
+    private static final int NESTING_DEPTH = 10;
+
+    /** whether the viewports are rotated, i.e. not rectangular in device space. */
+    @Param({ "false", "true" })
+    public boolean rotated;
+
+    private PDDocument document;
+
+    /**
+     * Creates the drawing.
+     *
+     * @throws IOException if the document could not be created
+     */
+    @Setup(Level.Trial)
+    public void createDocument() throws IOException
+    {
+        Random random = new Random(CorpusGenerator.DEFAULT_SEED);
+        document = new PDDocument();
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+        PDPageContentStream contents = new PDPageContentStream(document, page);
+        try
+        {
+            if (rotated)
+            {
+                contents.transform(Matrix.getRotateInstance(0.1, 100, 0));
+            }
+            for (int i = 0; i < VIEWPORT_COUNT; i++)
+            {
+                contents.saveGraphicsState();
+                float x = random.nextFloat() * 300;
+                float y = random.nextFloat() * 500;
+                float size = 250;
+                for (int depth = 0; depth < NESTING_DEPTH; depth++)
+                {
+                    contents.addRect(x, y, size, size);
+                    contents.clip();
+                    contents.moveTo(x, y);
+                    contents.lineTo(x + size, y + size);
+                    contents.stroke();
+                    x += random.nextFloat() * 10;
+                    y += random.nextFloat() * 10;
+                    size -= 20;
+                }
+                contents.restoreGraphicsState();
+            }
+        }
+        finally
+        {
+            contents.close();
+        }
+    }
+
+    /**
+     * Closes the document.
+     *
+     * @throws IOException if the document could not be closed
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException
+    {
+        document.close();
+    }
+
+    /**
+     * Renders the drawing.
+     *
+     * @return the rendered page
+     * @throws IOException if the page could not be rendered
+     */
+    @Benchmark
+    public BufferedImage renderImage() throws IOException
+    {
+        return new PDFRenderer(document).renderImageWithDPI(0, 72);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfparser.PDFStreamTokenizer;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tokenizing the decoded page content streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContentStreamBenchmark
+{
+    private final List<byte[]> contents = new ArrayList<byte[]>();
+
+    /**
+     * Decodes the content streams of all pages.
+     *
+     * @param state the loaded document
+     * @throws IOException if a content stream could not be read
+     */
+    @Setup(Level.Trial)
+    public void readContents(LoadedDocumentState state) throws IOException
+    {
+        for (PDPage page : state.document.getPages())
+        {
+            InputStream input = page.getContents();
+            try
+            {
+                contents.add(IOUtils.toByteArray(input));
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Tokenizes with PDFStreamParser, which creates an object for every token.
+     *
+     * @param blackhole consumes the tokens
+     * @throws IOException if a content stream could not be parsed
+     */
+    @Benchmark
+    public void streamParser(Blackhole blackhole) throws IOException
+    {
+        for (byte[] content : contents)
+        {
+            PDFStreamParser parser = new PDFStreamParser(content);
+            Object token;
+            while ((token = parser.parseNextToken()) != null)
+            {
+                blackhole.consume(token);
+            }
+        }
+    }
+
+    /**
+     * Tokenizes with PDFStreamTokenizer without creating the operands.
+     *
+     * @param blackhole consumes the token types
+     * @throws IOException if a content stream could not be parsed
+     */
+    @Benchmark
+    public void streamTokenizer(Blackhole blackhole) throws IOException
+    {
+        for (byte[] content : contents)
+        {
+            PDFStreamTokenizer tokenizer = new PDFStreamTokenizer(content);
+            PDFStreamTokenizer.TokenType tokenType;
+            while ((tokenType = tokenizer.nextToken()) != null)
+            {
+                blackhole.consume(tokenType);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Creates the synthetic documents used by the benchmarks. The documents only depend on the
+ * number of pages and the seed, so every run works on exactly the same input.
+ *
+ * <p>Every page has a column of text in two standard 14 fonts and some vector graphics, every
+ * fourth page also has an image.</p>
+ */
+public final class CorpusGenerator
+{
+    /** the seed used by the benchmarks. */
+    public static final long DEFAULT_SEED = 20161017L;
+
+    private static final String[] WORDS = {
+        "portable", "document", "format", "stream", "object", "dictionary", "xref", "trailer",
+        "page", "font", "glyph", "content", "resource", "image", "filter", "decode", "the", "of",
+        "and", "a", "to", "in", "is", "for", "with", "on", "by", "as", "at", "from" };
+
+    private static final int LINES_PER_PAGE = 50;
+    private static final int IMAGE_SIZE = 256;
+
+    private CorpusGenerator()
+    {
+    }
+
+    /**
+     * Creates a document.
+     *
+     * @param pageCount the number of pages
+     * @param seed the seed of the random content
+     * @return the saved document
+     * @throws IOException if the document could not be created
+     */
+    public static byte[] createDocument(int pageCount, long seed) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeDocument(pageCount, seed, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Creates a document and writes it to the given stream.
+     *
+     * @param pageCount the number of pages
+     * @param seed the seed of the random content
+     * @param output the stream to write to, it isn't closed
+     * @throws IOException if the document could not be created
+     */
+    public static void writeDocument(int pageCount, long seed, OutputStream output)
+            throws IOException
+    {
+        Random random = new Random(seed);
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDImageXObject image = LosslessFactory.createFromImage(document, createImage(random));
+            for (int i = 0; i < pageCount; i++)
+            {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                PDPageContentStream contents = new PDPageContentStream(document, page);
+                try
+                {
+                    writeGraphics(contents, random);
+                    if (i % 4 == 0)
+                    {
+                        contents.drawImage(image, 300, 500, 200, 200);
+                    }
+                    writeText(contents, random);
+                }
+                finally
+                {
+                    contents.close();
+                }
+            }
+            document.save(output);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static void writeText(PDPageContentStream contents, Random random) throws IOException
+    {
+        PDFont[] fonts = { PDType1Font.HELVETICA, PDType1Font.TIMES_ROMAN };
+        contents.beginText();
+        contents.newLineAtOffset(50, 800);
+        for (int line = 0; line < LINES_PER_PAGE; line++)
+        {
+            contents.setFont(fonts[line % fonts.length], 10);
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 80)
+            {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            contents.showText(text.toString().trim());
+            contents.newLineAtOffset(0, -14);
+        }
+        contents.endText();
+    }
+
+    private static void writeGraphics(PDPageContentStream contents, Random random)
+            throws IOException
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            contents.setStrokingColor(random.nextInt(256), random.nextInt(256),
+                    random.nextInt(256));
+            contents.moveTo(random.nextFloat() * 595, random.nextFloat() * 842);
+            contents.lineTo(random.nextFloat() * 595, random.nextFloat() * 842);
+            contents.stroke();
+            contents.setNonStrokingColor(random.nextInt(256), random.nextInt(256),
+                    random.nextInt(256));
+            contents.addRect(random.nextFloat() * 500, random.nextFloat() * 750, 40, 20);
+            contents.fill();
+        }
+    }
+
+    private static BufferedImage createImage(Random random)
+    {
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < IMAGE_SIZE; y++)
+        {
+            for (int x = 0; x < IMAGE_SIZE; x++)
+            {
+                // a gradient with some noise compresses like a typical photo
+                int noise = random.nextInt(16);
+                int r = Math.min(255, x + noise);
+                int g = Math.min(255, y + noise);
+                image.setRGB(x, y, r << 16 | g << 8 | (x + y) / 2);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Writes a document to a file, e.g. to inspect the corpus.
+     *
+     * @param args the file name and optionally the number of pages
+     * @throws IOException if the document could not be created
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: CorpusGenerator <output-file> [page-count]");
+            System.exit(1);
+        }
+        int pageCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        OutputStream output = new FileOutputStream(new File(args[0]));
+        try
+        {
+            writeDocument(pageCount, DEFAULT_SEED, output);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
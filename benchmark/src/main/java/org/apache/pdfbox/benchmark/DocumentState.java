@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The generated document, in memory and as a temporary file.
+ */
+@State(Scope.Benchmark)
+public class DocumentState
+{
+    /** the number of pages of the generated document. */
+    @Param({ "20" })
+    public int pageCount;
+
+    /** the saved document. */
+    public byte[] pdf;
+
+    /** the saved document as a file. */
+    public File file;
+
+    /**
+     * Creates the document.
+     *
+     * @throws IOException if the document could not be created
+     */
+    @Setup(Level.Trial)
+    public void createDocument() throws IOException
+    {
+        pdf = CorpusGenerator.createDocument(pageCount, CorpusGenerator.DEFAULT_SEED);
+        file = File.createTempFile("pdfbox-benchmark", ".pdf");
+        OutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(pdf);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Deletes the temporary file.
+     */
+    @TearDown(Level.Trial)
+    public void deleteFile()
+    {
+        if (file != null && !file.delete())
+        {
+            file.deleteOnExit();
+        }
+    }
+}
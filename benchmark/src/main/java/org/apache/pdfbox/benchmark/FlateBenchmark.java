@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.filter.Filter;
+import org.apache.pdfbox.filter.FilterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding with the FlateFilter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlateBenchmark
+{
+    /** the size of the uncompressed data. */
+    @Param({ "1048576" })
+    public int size;
+
+    private Filter filter;
+    private byte[] decoded;
+    private byte[] encoded;
+
+    /**
+     * Creates content stream like data and encodes it once.
+     *
+     * @throws IOException if the data could not be encoded
+     */
+    @Setup(Level.Trial)
+    public void createData() throws IOException
+    {
+        filter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+        Random random = new Random(CorpusGenerator.DEFAULT_SEED);
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size)
+        {
+            builder.append(random.nextInt(600)).append(' ').append(random.nextInt(800))
+                    .append(" Td (").append(Long.toString(random.nextLong(), 36)).append(") Tj\n");
+        }
+        decoded = builder.substring(0, size).getBytes("ISO-8859-1");
+        encoded = encode();
+    }
+
+    /**
+     * Encodes the data.
+     *
+     * @return the encoded data
+     * @throws IOException if the data could not be encoded
+     */
+    @Benchmark
+    public byte[] encode() throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(decoded.length / 2);
+        filter.encode(new ByteArrayInputStream(decoded), output, new COSDictionary(), 0);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes the data.
+     *
+     * @return the decoded data
+     * @throws IOException if the data could not be decoded
+     */
+    @Benchmark
+    public byte[] decode() throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(decoded.length);
+        filter.decode(new ByteArrayInputStream(encoded), output, new COSDictionary(), 0);
+        return output.toByteArray();
+    }
+}
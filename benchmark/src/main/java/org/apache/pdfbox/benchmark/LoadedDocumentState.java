@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The generated document, loaded once per trial.
+ */
+@State(Scope.Benchmark)
+public class LoadedDocumentState
+{
+    /** the loaded document. */
+    public PDDocument document;
+
+    /**
+     * Loads the document.
+     *
+     * @param state the generated document
+     * @throws IOException if the document could not be loaded
+     */
+    @Setup(Level.Trial)
+    public void load(DocumentState state) throws IOException
+    {
+        document = PDDocument.load(state.pdf);
+    }
+
+    /**
+     * Closes the document.
+     *
+     * @throws IOException if the document could not be closed
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException
+    {
+        document.close();
+    }
+}
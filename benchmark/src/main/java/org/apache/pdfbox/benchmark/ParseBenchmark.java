@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading a document with the different input sources and memory settings.
+ *
+ * <p>The parser always reads the complete object graph when loading, so "load" measures the
+ * parser only, while "loadFull" additionally creates the high level objects (pages, resources and
+ * fonts) which text extraction or rendering would need.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark
+{
+    /**
+     * Loads the document from a byte array.
+     *
+     * @param state the document
+     * @return the number of pages
+     * @throws IOException if the document could not be loaded
+     */
+    @Benchmark
+    public int load(DocumentState state) throws IOException
+    {
+        PDDocument document = PDDocument.load(state.pdf);
+        try
+        {
+            return document.getNumberOfPages();
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Loads the document from a file using a temporary scratch file.
+     *
+     * @param state the document
+     * @return the number of pages
+     * @throws IOException if the document could not be loaded
+     */
+    @Benchmark
+    public int loadFileScratchFile(DocumentState state) throws IOException
+    {
+        PDDocument document = PDDocument.load(state.file, MemoryUsageSetting.setupTempFileOnly());
+        try
+        {
+            return document.getNumberOfPages();
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Loads the document from a memory mapped file.
+     *
+     * @param state the document
+     * @return the number of pages
+     * @throws IOException if the document could not be loaded
+     */
+    @Benchmark
+    public int loadFileMemoryMapped(DocumentState state) throws IOException
+    {
+        PDDocument document = PDDocument.load(state.file,
+                MemoryUsageSetting.setupMainMemoryOnly().setUseMemoryMappedFile(true));
+        try
+        {
+            return document.getNumberOfPages();
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Loads the document and creates the pages, their resources and fonts.
+     *
+     * @param state the document
+     * @param blackhole consumes the created objects
+     * @throws IOException if the document could not be loaded
+     */
+    @Benchmark
+    public void loadFull(DocumentState state, Blackhole blackhole) throws IOException
+    {
+        PDDocument document = PDDocument.load(state.pdf);
+        try
+        {
+            for (PDPage page : document.getPages())
+            {
+                PDResources resources = page.getResources();
+                for (COSName name : resources.getFontNames())
+                {
+                    blackhole.consume(resources.getFont(name));
+                }
+                for (COSName name : resources.getXObjectNames())
+                {
+                    blackhole.consume(resources.getXObject(name));
+                }
+            }
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving a loaded document with COSWriter.
+ *
+ * <p>A document is loaded before every invocation, as saving changes the state of the document.
+ * Saving takes milliseconds, so the overhead of the invocation level setup doesn't matter.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmark
+{
+    private PDDocument document;
+
+    /**
+     * Loads a fresh document.
+     *
+     * @param state the generated document
+     * @throws IOException if the document could not be loaded
+     */
+    @Setup(Level.Invocation)
+    public void load(DocumentState state) throws IOException
+    {
+        document = PDDocument.load(state.pdf);
+    }
+
+    /**
+     * Closes the document.
+     *
+     * @throws IOException if the document could not be closed
+     */
+    @TearDown(Level.Invocation)
+    public void close() throws IOException
+    {
+        document.close();
+    }
+
+    /**
+     * Saves the document to memory.
+     *
+     * @return the saved document
+     * @throws IOException if the document could not be saved
+     */
+    @Benchmark
+    public byte[] save() throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        document.save(output);
+        return output.toByteArray();
+    }
+}
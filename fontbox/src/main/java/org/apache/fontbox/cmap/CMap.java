@@ -16,12 +16,17 @@
  */
 package org.apache.fontbox.cmap;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * This class represents a CMap file.
@@ -55,6 +60,9 @@ public class CMap
     private static final String SPACE = " ";
     private int spaceMapping = -1;
 
+    // lookup tables built from the maps above on first use, reset when a mapping is added
+    private volatile LookupTables lookupTables;
+
     /**
      * Creates a new instance of CMap.
      */
@@ -90,6 +98,11 @@ public class CMap
      */
     public String toUnicode(int code)
     {
+        String[] unicodes = getLookupTables().unicodes;
+        if (unicodes != null)
+        {
+            return code >= 0 && code < unicodes.length ? unicodes[code] : null;
+        }
         return charToUnicode.get(code);
     }
 
@@ -103,38 +116,42 @@ public class CMap
      */
     public int readCode(InputStream in) throws IOException
     {
-        byte[] bytes = new byte[maxCodeLength];
-        in.read(bytes,0,minCodeLength);
-        for (int i = minCodeLength-1; i < maxCodeLength; i++)
+        // bytes missing at the end of the stream are 0 in the first read, like in read(byte[])
+        int code = 0;
+        for (int i = 0; i < minCodeLength; i++)
         {
-            final int byteCount = i+1;
-            for (CodespaceRange range : codespaceRanges)
+            int b = in.read();
+            if (b == -1)
             {
-                if (range.isFullMatch(bytes, byteCount))
-                {
-                    return toInt(bytes, byteCount);
-                }
+                code <<= 8 * (minCodeLength - i);
+                break;
+            }
+            code = code << 8 | b;
+        }
+        for (int byteCount = minCodeLength; byteCount <= maxCodeLength; byteCount++)
+        {
+            if (isFullMatch(code, byteCount))
+            {
+                return code;
             }
             if (byteCount < maxCodeLength)
             {
-                bytes[byteCount] = (byte)in.read();
+                code = code << 8 | (in.read() & 0xff);
             }
         }
         throw new IOException("CMap is invalid");
     }
 
-    /**
-     * Returns an int for the given byte array
-     */
-    private int toInt(byte[] data, int dataLen)
+    private boolean isFullMatch(int code, int byteCount)
     {
-        int code = 0;
-        for (int i = 0; i < dataLen; ++i)
+        for (CodespaceRange range : codespaceRanges)
         {
-            code <<= 8;
-            code |= (data[i] + 256) % 256;
+            if (range.isFullMatch(code, byteCount))
+            {
+                return true;
+            }
         }
-        return code;
+        return false;
     }
 
     /**
@@ -145,22 +162,56 @@ public class CMap
      */
     public int toCID(int code)
     {
-        Integer cid = codeToCid.get(code);
-        if (cid != null)
+        LookupTables tables = getLookupTables();
+        if (tables.cids != null)
         {
-            return cid;
+            if (code >= 0 && code < tables.cids.length && tables.cids[code] != -1)
+            {
+                return tables.cids[code];
+            }
         }
-        for (CIDRange range : codeToCidRanges)
+        else
         {
-            int ch = range.map((char)code);
-            if (ch != -1)
+            Integer cid = codeToCid.get(code);
+            if (cid != null)
             {
-                return ch;
+                return cid;
             }
         }
+        // binary search for the last range starting at or before the character
+        char ch = (char) code;
+        int low = 0;
+        int high = tables.rangeStarts.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            if (tables.rangeStarts[mid] <= ch)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        if (high >= 0 && ch <= tables.rangeEnds[high])
+        {
+            return tables.rangeCids[high] + (ch - tables.rangeStarts[high]);
+        }
         return 0;
     }
 
+    private LookupTables getLookupTables()
+    {
+        LookupTables tables = lookupTables;
+        if (tables == null)
+        {
+            tables = new LookupTables(charToUnicode, codeToCid, codeToCidRanges);
+            lookupTables = tables;
+        }
+        return tables;
+    }
+
     /**
      * Convert the given part of a byte array to an integer.
      * @param data the byte array
@@ -189,6 +240,7 @@ public class CMap
     {
         int code = getCodeFromArray(codes, 0, codes.length);
         charToUnicode.put(code, unicode);
+        lookupTables = null;
 
         // fixme: ugly little hack
         if (SPACE.equals(unicode))
@@ -206,6 +258,7 @@ public class CMap
     void addCIDMapping(int code, int cid)
     {
         codeToCid.put(cid, code);
+        lookupTables = null;
     }
 
     /**
@@ -219,6 +272,7 @@ public class CMap
     void addCIDRange(char from, char to, int cid)
     {
         codeToCidRanges.add(new CIDRange(from, to, cid));
+        lookupTables = null;
     }
 
     /**
@@ -248,6 +302,7 @@ public class CMap
         charToUnicode.putAll(cmap.charToUnicode);
         codeToCid.putAll(cmap.codeToCid);
         codeToCidRanges.addAll(cmap.codeToCidRanges);
+        lookupTables = null;
     }
 
     /**
@@ -402,6 +457,250 @@ public class CMap
         return spaceMapping;
     }
 
+    /**
+     * Writes the binary form of this CMap, which is read by {@link #readBinary(ByteBuffer)}.
+     *
+     * @param output the output
+     * @throws IOException if the output could not be written
+     */
+    void writeBinary(DataOutputStream output) throws IOException
+    {
+        output.writeInt(wmode);
+        writeString(output, cmapName);
+        writeString(output, cmapVersion);
+        output.writeInt(cmapType);
+        writeString(output, registry);
+        writeString(output, ordering);
+        output.writeInt(supplement);
+        output.writeInt(spaceMapping);
+        output.writeInt(codespaceRanges.size());
+        for (CodespaceRange range : codespaceRanges)
+        {
+            writeBytes(output, range.getStart());
+            writeBytes(output, range.getEnd());
+        }
+        output.writeInt(charToUnicode.size());
+        for (Map.Entry<Integer, String> entry : charToUnicode.entrySet())
+        {
+            output.writeInt(entry.getKey());
+            writeString(output, entry.getValue());
+        }
+        output.writeInt(codeToCid.size());
+        for (Map.Entry<Integer, Integer> entry : codeToCid.entrySet())
+        {
+            output.writeInt(entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+        output.writeInt(codeToCidRanges.size());
+        for (CIDRange range : codeToCidRanges)
+        {
+            output.writeChar(range.getFrom());
+            output.writeChar(range.getTo());
+            output.writeInt(range.getCID());
+        }
+    }
+
+    /**
+     * Reads a CMap written by {@link #writeBinary(DataOutputStream)}.
+     *
+     * @param input the binary data
+     * @return the CMap
+     * @throws IOException if the binary data is invalid
+     */
+    static CMap readBinary(ByteBuffer input) throws IOException
+    {
+        try
+        {
+            CMap cmap = new CMap();
+            cmap.wmode = input.getInt();
+            cmap.cmapName = readString(input);
+            cmap.cmapVersion = readString(input);
+            cmap.cmapType = input.getInt();
+            cmap.registry = readString(input);
+            cmap.ordering = readString(input);
+            cmap.supplement = input.getInt();
+            int spaceMapping = input.getInt();
+            int count = input.getInt();
+            for (int i = 0; i < count; i++)
+            {
+                CodespaceRange range = new CodespaceRange();
+                range.setStart(readBytes(input));
+                range.setEnd(readBytes(input));
+                cmap.addCodespaceRange(range);
+            }
+            count = input.getInt();
+            for (int i = 0; i < count; i++)
+            {
+                int code = input.getInt();
+                cmap.charToUnicode.put(code, readString(input));
+            }
+            count = input.getInt();
+            for (int i = 0; i < count; i++)
+            {
+                int code = input.getInt();
+                cmap.codeToCid.put(code, input.getInt());
+            }
+            count = input.getInt();
+            for (int i = 0; i < count; i++)
+            {
+                char from = input.getChar();
+                char to = input.getChar();
+                cmap.codeToCidRanges.add(new CIDRange(from, to, input.getInt()));
+            }
+            cmap.spaceMapping = spaceMapping;
+            return cmap;
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Binary CMap is truncated");
+        }
+        catch (NegativeArraySizeException e)
+        {
+            throw new IOException("Binary CMap is invalid");
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException
+    {
+        if (string == null)
+        {
+            output.writeInt(-1);
+        }
+        else
+        {
+            output.writeInt(string.length());
+            output.writeChars(string);
+        }
+    }
+
+    private static String readString(ByteBuffer input)
+    {
+        int length = input.getInt();
+        if (length == -1)
+        {
+            return null;
+        }
+        char[] chars = new char[length];
+        input.asCharBuffer().get(chars);
+        input.position(input.position() + 2 * length);
+        return new String(chars);
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException
+    {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer input)
+    {
+        byte[] bytes = new byte[input.getInt()];
+        input.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Lookup tables for the mappings: dense arrays for the one and two byte codes and sorted
+     * arrays of disjoint CID ranges. A dense array is null if the mapping is too sparse.
+     */
+    private static final class LookupTables
+    {
+        // the maximum number of unused entries of a dense array per used entry
+        private static final int MAX_SPARSENESS = 4;
+
+        private final String[] unicodes;
+        private final int[] cids;
+        private final int[] rangeStarts;
+        private final int[] rangeEnds;
+        private final int[] rangeCids;
+
+        LookupTables(Map<Integer, String> charToUnicode, Map<Integer, Integer> codeToCid,
+                List<CIDRange> codeToCidRanges)
+        {
+            int maxCode = getDenseMaxCode(charToUnicode);
+            if (maxCode >= -1)
+            {
+                unicodes = new String[maxCode + 1];
+                for (Map.Entry<Integer, String> entry : charToUnicode.entrySet())
+                {
+                    unicodes[entry.getKey()] = entry.getValue();
+                }
+            }
+            else
+            {
+                unicodes = null;
+            }
+
+            maxCode = getDenseMaxCode(codeToCid);
+            if (maxCode >= -1)
+            {
+                cids = new int[maxCode + 1];
+                Arrays.fill(cids, -1);
+                for (Map.Entry<Integer, Integer> entry : codeToCid.entrySet())
+                {
+                    cids[entry.getKey()] = entry.getValue();
+                }
+            }
+            else
+            {
+                cids = null;
+            }
+
+            // split the ranges into disjoint ranges, the first added range wins for a character
+            TreeMap<Integer, int[]> disjointRanges = new TreeMap<Integer, int[]>();
+            for (CIDRange range : codeToCidRanges)
+            {
+                int from = range.getFrom();
+                int to = range.getTo();
+                int start = from;
+                while (start <= to)
+                {
+                    Map.Entry<Integer, int[]> floor = disjointRanges.floorEntry(start);
+                    if (floor != null && floor.getValue()[0] >= start)
+                    {
+                        // already mapped by a previous range
+                        start = floor.getValue()[0] + 1;
+                        continue;
+                    }
+                    Integer next = disjointRanges.higherKey(start);
+                    int end = next == null ? to : Math.min(to, next - 1);
+                    disjointRanges.put(start, new int[] { end, range.getCID() + start - from });
+                    start = end + 1;
+                }
+            }
+            rangeStarts = new int[disjointRanges.size()];
+            rangeEnds = new int[disjointRanges.size()];
+            rangeCids = new int[disjointRanges.size()];
+            int i = 0;
+            for (Map.Entry<Integer, int[]> entry : disjointRanges.entrySet())
+            {
+                rangeStarts[i] = entry.getKey();
+                rangeEnds[i] = entry.getValue()[0];
+                rangeCids[i] = entry.getValue()[1];
+                i++;
+            }
+        }
+
+        // returns the maximum code if the codes fit into a dense array, -2 otherwise
+        private static int getDenseMaxCode(Map<Integer, ?> map)
+        {
+            int maxCode = -1;
+            for (Integer code : map.keySet())
+            {
+                if (code < 0 || code > 0xFFFF)
+                {
+                    return -2;
+                }
+                maxCode = Math.max(maxCode, code);
+            }
+            if (maxCode >= 256 && maxCode >= MAX_SPARSENESS * map.size())
+            {
+                return -2;
+            }
+            return maxCode;
+        }
+    }
+
     @Override
     public String toString()
     {
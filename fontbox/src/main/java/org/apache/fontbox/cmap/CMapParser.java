@@ -73,7 +73,8 @@ public class CMapParser
     }
 
     /**
-     * Parses a predefined CMap.
+     * Parses a predefined CMap. If the system property "pdfbox.cmapcache" is set to a directory,
+     * the parsed CMap is stored there in a binary form, which is read the next time instead.
      *
      * @param name CMap name.
      * @return The parsed predefined CMap as a java object.
@@ -81,11 +82,26 @@ public class CMapParser
      */
     public CMap parsePredefined(String name) throws IOException
     {
+        // the cache only knows the resources of this class, see getExternalCMap()
+        boolean cacheable = getClass() == CMapParser.class;
+        if (cacheable)
+        {
+            CMap cmap = PredefinedCMapCache.load(name);
+            if (cmap != null)
+            {
+                return cmap;
+            }
+        }
         InputStream input = null;
         try
         {
             input = getExternalCMap(name);
-            return parse(input);
+            CMap cmap = parse(input);
+            if (cacheable)
+            {
+                PredefinedCMapCache.save(name, cmap);
+            }
+            return cmap;
         }
         finally
         {
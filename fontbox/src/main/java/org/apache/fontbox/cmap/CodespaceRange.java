@@ -107,6 +107,14 @@ public class CodespaceRange
         }
         return code;
     }
+    /**
+     * Returns true if the given code of the given length matches this codespace range.
+     */
+    boolean isFullMatch(int code, int codeLen)
+    {
+        return codeLen == codeLength && code >= startInt && code <= endInt;
+    }
+
     /**
      * Returns true if the given code bytes match this codespace range.
      */
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.jar.JarEntry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A disk cache of the parsed predefined CMaps in a binary form, which is read much faster than
+ * the CMap resources are parsed. This shortens the startup of short-lived processes which read
+ * CJK text.
+ *
+ * <p>The cache is enabled by setting the system property "pdfbox.cmapcache" to the directory of
+ * the cache files. A cache file is ignored and rewritten if the CMap resource has changed.</p>
+ */
+final class PredefinedCMapCache
+{
+    private static final Log LOG = LogFactory.getLog(PredefinedCMapCache.class);
+
+    private static final String DIRECTORY_PROPERTY = "pdfbox.cmapcache";
+    private static final int MAGIC = 0x434d4150; // "CMAP"
+    private static final int FORMAT_VERSION = 1;
+
+    private PredefinedCMapCache()
+    {
+    }
+
+    /**
+     * Returns the cached CMap with the given name.
+     *
+     * @param name the name of the predefined CMap
+     * @return the CMap, or null if the cache is disabled or doesn't contain the current version
+     */
+    static CMap load(String name)
+    {
+        File file = getCacheFile(name);
+        if (file == null)
+        {
+            return null;
+        }
+        try
+        {
+            if (!file.isFile())
+            {
+                return null;
+            }
+            ByteBuffer buffer = read(file);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != getResourceStamp(name))
+            {
+                return null;
+            }
+            return CMap.readBinary(buffer);
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not read the cached CMap " + file, e);
+            return null;
+        }
+        catch (SecurityException e)
+        {
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            // a corrupt cache file mustn't prevent the CMap from being parsed
+            LOG.warn("Invalid cached CMap " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the given CMap in the cache, if the cache is enabled.
+     *
+     * @param name the name of the predefined CMap
+     * @param cmap the parsed CMap
+     */
+    static void save(String name, CMap cmap)
+    {
+        File file = getCacheFile(name);
+        if (file == null)
+        {
+            return;
+        }
+        File tempFile = null;
+        try
+        {
+            long stamp = getResourceStamp(name);
+            File directory = file.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                return;
+            }
+            // write to a temporary file first, other processes may read the cache at the same time
+            tempFile = File.createTempFile(name, ".tmp", directory);
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try
+            {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(stamp);
+                cmap.writeBinary(output);
+            }
+            finally
+            {
+                output.close();
+            }
+            if (!tempFile.renameTo(file))
+            {
+                // renameTo() doesn't replace an existing file on all platforms
+                file.delete();
+                if (!tempFile.renameTo(file))
+                {
+                    return;
+                }
+            }
+            tempFile = null;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not write the cached CMap " + file, e);
+        }
+        catch (SecurityException e)
+        {
+            return;
+        }
+        finally
+        {
+            if (tempFile != null)
+            {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static File getCacheFile(String name)
+    {
+        String directory;
+        try
+        {
+            directory = System.getProperty(DIRECTORY_PROPERTY);
+        }
+        catch (SecurityException e)
+        {
+            return null;
+        }
+        if (directory == null || !isCacheableName(name))
+        {
+            return null;
+        }
+        return new File(directory, name + ".bin");
+    }
+
+    // the names of the predefined CMaps, which are safe file names
+    private static boolean isCacheableName(String name)
+    {
+        if (name.length() == 0 || name.charAt(0) == '-')
+        {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-'
+                    || c == '_'))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // identifies the version of the CMap resource, by its size and modification time
+    private static long getResourceStamp(String name) throws IOException
+    {
+        URL url = CMapParser.class.getResource(name);
+        if (url == null)
+        {
+            throw new IOException("Error: Could not find referenced cmap stream " + name);
+        }
+        // the header fields of a URLConnection are avoided, parsing their dates is slow
+        if ("file".equals(url.getProtocol()))
+        {
+            try
+            {
+                File file = new File(url.toURI());
+                return file.lastModified() * 31 + file.length();
+            }
+            catch (URISyntaxException e)
+            {
+                throw new IOException("Invalid resource URL " + url);
+            }
+        }
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection)
+        {
+            JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            return entry.getTime() * 31 + entry.getSize();
+        }
+        long stamp = connection.getLastModified() * 31 + connection.getContentLength();
+        connection.getInputStream().close();
+        return stamp;
+    }
+
+    private static ByteBuffer read(File file) throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = input.getChannel();
+            // the files are small, so they are read instead of being mapped, which would keep
+            // them locked on some platforms
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) == -1)
+                {
+                    throw new IOException("Unexpected end of file " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.fontbox.cmap;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 import junit.framework.TestCase;
@@ -40,4 +41,55 @@ public class TestCMap extends TestCase
         cMap.addCharMapping(bs, "a");
         assertTrue("a".equals(cMap.toUnicode(200)));
     }
+
+    /**
+     * Check that overlapping CID ranges are looked up in the order they have been added, and
+     * that the lookup tables are updated when a mapping is added.
+     */
+    public void testOverlappingCIDRanges()
+    {
+        CMap cMap = new CMap();
+        cMap.addCIDRange((char) 0x20, (char) 0x7e, 1);
+        cMap.addCIDRange((char) 0x10, (char) 0x40, 200);
+        assertEquals(200, cMap.toCID(0x10));
+        assertEquals(215, cMap.toCID(0x1f));
+        assertEquals(1, cMap.toCID(0x20));
+        assertEquals(95, cMap.toCID(0x7e));
+        assertEquals(0, cMap.toCID(0x7f));
+
+        cMap.addCIDMapping(0x7f, 0x7f);
+        cMap.addCIDRange((char) 0x70, (char) 0x90, 300);
+        assertEquals(0x7f, cMap.toCID(0x7f));
+        assertEquals(316, cMap.toCID(0x80));
+    }
+
+    /**
+     * Check that codes of different lengths are read, also at the end of the data.
+     * @throws IOException If something went wrong during reading a code
+     */
+    public void testReadCode() throws IOException
+    {
+        CMap cMap = new CMap();
+        cMap.addCodespaceRange(createRange(new byte[] { 0x00 }, new byte[] { (byte) 0x80 }));
+        cMap.addCodespaceRange(createRange(new byte[] { (byte) 0x81, 0x40 },
+                new byte[] { (byte) 0xfe, (byte) 0xfe }));
+        byte[] string = { 0x41, (byte) 0x82, 0x50, 0x42, (byte) 0x90 };
+        ByteArrayInputStream in = new ByteArrayInputStream(string);
+        assertEquals(0x41, cMap.readCode(in));
+        assertEquals(4, in.available());
+        assertEquals(0x8250, cMap.readCode(in));
+        assertEquals(2, in.available());
+        assertEquals(0x42, cMap.readCode(in));
+        // the missing second byte is read as 0xff
+        assertEquals(0x90ff, cMap.readCode(in));
+        assertEquals(0, in.available());
+    }
+
+    private static CodespaceRange createRange(byte[] start, byte[] end)
+    {
+        CodespaceRange range = new CodespaceRange();
+        range.setStart(start);
+        range.setEnd(end);
+        return range;
+    }
 }
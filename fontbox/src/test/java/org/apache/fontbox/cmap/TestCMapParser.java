@@ -16,9 +16,14 @@
  */
 package org.apache.fontbox.cmap;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
@@ -71,6 +76,136 @@ public class TestCMapParser extends TestCase
         assertEquals("CID 520 from cidchar <0208> 520", strCID3, cMap.toCID(cid3));
     }
 
+    /**
+     * Check that a predefined CMap read from the binary cache is the same as the parsed one, and
+     * that the parser uses the cache.
+     *
+     * @throws IOException If something went wrong
+     */
+    public void testPredefinedCMapCache() throws IOException
+    {
+        File cacheDir = new File("target/cmapcache");
+        File cacheFile = new File(cacheDir, "UniJIS-UCS2-H.bin");
+        cacheFile.delete();
+        System.setProperty("pdfbox.cmapcache", cacheDir.getPath());
+        try
+        {
+            CMap parsed = new CMapParser().parsePredefined("UniJIS-UCS2-H");
+            assertTrue(cacheFile.isFile());
+            CMap cached = PredefinedCMapCache.load("UniJIS-UCS2-H");
+            assertNotNull(cached);
+            assertNotSame(parsed, cached);
+            assertSameMappings(parsed, cached);
+
+            // a changed cache file changes the CMap returned by the parser
+            int unmappedCode = 0x20;
+            while (parsed.toUnicode(unmappedCode) != null)
+            {
+                unmappedCode++;
+            }
+            byte[] cacheData = readFile(cacheFile);
+            cached.addCharMapping(new byte[] { (byte) (unmappedCode >> 8), (byte) unmappedCode },
+                    "cached");
+            PredefinedCMapCache.save("UniJIS-UCS2-H", cached);
+            assertFalse(Arrays.equals(cacheData, readFile(cacheFile)));
+            CMap changed = new CMapParser().parsePredefined("UniJIS-UCS2-H");
+            assertEquals("cached", changed.toUnicode(unmappedCode));
+            assertEquals(parsed.toCID(0x4e00), changed.toCID(0x4e00));
+        }
+        finally
+        {
+            System.clearProperty("pdfbox.cmapcache");
+            cacheFile.delete();
+        }
+    }
+
+    /**
+     * Check that truncated and stale cache files are ignored and rewritten.
+     *
+     * @throws IOException If something went wrong
+     */
+    public void testInvalidPredefinedCMapCache() throws IOException
+    {
+        File cacheDir = new File("target/cmapcache");
+        File cacheFile = new File(cacheDir, "UniJIS-UCS2-H.bin");
+        cacheFile.delete();
+        System.setProperty("pdfbox.cmapcache", cacheDir.getPath());
+        try
+        {
+            CMap parsed = new CMapParser().parsePredefined("UniJIS-UCS2-H");
+            byte[] cacheData = readFile(cacheFile);
+
+            // truncated
+            writeFile(cacheFile, Arrays.copyOf(cacheData, cacheData.length / 2));
+            assertNull(PredefinedCMapCache.load("UniJIS-UCS2-H"));
+            assertSameMappings(parsed, new CMapParser().parsePredefined("UniJIS-UCS2-H"));
+            assertTrue(Arrays.equals(cacheData, readFile(cacheFile)));
+
+            // the last byte of the format version and of the stamp of the CMap resource
+            for (int offset : new int[] { 7, 15 })
+            {
+                byte[] staleData = cacheData.clone();
+                staleData[offset]++;
+                writeFile(cacheFile, staleData);
+                assertNull(PredefinedCMapCache.load("UniJIS-UCS2-H"));
+                assertSameMappings(parsed, new CMapParser().parsePredefined("UniJIS-UCS2-H"));
+                assertTrue(Arrays.equals(cacheData, readFile(cacheFile)));
+            }
+        }
+        finally
+        {
+            System.clearProperty("pdfbox.cmapcache");
+            cacheFile.delete();
+        }
+    }
+
+    private void assertSameMappings(CMap expected, CMap actual)
+    {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getOrdering(), actual.getOrdering());
+        assertEquals(expected.getSupplement(), actual.getSupplement());
+        assertEquals(expected.getWMode(), actual.getWMode());
+        assertEquals(expected.getSpaceMapping(), actual.getSpaceMapping());
+        for (int code = 0; code <= 0xFFFF; code++)
+        {
+            assertEquals(expected.toCID(code), actual.toCID(code));
+            assertEquals(expected.toUnicode(code), actual.toUnicode(code));
+        }
+    }
+
+    private byte[] readFile(File file) throws IOException
+    {
+        InputStream input = new FileInputStream(file);
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = input.read(buffer)) != -1)
+            {
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private void writeFile(File file, byte[] data) throws IOException
+    {
+        OutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(data);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
     private int toInt(byte[] data)
     {
         int code = 0;
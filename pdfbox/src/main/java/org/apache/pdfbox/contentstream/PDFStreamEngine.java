@@ -22,7 +22,6 @@ import java.awt.geom.Rectangle2D;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,10 +34,10 @@ import org.apache.pdfbox.contentstream.operator.state.EmptyGraphicsStackExceptio
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSNumber;
-import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.filter.MissingImageReaderException;
-import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfparser.PDFStreamOperands;
+import org.apache.pdfbox.pdfparser.PDFStreamTokenizer;
 import org.apache.pdfbox.pdmodel.MissingResourceException;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
@@ -472,25 +471,23 @@ public abstract class PDFStreamEngine
      */
     private void processStreamOperators(PDContentStream contentStream) throws IOException
     {
-        List<COSBase> arguments = new ArrayList<COSBase>();
-        PDFStreamParser parser = new PDFStreamParser(contentStream);
-        Object token = parser.parseNextToken();
-        while (token != null)
+        // operands are kept as primitives until an operator processor asks for them, the list is
+        // reused for all operators of the stream
+        PDFStreamTokenizer tokenizer = new PDFStreamTokenizer(contentStream);
+        PDFStreamOperands arguments = new PDFStreamOperands(tokenizer);
+        PDFStreamTokenizer.TokenType tokenType = tokenizer.nextToken();
+        while (tokenType != null)
         {
-            if (token instanceof COSObject)
+            if (tokenType == PDFStreamTokenizer.TokenType.OPERATOR)
             {
-                arguments.add(((COSObject) token).getObject());
-            }
-            else if (token instanceof Operator)
-            {
-                processOperator((Operator) token, arguments);
-                arguments = new ArrayList<COSBase>();
+                processOperator(tokenizer.getOperator(), arguments);
+                arguments.clear();
             }
             else
             {
-                arguments.add((COSBase) token);
+                arguments.addOperand(tokenizer);
             }
-            token = parser.parseNextToken();
+            tokenType = tokenizer.nextToken();
         }
     }
 
@@ -811,7 +808,8 @@ public abstract class PDFStreamEngine
     }
 
     /**
-     * This is used to handle an operation.
+     * This is used to handle an operation. The list of operands is reused for the next operator
+     * of the content stream, so it must not be kept after this method returns.
      * 
      * @param operator The operation to perform.
      * @param operands The list of arguments.
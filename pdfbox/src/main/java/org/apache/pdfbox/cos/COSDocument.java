@@ -48,6 +48,8 @@ public class COSDocument extends COSBase implements Closeable
     /**
      * Maps ObjectKeys to a COSObject. Note that references to these objects
      * are also stored in COSDictionary objects that map a name to a specific object.
+     * All access is synchronized on the map itself, so that objects may be looked up
+     * by several threads at once.
      */
     private final Map<COSObjectKey, COSObject> objectPool =
         new HashMap<COSObjectKey, COSObject>();
@@ -55,8 +57,7 @@ public class COSDocument extends COSBase implements Closeable
     /**
      * Maps object and generation id to object byte offsets.
      */
-    private final Map<COSObjectKey, Long> xrefTable =
-        new HashMap<COSObjectKey, Long>();
+    private final COSXrefTable xrefTable = new COSXrefTable();
 
     /**
      * List containing all streams which are created when creating a new pdf. 
@@ -83,6 +84,8 @@ public class COSDocument extends COSBase implements Closeable
 
     private ScratchFile scratchFile;
 
+    private DecodedStreamCache decodedStreamCache;
+
     /**
      * Constructor. Uses main memory to buffer PDF streams.
      */
@@ -111,6 +114,7 @@ public class COSDocument extends COSBase implements Closeable
     public COSStream createCOSStream()
     {
         COSStream stream = new COSStream(scratchFile);
+        stream.setDecodedStreamCache(decodedStreamCache);
         // collect all COSStreams so that they can be closed when closing the COSDocument.
         // This is limited to newly created pdfs as all COSStreams of an existing pdf are
         // collected within the map objectPool
@@ -128,6 +132,7 @@ public class COSDocument extends COSBase implements Closeable
     public COSStream createCOSStream(COSDictionary dictionary)
     {
         COSStream stream = new COSStream(scratchFile);
+        stream.setDecodedStreamCache(decodedStreamCache);
         for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
         {
             stream.setItem(entry.getKey(), entry.getValue());
@@ -145,7 +150,7 @@ public class COSDocument extends COSBase implements Closeable
      */
     public COSObject getObjectByType(COSName type) throws IOException
     {
-        for( COSObject object : objectPool.values() )
+        for( COSObject object : getObjects() )
         {
             COSBase realObject = object.getObject();
             if( realObject instanceof COSDictionary )
@@ -200,7 +205,7 @@ public class COSDocument extends COSBase implements Closeable
     public List<COSObject> getObjectsByType( COSName type ) throws IOException
     {
         List<COSObject> retval = new ArrayList<COSObject>();
-        for( COSObject object : objectPool.values() )
+        for( COSObject object : getObjects() )
         {
             COSBase realObject = object.getObject();
             if( realObject instanceof COSDictionary )
@@ -240,11 +245,14 @@ public class COSDocument extends COSBase implements Closeable
      */
     public COSObjectKey getKey(COSBase object)
     {
-        for (Map.Entry<COSObjectKey, COSObject> entry : objectPool.entrySet())
+        synchronized (objectPool)
         {
-            if (entry.getValue().getObject() == object)
+            for (Map.Entry<COSObjectKey, COSObject> entry : objectPool.entrySet())
             {
-                return entry.getKey();
+                if (entry.getValue().getObject() == object)
+                {
+                    return entry.getKey();
+                }
             }
         }
         return null;
@@ -255,7 +263,7 @@ public class COSDocument extends COSBase implements Closeable
      */
     public void print()
     {
-        for( COSObject object : objectPool.values() )
+        for( COSObject object : getObjects() )
         {
             System.out.println( object);
         }
@@ -382,7 +390,10 @@ public class COSDocument extends COSBase implements Closeable
      */
     public List<COSObject> getObjects()
     {
-        return new ArrayList<COSObject>(objectPool.values());
+        synchronized (objectPool)
+        {
+            return new ArrayList<COSObject>(objectPool.values());
+        }
     }
 
     /**
@@ -449,6 +460,10 @@ public class COSDocument extends COSBase implements Closeable
                     stream.close();
                 }
             }
+            if (decodedStreamCache != null)
+            {
+                decodedStreamCache.clear();
+            }
             if (scratchFile != null)
             {
                 scratchFile.close();
@@ -457,6 +472,44 @@ public class COSDocument extends COSBase implements Closeable
         }
     }
 
+    /**
+     * Sets the cache of the decoded stream data of this document. The cache is used by the streams
+     * which have already been created and by all streams created or parsed afterwards.
+     *
+     * @param decodedStreamCache the cache, or null to decode the streams each time they are read
+     * @throws IOException if the data of the previous cache could not be released
+     */
+    public void setDecodedStreamCache(DecodedStreamCache decodedStreamCache) throws IOException
+    {
+        if (this.decodedStreamCache != null)
+        {
+            this.decodedStreamCache.clear();
+        }
+        this.decodedStreamCache = decodedStreamCache;
+        for (COSObject object : getObjects())
+        {
+            COSBase base = object.getObject();
+            if (base instanceof COSStream)
+            {
+                ((COSStream) base).setDecodedStreamCache(decodedStreamCache);
+            }
+        }
+        for (COSStream stream : streams)
+        {
+            stream.setDecodedStreamCache(decodedStreamCache);
+        }
+    }
+
+    /**
+     * Returns the cache of the decoded stream data of this document.
+     *
+     * @return the cache, or null if the decoded stream data isn't cached
+     */
+    public DecodedStreamCache getDecodedStreamCache()
+    {
+        return decodedStreamCache;
+    }
+
     /**
      * Returns true if this document has been closed.
      */
@@ -512,7 +565,12 @@ public class COSDocument extends COSBase implements Closeable
             for (COSObject next : parser.getObjects())
             {
                 COSObjectKey key = new COSObjectKey(next);
-                if (objectPool.get(key) == null || objectPool.get(key).getObject() == null
+                COSObject pooled;
+                synchronized (objectPool)
+                {
+                    pooled = objectPool.get(key);
+                }
+                if (pooled == null || pooled.getObject() == null
                         // xrefTable stores negated objNr of objStream for objects in objStreams
                         || (xrefTable.containsKey(key)
                             && xrefTable.get(key) == -objStream.getObjectNumber()))
@@ -535,23 +593,23 @@ public class COSDocument extends COSBase implements Closeable
      */
     public COSObject getObjectFromPool(COSObjectKey key) throws IOException
     {
-        COSObject obj = null;
-        if( key != null )
+        if (key == null)
         {
-            obj = objectPool.get(key);
+            return new COSObject(null);
         }
-        if (obj == null)
+        synchronized (objectPool)
         {
-            // this was a forward reference, make "proxy" object
-            obj = new COSObject(null);
-            if( key != null )
+            COSObject obj = objectPool.get(key);
+            if (obj == null)
             {
+                // this was a forward reference, make "proxy" object
+                obj = new COSObject(null);
                 obj.setObjectNumber(key.getNumber());
                 obj.setGenerationNumber(key.getGeneration());
                 objectPool.put(key, obj);
             }
+            return obj;
         }
-        return obj;
     }
 
     /**
@@ -561,7 +619,10 @@ public class COSDocument extends COSBase implements Closeable
      */
     public COSObject removeObject(COSObjectKey key)
     {
-        return objectPool.remove(key);
+        synchronized (objectPool)
+        {
+            return objectPool.remove(key);
+        }
     }
 
     /**
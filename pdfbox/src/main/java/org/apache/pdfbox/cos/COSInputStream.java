@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.DecodeResult;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.io.RandomAccess;
@@ -50,6 +51,23 @@ public final class COSInputStream extends FilterInputStream
      */
     static COSInputStream create(List<Filter> filters, COSDictionary parameters, InputStream in,
                                  ScratchFile scratchFile) throws IOException
+    {
+        return create(filters, parameters, in, scratchFile, DecodeOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a new COSInputStream from an encoded input stream.
+     *
+     * @param filters Filters to be applied.
+     * @param parameters Filter parameters.
+     * @param in Encoded input stream.
+     * @param scratchFile Scratch file to use, or null.
+     * @param options decode options for the last filter
+     * @return Decoded stream.
+     * @throws IOException If the stream could not be read.
+     */
+    static COSInputStream create(List<Filter> filters, COSDictionary parameters, InputStream in,
+                                 ScratchFile scratchFile, DecodeOptions options) throws IOException
     {
         List<DecodeResult> results = new ArrayList<DecodeResult>();
         InputStream input = in;
@@ -62,11 +80,15 @@ public final class COSInputStream extends FilterInputStream
             // apply filters
             for (int i = 0; i < filters.size(); i++)
             {
+                // only the last filter produces the image data
+                DecodeOptions filterOptions =
+                        i == filters.size() - 1 ? options : DecodeOptions.DEFAULT;
                 if (scratchFile != null)
                 {
                     // scratch file
                     final RandomAccess buffer = scratchFile.createBuffer();
-                    DecodeResult result = filters.get(i).decode(input, new RandomAccessOutputStream(buffer), parameters, i);
+                    DecodeResult result = filters.get(i).decode(input, new RandomAccessOutputStream(buffer), parameters, i,
+                            filterOptions);
                     results.add(result);
                     input = new RandomAccessInputStream(buffer)
                     {
@@ -81,7 +103,8 @@ public final class COSInputStream extends FilterInputStream
                 {
                     // in-memory
                     ByteArrayOutputStream output = new ByteArrayOutputStream();
-                    DecodeResult result = filters.get(i).decode(input, output, parameters, i);
+                    DecodeResult result = filters.get(i).decode(input, output, parameters, i,
+                            filterOptions);
                     results.add(result);
                     input = new ByteArrayInputStream(output.toByteArray());
                 }
@@ -90,6 +113,18 @@ public final class COSInputStream extends FilterInputStream
         return new COSInputStream(input, results);
     }
 
+    /**
+     * Creates a new COSInputStream from a stream which has been decoded before.
+     *
+     * @param decoded Decoded input stream.
+     * @param decodeResults results of decoding
+     * @return Decoded stream.
+     */
+    static COSInputStream create(InputStream decoded, List<DecodeResult> decodeResults)
+    {
+        return new COSInputStream(decoded, decodeResults);
+    }
+
     private final List<DecodeResult> decodeResults;
 
     /**
@@ -26,7 +26,8 @@ import java.io.IOException;
  */
 public class COSObject extends COSBase implements COSUpdateInfo
 {
-    private COSBase baseObject;
+    // volatile to publish objects resolved by one thread safely to all other threads
+    private volatile COSBase baseObject;
     private long objectNumber;
     private int generationNumber;
     private boolean needToBeUpdated;
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.io.IOUtils;
@@ -44,6 +45,7 @@ public class COSStream extends COSDictionary implements Closeable
     private RandomAccess randomAccess;      // backing store, in-memory or on-disk
     private final ScratchFile scratchFile;  // used as a temp buffer during decoding
     private boolean isWriting;              // true if there's an open OutputStream
+    private DecodedStreamCache decodedStreamCache; // optional cache of the decoded data
     
     private static final Log LOG = LogFactory.getLog(COSStream.class);
     
@@ -151,6 +153,19 @@ public class COSStream extends COSDictionary implements Closeable
      * @throws IOException If the stream could not be read.
      */
     public COSInputStream createInputStream() throws IOException
+    {
+        return createInputStream(DecodeOptions.DEFAULT);
+    }
+
+    /**
+     * Returns a new InputStream which reads the decoded stream data. The options are passed to the
+     * last filter, an image filter may use them to decode only a part of the image.
+     * 
+     * @param options the decode options
+     * @return InputStream containing decoded stream data.
+     * @throws IOException If the stream could not be read.
+     */
+    public COSInputStream createInputStream(DecodeOptions options) throws IOException
     {
         checkClosed();
         if (isWriting)
@@ -158,8 +173,30 @@ public class COSStream extends COSDictionary implements Closeable
             throw new IllegalStateException("Cannot read while there is an open stream writer");
         }
         ensureRandomAccessExists(true);
+        List<Filter> filters = getFilterList();
+        if (decodedStreamCache != null && options == DecodeOptions.DEFAULT && !filters.isEmpty())
+        {
+            return decodedStreamCache.createInputStream(this, filters, randomAccess, scratchFile);
+        }
         InputStream input = new RandomAccessInputStream(randomAccess);
-        return COSInputStream.create(getFilterList(), this, input, scratchFile);
+        return COSInputStream.create(filters, this, input, scratchFile, options);
+    }
+
+    /**
+     * Sets the cache of the decoded data, or null if the decoded data isn't cached.
+     */
+    void setDecodedStreamCache(DecodedStreamCache decodedStreamCache)
+    {
+        this.decodedStreamCache = decodedStreamCache;
+    }
+
+    // the cached decoded data is outdated when the stream is written or closed
+    private void invalidateDecodedData() throws IOException
+    {
+        if (decodedStreamCache != null)
+        {
+            decodedStreamCache.remove(this);
+        }
     }
 
     /**
@@ -205,6 +242,7 @@ public class COSStream extends COSDictionary implements Closeable
         {
             setItem(COSName.FILTER, filters);
         }
+        invalidateDecodedData();
         randomAccess = scratchFile.createBuffer(); // discards old data - TODO: close existing buffer?
         OutputStream randomOut = new RandomAccessOutputStream(randomAccess);
         OutputStream cosOut = new COSOutputStream(getFilterList(), this, randomOut, scratchFile);
@@ -255,6 +293,7 @@ public class COSStream extends COSDictionary implements Closeable
         {
             throw new IllegalStateException("Cannot have more than one open stream writer.");
         }
+        invalidateDecodedData();
         randomAccess = scratchFile.createBuffer(); // discards old data - TODO: close existing buffer?
         OutputStream out = new RandomAccessOutputStream(randomAccess);
         isWriting = true;
@@ -386,6 +425,7 @@ public class COSStream extends COSDictionary implements Closeable
     @Override
     public void close() throws IOException
     {
+        invalidateDecodedData();
         // marks the scratch file pages as free
         if (randomAccess != null)
         {
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of object keys to xref values (byte offsets or the negated object number of the
+ * containing object stream) which doesn't box its entries.
+ *
+ * <p>Object number and generation number are packed into a single <code>long</code> and stored
+ * together with the value in two primitive arrays using open addressing with linear probing.
+ * Keys which can't be packed, i.e. negative numbers or generation numbers above 65535 which only
+ * occur in broken files, are kept in an ordinary map.</p>
+ *
+ * <p>The {@link Map} view creates <code>COSObjectKey</code> and <code>Long</code> instances on
+ * access, hot code paths should use the primitive methods instead.</p>
+ */
+public class COSXrefTable extends AbstractMap<COSObjectKey, Long>
+{
+    private static final int GENERATION_BITS = 16;
+    private static final int MAX_GENERATION = (1 << GENERATION_BITS) - 1;
+    private static final long MAX_NUMBER = (1L << (63 - GENERATION_BITS)) - 1;
+
+    /** marks an unused slot, packed keys are never negative. */
+    private static final long EMPTY = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    /** entries with keys which can't be packed, created on demand. */
+    private Map<COSObjectKey, Long> overflow;
+
+    /**
+     * Constructor.
+     */
+    public COSXrefTable()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static long pack(long number, int generation)
+    {
+        if (number < 0 || number > MAX_NUMBER || generation < 0 || generation > MAX_GENERATION)
+        {
+            return EMPTY;
+        }
+        return (number << GENERATION_BITS) | generation;
+    }
+
+    private int slot(long packedKey)
+    {
+        long h = packedKey * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int indexOf(long packedKey)
+    {
+        int index = slot(packedKey);
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == packedKey)
+            {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether there is an entry for the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @return true if there is an entry for the object
+     */
+    public boolean containsKey(long number, int generation)
+    {
+        long packedKey = pack(number, generation);
+        if (packedKey == EMPTY)
+        {
+            return overflow != null && overflow.containsKey(new COSObjectKey(number, generation));
+        }
+        return indexOf(packedKey) >= 0;
+    }
+
+    /**
+     * Returns the value for the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param defaultValue the value to be returned if there is no entry for the object
+     * @return the value of the object or the given default value
+     */
+    public long get(long number, int generation, long defaultValue)
+    {
+        long packedKey = pack(number, generation);
+        if (packedKey == EMPTY)
+        {
+            Long value = overflow == null ? null : overflow.get(new COSObjectKey(number, generation));
+            return value == null ? defaultValue : value;
+        }
+        int index = indexOf(packedKey);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * Sets the value for the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param value the new value
+     * @return true if there was no entry for the object before
+     */
+    public boolean put(long number, int generation, long value)
+    {
+        long packedKey = pack(number, generation);
+        if (packedKey == EMPTY)
+        {
+            if (overflow == null)
+            {
+                overflow = new HashMap<COSObjectKey, Long>();
+            }
+            return overflow.put(new COSObjectKey(number, generation), value) == null;
+        }
+        int index = slot(packedKey);
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == packedKey)
+            {
+                values[index] = value;
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = packedKey;
+        values[index] = value;
+        size++;
+        // keep the load factor below 0.75
+        if (size * 4L >= keys.length * 3L)
+        {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                int index = slot(oldKeys[i]);
+                while (keys[index] != EMPTY)
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes the entry for the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @return true if there was an entry for the object
+     */
+    public boolean remove(long number, int generation)
+    {
+        long packedKey = pack(number, generation);
+        if (packedKey == EMPTY)
+        {
+            return overflow != null && overflow.remove(new COSObjectKey(number, generation)) != null;
+        }
+        int index = indexOf(packedKey);
+        if (index < 0)
+        {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    private void removeAt(int index)
+    {
+        // shift following entries of the same probe sequence back to fill the gap
+        int gap = index;
+        int next = index;
+        while (true)
+        {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY)
+            {
+                break;
+            }
+            int home = slot(keys[next]);
+            boolean reachable = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!reachable)
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    @Override
+    public int size()
+    {
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return false;
+        }
+        COSObjectKey objKey = (COSObjectKey) key;
+        return containsKey(objKey.getNumber(), objKey.getGeneration());
+    }
+
+    @Override
+    public Long get(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return null;
+        }
+        COSObjectKey objKey = (COSObjectKey) key;
+        long packedKey = pack(objKey.getNumber(), objKey.getGeneration());
+        if (packedKey == EMPTY)
+        {
+            return overflow == null ? null : overflow.get(objKey);
+        }
+        int index = indexOf(packedKey);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Long put(COSObjectKey key, Long value)
+    {
+        Long previous = get(key);
+        put(key.getNumber(), key.getGeneration(), value);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends COSObjectKey, ? extends Long> map)
+    {
+        if (map instanceof COSXrefTable)
+        {
+            COSXrefTable table = (COSXrefTable) map;
+            for (int i = 0; i < table.keys.length; i++)
+            {
+                long packedKey = table.keys[i];
+                if (packedKey != EMPTY)
+                {
+                    put(packedKey >>> GENERATION_BITS, (int) (packedKey & MAX_GENERATION),
+                            table.values[i]);
+                }
+            }
+            if (table.overflow != null)
+            {
+                super.putAll(table.overflow);
+            }
+        }
+        else
+        {
+            super.putAll(map);
+        }
+    }
+
+    @Override
+    public Long remove(Object key)
+    {
+        Long previous = get(key);
+        if (previous != null)
+        {
+            COSObjectKey objKey = (COSObjectKey) key;
+            remove(objKey.getNumber(), objKey.getGeneration());
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+        overflow = null;
+    }
+
+    @Override
+    public Set<Entry<COSObjectKey, Long>> entrySet()
+    {
+        return new AbstractSet<Entry<COSObjectKey, Long>>()
+        {
+            @Override
+            public Iterator<Entry<COSObjectKey, Long>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return COSXrefTable.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates over the packed entries followed by the overflow entries. Removing an entry may
+     * move other entries within the table, so the iterator continues on a copy of the table once
+     * an entry has been removed.
+     */
+    private final class EntryIterator implements Iterator<Entry<COSObjectKey, Long>>
+    {
+        private long[] iteratedKeys = keys;
+        private long[] iteratedValues = values;
+        private int index = -1;
+        private final Iterator<Entry<COSObjectKey, Long>> overflowIterator;
+        private COSObjectKey lastKey;
+        private boolean lastFromOverflow;
+
+        private EntryIterator()
+        {
+            overflowIterator = overflow == null ? null : overflow.entrySet().iterator();
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                index++;
+            }
+            while (index < iteratedKeys.length && iteratedKeys[index] == EMPTY);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < iteratedKeys.length
+                    || (overflowIterator != null && overflowIterator.hasNext());
+        }
+
+        @Override
+        public Entry<COSObjectKey, Long> next()
+        {
+            if (index < iteratedKeys.length)
+            {
+                long packedKey = iteratedKeys[index];
+                lastKey = new COSObjectKey(packedKey >>> GENERATION_BITS,
+                        (int) (packedKey & MAX_GENERATION));
+                lastFromOverflow = false;
+                Entry<COSObjectKey, Long> entry = new SimpleImmutableEntry<COSObjectKey, Long>(
+                        lastKey, iteratedValues[index]);
+                advance();
+                return entry;
+            }
+            if (overflowIterator != null)
+            {
+                Entry<COSObjectKey, Long> entry = overflowIterator.next();
+                lastKey = entry.getKey();
+                lastFromOverflow = true;
+                return entry;
+            }
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove()
+        {
+            if (lastKey == null)
+            {
+                throw new IllegalStateException();
+            }
+            if (lastFromOverflow)
+            {
+                overflowIterator.remove();
+            }
+            else
+            {
+                if (iteratedKeys == keys)
+                {
+                    iteratedKeys = keys.clone();
+                    iteratedValues = values.clone();
+                }
+                COSXrefTable.this.remove(lastKey.getNumber(), lastKey.getGeneration());
+            }
+            lastKey = null;
+        }
+    }
+}
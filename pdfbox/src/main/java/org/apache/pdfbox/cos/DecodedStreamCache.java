@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.pdfbox.filter.DecodeOptions;
+import org.apache.pdfbox.filter.DecodeResult;
+import org.apache.pdfbox.filter.Filter;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessInputStream;
+import org.apache.pdfbox.io.RandomAccessOutputStream;
+import org.apache.pdfbox.io.ScratchFile;
+
+/**
+ * A cache of decoded stream data, so that the filters of a stream are applied only once when the
+ * stream is read several times, e.g. when a document is both rendered and its text extracted.
+ *
+ * <p>The decoded data is kept in the scratch file of the stream, so it is moved to disk if the
+ * scratch file has been set up to do so. The least recently used streams are removed from the
+ * cache when the total size of the decoded data exceeds the given maximum. The decoded data of a
+ * stream is removed when the stream is written or closed.</p>
+ *
+ * <p>The cache is enabled for a document with
+ * {@link COSDocument#setDecodedStreamCache(DecodedStreamCache)}.</p>
+ */
+public final class DecodedStreamCache
+{
+    private final long maxSize;
+    private long size;
+    private long hitCount;
+    private long missCount;
+
+    // in access order, the eldest entry is the least recently used one
+    private final Map<COSStream, Entry> entries = new LinkedHashMap<COSStream, Entry>(16, 0.75f,
+            true);
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum total size of the decoded data in bytes
+     */
+    public DecodedStreamCache(long maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the maximum total size of the decoded data.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the current total size of the decoded data.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns how many times a stream has been read from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns how many times a stream has been decoded because it wasn't in the cache.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Removes the decoded data of all streams.
+     */
+    public synchronized void clear() throws IOException
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            iterator.remove();
+            evict(entry);
+        }
+    }
+
+    /**
+     * Removes the decoded data of the given stream, called when the stream is written or closed.
+     */
+    synchronized void remove(COSStream stream) throws IOException
+    {
+        Entry entry = entries.remove(stream);
+        if (entry != null)
+        {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Returns a stream which reads the decoded data of the given stream, decoding it first if it
+     * isn't in the cache.
+     *
+     * @param stream the stream
+     * @param filters the filters of the stream, not empty
+     * @param raw the raw stream data
+     * @param scratchFile the scratch file of the stream
+     * @return the decoded stream
+     * @throws IOException if the stream could not be decoded
+     */
+    COSInputStream createInputStream(COSStream stream, List<Filter> filters, RandomAccess raw,
+            ScratchFile scratchFile) throws IOException
+    {
+        synchronized (this)
+        {
+            Entry entry = entries.get(stream);
+            if (entry != null)
+            {
+                hitCount++;
+                return open(entry);
+            }
+            missCount++;
+        }
+
+        List<DecodeResult> results = new ArrayList<DecodeResult>(filters.size());
+        RandomAccess decoded = decode(stream, filters, raw, scratchFile, results);
+        synchronized (this)
+        {
+            long length = decoded.length();
+            if (length > maxSize || entries.containsKey(stream))
+            {
+                // too large to be cached, the buffer is closed together with the stream
+                Entry uncached = new Entry(decoded, length, results);
+                InputStream input = uncached.open();
+                uncached.evict();
+                return COSInputStream.create(input, results);
+            }
+            Entry entry = new Entry(decoded, length, results);
+            entries.put(stream, entry);
+            size += length;
+            trim();
+            return open(entry);
+        }
+    }
+
+    private static RandomAccess decode(COSStream stream, List<Filter> filters, RandomAccess raw,
+            ScratchFile scratchFile, List<DecodeResult> results) throws IOException
+    {
+        InputStream input = new RandomAccessInputStream(raw);
+        RandomAccess buffer = null;
+        try
+        {
+            for (int i = 0; i < filters.size(); i++)
+            {
+                RandomAccess output = scratchFile.createBuffer();
+                try
+                {
+                    results.add(filters.get(i).decode(input, new RandomAccessOutputStream(output),
+                            stream, i, DecodeOptions.DEFAULT));
+                }
+                catch (IOException e)
+                {
+                    output.close();
+                    throw e;
+                }
+                if (buffer != null)
+                {
+                    buffer.close();
+                }
+                buffer = output;
+                input = new RandomAccessInputStream(buffer);
+            }
+            RandomAccess decoded = buffer;
+            buffer = null;
+            return decoded;
+        }
+        finally
+        {
+            if (buffer != null)
+            {
+                buffer.close();
+            }
+        }
+    }
+
+    private COSInputStream open(Entry entry)
+    {
+        return COSInputStream.create(entry.open(), entry.results);
+    }
+
+    // removes the least recently used entries until the total size is within the limit
+    private void trim() throws IOException
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            iterator.remove();
+            evict(entry);
+        }
+    }
+
+    private void evict(Entry entry) throws IOException
+    {
+        size -= entry.length;
+        entry.evict();
+    }
+
+    // the decoded data of a stream, which is closed when it has been evicted and isn't read anymore
+    private static final class Entry
+    {
+        private final RandomAccess decoded;
+        private final long length;
+        private final List<DecodeResult> results;
+        private int readerCount;
+        private boolean evicted;
+
+        Entry(RandomAccess decoded, long length, List<DecodeResult> results)
+        {
+            this.decoded = decoded;
+            this.length = length;
+            this.results = results;
+        }
+
+        InputStream open()
+        {
+            synchronized (this)
+            {
+                readerCount++;
+            }
+            return new RandomAccessInputStream(decoded)
+            {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException
+                {
+                    if (!closed)
+                    {
+                        closed = true;
+                        release();
+                    }
+                }
+            };
+        }
+
+        synchronized void evict() throws IOException
+        {
+            evicted = true;
+            if (readerCount == 0)
+            {
+                decoded.close();
+            }
+        }
+
+        private synchronized void release() throws IOException
+        {
+            readerCount--;
+            if (readerCount == 0 && evicted)
+            {
+                decoded.close();
+            }
+        }
+    }
+}
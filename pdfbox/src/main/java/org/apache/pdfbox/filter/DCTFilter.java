@@ -27,6 +27,7 @@ import java.lang.reflect.Field;
 
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
@@ -51,6 +52,14 @@ final class DCTFilter extends Filter
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
+    {
+        return decode(encoded, decoded, parameters, index, DecodeOptions.DEFAULT);
+    }
+
+    @Override
+    public DecodeResult decode(InputStream encoded, OutputStream decoded,
+                               COSDictionary parameters, int index, DecodeOptions options)
+            throws IOException
     {
         ImageReader reader = findImageReader("JPEG", "a suitable JAI I/O image filter is not installed");
         ImageInputStream iis = null;
@@ -65,6 +74,8 @@ final class DCTFilter extends Filter
             }
             
             reader.setInput(iis);
+            ImageReadParam irp = reader.getDefaultReadParam();
+            options.copyTo(irp);
             
             String numChannels = getNumChannels(reader);
 
@@ -80,21 +91,21 @@ final class DCTFilter extends Filter
                 try
                 {
                     // I'd like to use ImageReader#readRaster but it is buggy and can't read RGB correctly
-                    BufferedImage image = reader.read(0);
+                    BufferedImage image = reader.read(0, irp);
                     raster = image.getRaster();
                 }
                 catch (IIOException e)
                 {
                     // JAI can't read CMYK JPEGs using ImageReader#read or ImageIO.read but
                     // fortunately ImageReader#readRaster isn't buggy when reading 4-channel files
-                    raster = reader.readRaster(0, null);
+                    raster = reader.readRaster(0, irp);
                 }
             }
             else
             {
                 // JAI can't read CMYK JPEGs using ImageReader#read or ImageIO.read but
                 // fortunately ImageReader#readRaster isn't buggy when reading 4-channel files
-                raster = reader.readRaster(0, null);
+                raster = reader.readRaster(0, irp);
             }
 
             // special handling for 4-component images
@@ -173,6 +184,7 @@ final class DCTFilter extends Filter
 
             DataBufferByte dataBuffer = (DataBufferByte)raster.getDataBuffer();
             decoded.write(dataBuffer.getData());
+            options.setFilterSubsampled(options.isSubsampled());
         }
         finally
         {
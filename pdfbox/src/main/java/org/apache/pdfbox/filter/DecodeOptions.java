@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.awt.Rectangle;
+import javax.imageio.ImageReadParam;
+
+/**
+ * Options which may be honored by image filters to decode only a part of an image, or only every
+ * n-th pixel. The options are only a hint: a filter which honors them marks this by calling
+ * {@link #setFilterSubsampled(boolean)}, otherwise the caller has to crop and subsample the
+ * decoded data itself.
+ *
+ * @see ImageReadParam
+ */
+public class DecodeOptions
+{
+    /** Decode the whole image at full resolution. */
+    public static final DecodeOptions DEFAULT = new DefaultDecodeOptions();
+
+    private Rectangle sourceRegion = null;
+    private int subsamplingX = 1;
+    private int subsamplingY = 1;
+    private int subsamplingOffsetX = 0;
+    private int subsamplingOffsetY = 0;
+    private boolean filterSubsampled = false;
+
+    /**
+     * Constructs options which decode the whole image at full resolution.
+     */
+    public DecodeOptions()
+    {
+    }
+
+    /**
+     * Constructs options which decode only the given region.
+     *
+     * @param sourceRegion the region in image pixels, or null for the whole image
+     */
+    public DecodeOptions(Rectangle sourceRegion)
+    {
+        this.sourceRegion = sourceRegion;
+    }
+
+    /**
+     * Constructs options which decode only every n-th pixel in both directions.
+     *
+     * @param subsampling the subsampling factor, at least 1
+     */
+    public DecodeOptions(int subsampling)
+    {
+        setSubsamplingX(subsampling);
+        setSubsamplingY(subsampling);
+    }
+
+    /**
+     * Returns the region of the image to decode, or null for the whole image.
+     *
+     * @return the source region in image pixels
+     */
+    public Rectangle getSourceRegion()
+    {
+        return sourceRegion;
+    }
+
+    /**
+     * Sets the region of the image to decode, null for the whole image.
+     *
+     * @param sourceRegion the source region in image pixels
+     */
+    public void setSourceRegion(Rectangle sourceRegion)
+    {
+        this.sourceRegion = sourceRegion;
+    }
+
+    /**
+     * Returns the horizontal subsampling factor, 1 means every column is decoded.
+     *
+     * @return the horizontal subsampling factor
+     */
+    public int getSubsamplingX()
+    {
+        return subsamplingX;
+    }
+
+    /**
+     * Sets the horizontal subsampling factor.
+     *
+     * @param subsamplingX the horizontal subsampling factor, at least 1
+     */
+    public void setSubsamplingX(int subsamplingX)
+    {
+        if (subsamplingX < 1)
+        {
+            throw new IllegalArgumentException("subsampling must be positive: " + subsamplingX);
+        }
+        this.subsamplingX = subsamplingX;
+    }
+
+    /**
+     * Returns the vertical subsampling factor, 1 means every row is decoded.
+     *
+     * @return the vertical subsampling factor
+     */
+    public int getSubsamplingY()
+    {
+        return subsamplingY;
+    }
+
+    /**
+     * Sets the vertical subsampling factor.
+     *
+     * @param subsamplingY the vertical subsampling factor, at least 1
+     */
+    public void setSubsamplingY(int subsamplingY)
+    {
+        if (subsamplingY < 1)
+        {
+            throw new IllegalArgumentException("subsampling must be positive: " + subsamplingY);
+        }
+        this.subsamplingY = subsamplingY;
+    }
+
+    /**
+     * Returns the horizontal offset of the first decoded column within the source region.
+     *
+     * @return the horizontal subsampling offset
+     */
+    public int getSubsamplingOffsetX()
+    {
+        return subsamplingOffsetX;
+    }
+
+    /**
+     * Sets the horizontal offset of the first decoded column within the source region.
+     *
+     * @param subsamplingOffsetX the horizontal subsampling offset
+     */
+    public void setSubsamplingOffsetX(int subsamplingOffsetX)
+    {
+        this.subsamplingOffsetX = subsamplingOffsetX;
+    }
+
+    /**
+     * Returns the vertical offset of the first decoded row within the source region.
+     *
+     * @return the vertical subsampling offset
+     */
+    public int getSubsamplingOffsetY()
+    {
+        return subsamplingOffsetY;
+    }
+
+    /**
+     * Sets the vertical offset of the first decoded row within the source region.
+     *
+     * @param subsamplingOffsetY the vertical subsampling offset
+     */
+    public void setSubsamplingOffsetY(int subsamplingOffsetY)
+    {
+        this.subsamplingOffsetY = subsamplingOffsetY;
+    }
+
+    /**
+     * Returns whether the filter has already applied the source region and the subsampling, i.e.
+     * whether the decoded data only contains the requested pixels.
+     *
+     * @return true if the decoded data is already cropped and subsampled
+     */
+    public boolean isFilterSubsampled()
+    {
+        return filterSubsampled;
+    }
+
+    /**
+     * Used by the filters to report that they have applied the options.
+     *
+     * @param filterSubsampled true if the decoded data is already cropped and subsampled
+     */
+    void setFilterSubsampled(boolean filterSubsampled)
+    {
+        this.filterSubsampled = filterSubsampled;
+    }
+
+    /**
+     * Returns whether these options request anything but the whole image at full resolution.
+     *
+     * @return true if a source region or subsampling is set
+     */
+    boolean isSubsampled()
+    {
+        return sourceRegion != null || subsamplingX > 1 || subsamplingY > 1;
+    }
+
+    /**
+     * Applies these options to the parameters of an image reader.
+     *
+     * @param param the parameters to update
+     */
+    void copyTo(ImageReadParam param)
+    {
+        param.setSourceRegion(sourceRegion);
+        param.setSourceSubsampling(subsamplingX, subsamplingY, subsamplingOffsetX,
+                subsamplingOffsetY);
+    }
+
+    /**
+     * The shared default options, which can't be changed.
+     */
+    private static final class DefaultDecodeOptions extends DecodeOptions
+    {
+        @Override
+        public void setSourceRegion(Rectangle sourceRegion)
+        {
+            throw new UnsupportedOperationException("the default options are read-only");
+        }
+
+        @Override
+        public void setSubsamplingX(int subsamplingX)
+        {
+            throw new UnsupportedOperationException("the default options are read-only");
+        }
+
+        @Override
+        public void setSubsamplingY(int subsamplingY)
+        {
+            throw new UnsupportedOperationException("the default options are read-only");
+        }
+
+        @Override
+        public void setSubsamplingOffsetX(int subsamplingOffsetX)
+        {
+            throw new UnsupportedOperationException("the default options are read-only");
+        }
+
+        @Override
+        public void setSubsamplingOffsetY(int subsamplingOffsetY)
+        {
+            throw new UnsupportedOperationException("the default options are read-only");
+        }
+
+        @Override
+        void setFilterSubsampled(boolean filterSubsampled)
+        {
+            // the whole image is decoded anyway
+        }
+    }
+}
@@ -60,6 +60,26 @@ public abstract class Filter
     public abstract DecodeResult decode(InputStream encoded, OutputStream decoded, COSDictionary parameters,
                             int index) throws IOException;
 
+    /**
+     * Decodes data, with optional DecodeOptions. Image filters which can decode a region or a
+     * subsampled image override this method and report whether they applied the options, see
+     * {@link DecodeOptions#isFilterSubsampled()}. The default implementation ignores the options
+     * and decodes the whole stream.
+     *
+     * @param encoded the encoded byte stream
+     * @param decoded the stream where decoded data will be written
+     * @param parameters the parameters used for decoding
+     * @param index the index to the filter being decoded
+     * @param options additional options for decoding
+     * @return repaired parameters dictionary, or the original parameters dictionary
+     * @throws IOException if the stream cannot be decoded
+     */
+    public DecodeResult decode(InputStream encoded, OutputStream decoded, COSDictionary parameters,
+                               int index, DecodeOptions options) throws IOException
+    {
+        return decode(encoded, decoded, parameters, index);
+    }
+
     /**
      * Encodes data.
      * @param input the byte stream to encode
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A per-thread pool of the Inflater and Deflater instances and the work buffers used by the
+ * default {@link FlateProvider}. Creating and finalizing an Inflater is expensive compared to
+ * decompressing the many small streams of a typical page, e.g. fonts and form XObjects.
+ *
+ * <p>The pooled instances of a thread are released with {@link #clear()}, which is called when a
+ * PDDocument is closed.</p>
+ */
+public final class FlateCodecPool
+{
+    /** the size of the pooled buffers. */
+    static final int BUFFER_SIZE = 16384;
+
+    // the maximum number of pooled instances of each kind, nested use is rare
+    private static final int MAX_POOLED = 4;
+
+    private static final AtomicLong CREATED_COUNT = new AtomicLong();
+    private static final AtomicLong REUSED_COUNT = new AtomicLong();
+
+    private static final ThreadLocal<Codecs> CODECS = new ThreadLocal<Codecs>()
+    {
+        @Override
+        protected Codecs initialValue()
+        {
+            return new Codecs();
+        }
+    };
+
+    private FlateCodecPool()
+    {
+    }
+
+    /**
+     * Returns an Inflater for raw deflate data, i.e. in nowrap mode.
+     */
+    static Inflater acquireInflater()
+    {
+        Inflater inflater = CODECS.get().inflaters.pollFirst();
+        if (inflater == null)
+        {
+            CREATED_COUNT.incrementAndGet();
+            return new Inflater(true);
+        }
+        REUSED_COUNT.incrementAndGet();
+        return inflater;
+    }
+
+    /**
+     * Returns an Inflater acquired before to the pool.
+     */
+    static void releaseInflater(Inflater inflater)
+    {
+        Deque<Inflater> inflaters = CODECS.get().inflaters;
+        if (inflaters.size() < MAX_POOLED)
+        {
+            inflater.reset();
+            inflaters.addFirst(inflater);
+        }
+        else
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns a Deflater with the default compression level.
+     *
+     * @param nowrap true for raw deflate data, false for a zlib stream
+     */
+    static Deflater acquireDeflater(boolean nowrap)
+    {
+        Codecs codecs = CODECS.get();
+        Deflater deflater = (nowrap ? codecs.rawDeflaters : codecs.deflaters).pollFirst();
+        if (deflater == null)
+        {
+            CREATED_COUNT.incrementAndGet();
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        }
+        REUSED_COUNT.incrementAndGet();
+        return deflater;
+    }
+
+    /**
+     * Returns a Deflater acquired before to the pool.
+     *
+     * @param nowrap the mode the Deflater has been acquired with
+     */
+    static void releaseDeflater(Deflater deflater, boolean nowrap)
+    {
+        Codecs codecs = CODECS.get();
+        Deque<Deflater> deflaters = nowrap ? codecs.rawDeflaters : codecs.deflaters;
+        if (deflaters.size() < MAX_POOLED)
+        {
+            deflater.reset();
+            deflaters.addFirst(deflater);
+        }
+        else
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns a buffer of {@link #BUFFER_SIZE} bytes, with undefined content.
+     */
+    static byte[] acquireBuffer()
+    {
+        byte[] buffer = CODECS.get().buffers.pollFirst();
+        if (buffer == null)
+        {
+            CREATED_COUNT.incrementAndGet();
+            return new byte[BUFFER_SIZE];
+        }
+        REUSED_COUNT.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer acquired before to the pool.
+     */
+    static void releaseBuffer(byte[] buffer)
+    {
+        Deque<byte[]> buffers = CODECS.get().buffers;
+        if (buffers.size() < MAX_POOLED)
+        {
+            buffers.addFirst(buffer);
+        }
+    }
+
+    /**
+     * Releases the pooled instances of the current thread. They are recreated when needed.
+     */
+    public static void clear()
+    {
+        Codecs codecs = CODECS.get();
+        for (Inflater inflater : codecs.inflaters)
+        {
+            inflater.end();
+        }
+        for (Deflater deflater : codecs.deflaters)
+        {
+            deflater.end();
+        }
+        for (Deflater deflater : codecs.rawDeflaters)
+        {
+            deflater.end();
+        }
+        CODECS.remove();
+    }
+
+    /**
+     * Returns how many Inflaters, Deflaters and buffers have been created by all threads.
+     *
+     * @return the number of created instances
+     */
+    public static long getCreatedCount()
+    {
+        return CREATED_COUNT.get();
+    }
+
+    /**
+     * Returns how many Inflaters, Deflaters and buffers have been reused by all threads, i.e. how
+     * many instances the pool has saved.
+     *
+     * @return the number of reused instances
+     */
+    public static long getReusedCount()
+    {
+        return REUSED_COUNT.get();
+    }
+
+    // the pooled instances of one thread
+    private static final class Codecs
+    {
+        private final Deque<Inflater> inflaters = new ArrayDeque<Inflater>();
+        private final Deque<Deflater> deflaters = new ArrayDeque<Deflater>();
+        private final Deque<Deflater> rawDeflaters = new ArrayDeque<Deflater>();
+        private final Deque<byte[]> buffers = new ArrayDeque<byte[]>();
+    }
+}
@@ -22,8 +22,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.DataFormatException;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.Inflater;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
@@ -31,7 +29,8 @@ import org.apache.pdfbox.cos.COSName;
 
 /**
  * Decompresses data encoded using the zlib/deflate compression method,
- * reproducing the original text or binary data.
+ * reproducing the original text or binary data. The compression itself
+ * is done by the {@link FlateProvider}.
  *
  * @author Ben Litchfield
  * @author Marcel Kammer
@@ -39,7 +38,6 @@ import org.apache.pdfbox.cos.COSName;
 final class FlateFilter extends Filter
 {
     private static final Log LOG = LogFactory.getLog(FlateFilter.class);
-    private static final int BUFFER_SIZE = 16348;
 
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
@@ -84,76 +82,18 @@ final class FlateFilter extends Filter
         return new DecodeResult(parameters);
     }
 
-    // Use Inflater instead of InflateInputStream to avoid an EOFException due to a probably
-    // missing Z_STREAM_END, see PDFBOX-1232 for details
-    private void decompress(InputStream in, OutputStream out) throws IOException, DataFormatException 
-    { 
-        byte[] buf = new byte[2048];
-        // skip zlib header
-        in.read(buf,0,2);
-        int read = in.read(buf); 
-        if (read > 0) 
-        { 
-            // use nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
-            Inflater inflater = new Inflater(true); 
-            inflater.setInput(buf,0,read);
-            byte[] res = new byte[1024]; 
-            boolean dataWritten = false;
-            while (true) 
-            { 
-                int resRead = 0;
-                try
-                {
-                    resRead = inflater.inflate(res);
-                }
-                catch(DataFormatException exception)
-                {
-                    if (dataWritten)
-                    {
-                        // some data could be read -> don't throw an exception
-                        LOG.warn("FlateFilter: premature end of stream due to a DataFormatException");
-                        break;
-                    }
-                    else
-                    {
-                        // nothing could be read -> re-throw exception
-                        throw exception;
-                    }
-                }
-                if (resRead != 0) 
-                { 
-                    out.write(res,0,resRead);
-                    dataWritten = true;
-                    continue; 
-                } 
-                if (inflater.finished() || inflater.needsDictionary() || in.available() == 0) 
-                {
-                    break;
-                } 
-                read = in.read(buf); 
-                inflater.setInput(buf,0,read);
-            }
-            inflater.end();
-        }
+    private static void decompress(InputStream in, OutputStream out)
+            throws IOException, DataFormatException
+    {
+        FlateProviders.instance().inflate(in, out);
         out.flush();
     }
-    
+
     @Override
     protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
             throws IOException
     {
-        DeflaterOutputStream out = new DeflaterOutputStream(encoded);
-        int amountRead;
-        int mayRead = input.available();
-        if (mayRead > 0)
-        {
-            byte[] buffer = new byte[Math.min(mayRead,BUFFER_SIZE)];
-            while ((amountRead = input.read(buffer, 0, Math.min(mayRead,BUFFER_SIZE))) != -1)
-            {
-                out.write(buffer, 0, amountRead);
-            }
-        }
-        out.close();
+        FlateProviders.instance().deflate(input, encoded);
         encoded.flush();
     }
 }
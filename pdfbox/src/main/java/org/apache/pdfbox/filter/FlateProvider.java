@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+
+/**
+ * Compresses and decompresses zlib streams for the FlateDecode filter. The default implementation
+ * uses java.util.zip, another one can be set with {@link FlateProviders#set(FlateProvider)}.
+ * Implementations must be thread safe.
+ */
+public interface FlateProvider
+{
+    /**
+     * Decompresses a zlib stream. The zlib header is skipped and the checksum isn't verified, and
+     * corrupt data after some data has been decompressed is treated as end of the stream, as many
+     * PDF files contain slightly broken streams.
+     *
+     * @param encoded the zlib stream
+     * @param decoded the stream where the decompressed data will be written
+     * @throws DataFormatException if the data is corrupt and nothing could be decompressed
+     * @throws IOException if the data could not be read or written
+     */
+    void inflate(InputStream encoded, OutputStream decoded) throws DataFormatException, IOException;
+
+    /**
+     * Compresses data to a zlib stream.
+     *
+     * @param input the data to compress
+     * @param encoded the stream where the zlib stream will be written
+     * @throws IOException if the data could not be read or written
+     */
+    void deflate(InputStream input, OutputStream encoded) throws IOException;
+}
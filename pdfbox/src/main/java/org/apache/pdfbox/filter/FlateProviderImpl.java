@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The default FlateProvider, which uses java.util.zip. Large streams are compressed on several
+ * threads by {@link ParallelFlateEncoder}.
+ */
+final class FlateProviderImpl implements FlateProvider
+{
+    private static final Log LOG = LogFactory.getLog(FlateProviderImpl.class);
+    // Use Inflater instead of InflateInputStream to avoid an EOFException due to a probably
+    // missing Z_STREAM_END, see PDFBOX-1232 for details
+    @Override
+    public void inflate(InputStream in, OutputStream out) throws DataFormatException, IOException
+    {
+        byte[] buf = FlateCodecPool.acquireBuffer();
+        try
+        {
+            // skip zlib header
+            in.read(buf,0,2);
+            int read = in.read(buf); 
+            if (read > 0) 
+            { 
+                // use nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
+                Inflater inflater = FlateCodecPool.acquireInflater();
+                byte[] res = FlateCodecPool.acquireBuffer();
+                try
+                {
+                    inflate(inflater, in, buf, read, res, out);
+                }
+                finally
+                {
+                    FlateCodecPool.releaseBuffer(res);
+                    FlateCodecPool.releaseInflater(inflater);
+                }
+            }
+        }
+        finally
+        {
+            FlateCodecPool.releaseBuffer(buf);
+        }
+    }
+
+    private static void inflate(Inflater inflater, InputStream in, byte[] buf, int read,
+            byte[] res, OutputStream out) throws DataFormatException, IOException
+    {
+        inflater.setInput(buf,0,read);
+        boolean dataWritten = false;
+        while (true) 
+        { 
+            int resRead = 0;
+            try
+            {
+                resRead = inflater.inflate(res);
+            }
+            catch(DataFormatException exception)
+            {
+                if (dataWritten)
+                {
+                    // some data could be read -> don't throw an exception
+                    LOG.warn("FlateFilter: premature end of stream due to a DataFormatException");
+                    break;
+                }
+                else
+                {
+                    // nothing could be read -> re-throw exception
+                    throw exception;
+                }
+            }
+            if (resRead != 0) 
+            { 
+                out.write(res,0,resRead);
+                dataWritten = true;
+                continue; 
+            } 
+            if (inflater.finished() || inflater.needsDictionary() || in.available() == 0) 
+            {
+                break;
+            } 
+            read = in.read(buf); 
+            inflater.setInput(buf,0,read);
+        }
+    }
+
+    @Override
+    public void deflate(InputStream input, OutputStream encoded) throws IOException
+    {
+        int mayRead = input.available();
+        if (ParallelFlateEncoder.isParallel(mayRead))
+        {
+            // large streams are compressed in blocks on several threads
+            ParallelFlateEncoder.encode(input, encoded);
+            return;
+        }
+        Deflater deflater = FlateCodecPool.acquireDeflater(false);
+        byte[] buffer = FlateCodecPool.acquireBuffer();
+        try
+        {
+            // the DeflaterOutputStream doesn't end a Deflater passed to it
+            DeflaterOutputStream out = new DeflaterOutputStream(encoded, deflater);
+            int amountRead;
+            if (mayRead > 0)
+            {
+                int length = Math.min(mayRead, buffer.length);
+                while ((amountRead = input.read(buffer, 0, length)) != -1)
+                {
+                    out.write(buffer, 0, amountRead);
+                }
+            }
+            out.close();
+        }
+        finally
+        {
+            FlateCodecPool.releaseBuffer(buffer);
+            FlateCodecPool.releaseDeflater(deflater, false);
+        }
+    }
+}
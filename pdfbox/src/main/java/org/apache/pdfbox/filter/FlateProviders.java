@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+/**
+ * FlateProvider factory class.
+ */
+public final class FlateProviders
+{
+    private static volatile FlateProvider instance;
+
+    private FlateProviders()
+    {
+    }
+
+    // lazy thread safe singleton
+    private static class DefaultFlateProvider
+    {
+        private static final FlateProvider INSTANCE = new FlateProviderImpl();
+    }
+
+    /**
+     * Returns the singleton FlateProvider instance.
+     *
+     * @return the FlateProvider used by the FlateDecode filter
+     */
+    public static FlateProvider instance()
+    {
+        FlateProvider provider = instance;
+        return provider != null ? provider : DefaultFlateProvider.INSTANCE;
+    }
+
+    /**
+     * Sets the singleton FlateProvider instance.
+     *
+     * @param flateProvider the FlateProvider, or null for the default one, which uses java.util.zip
+     */
+    public static void set(FlateProvider flateProvider)
+    {
+        instance = flateProvider;
+    }
+}
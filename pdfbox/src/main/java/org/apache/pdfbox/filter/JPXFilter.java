@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import org.apache.pdfbox.cos.COSDictionary;
@@ -51,10 +52,18 @@ public final class JPXFilter extends Filter
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
+    {
+        return decode(encoded, decoded, parameters, index, DecodeOptions.DEFAULT);
+    }
+
+    @Override
+    public DecodeResult decode(InputStream encoded, OutputStream decoded,
+                               COSDictionary parameters, int index, DecodeOptions options)
+            throws IOException
     {
         DecodeResult result = new DecodeResult(new COSDictionary());
         result.getParameters().addAll(parameters);
-        BufferedImage image = readJPX(encoded, result);
+        BufferedImage image = readJPX(encoded, options, result);
 
         WritableRaster raster = image.getRaster();
         switch (raster.getDataBuffer().getDataType())
@@ -62,6 +71,7 @@ public final class JPXFilter extends Filter
             case DataBuffer.TYPE_BYTE:
                 DataBufferByte byteBuffer = (DataBufferByte) raster.getDataBuffer();
                 decoded.write(byteBuffer.getData());
+                options.setFilterSubsampled(options.isSubsampled());
                 return result;
 
             case DataBuffer.TYPE_USHORT:
@@ -74,6 +84,7 @@ public final class JPXFilter extends Filter
                     decoded.write(w >> 8);
                     decoded.write(w);
                 }
+                options.setFilterSubsampled(options.isSubsampled());
                 return result;
 
             default:
@@ -82,7 +93,8 @@ public final class JPXFilter extends Filter
     }
 
     // try to read using JAI Image I/O
-    private BufferedImage readJPX(InputStream input, DecodeResult result) throws IOException
+    private BufferedImage readJPX(InputStream input, DecodeOptions options, DecodeResult result)
+            throws IOException
     {
         ImageReader reader = findImageReader("JPEG2000", "Java Advanced Imaging (JAI) Image I/O Tools are not installed");
         ImageInputStream iis = null;
@@ -94,7 +106,9 @@ public final class JPXFilter extends Filter
             BufferedImage image;
             try
             {
-                image = reader.read(0);
+                ImageReadParam irp = reader.getDefaultReadParam();
+                options.copyTo(irp);
+                image = reader.read(0, irp);
             }
             catch (Exception e)
             {
@@ -118,8 +132,17 @@ public final class JPXFilter extends Filter
             }
 
             // override dimensions, see PDFBOX-1735
-            parameters.setInt(COSName.WIDTH, image.getWidth());
-            parameters.setInt(COSName.HEIGHT, image.getHeight());
+            if (options.isSubsampled())
+            {
+                // the decoded image is smaller, but the parameters describe the whole image
+                parameters.setInt(COSName.WIDTH, reader.getWidth(0));
+                parameters.setInt(COSName.HEIGHT, reader.getHeight(0));
+            }
+            else
+            {
+                parameters.setInt(COSName.WIDTH, image.getWidth());
+                parameters.setInt(COSName.HEIGHT, image.getHeight());
+            }
 
             // extract embedded color space
             if (!parameters.containsKey(COSName.COLORSPACE))
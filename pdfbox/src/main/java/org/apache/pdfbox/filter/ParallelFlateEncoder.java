@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import org.apache.pdfbox.io.IOUtils;
+
+/**
+ * Compresses large streams for the FlateDecode filter on several threads. The input is split into
+ * blocks which are deflated concurrently, each block uses the end of the previous block as preset
+ * dictionary and ends with a sync flush, so that the blocks can be concatenated to a single zlib
+ * stream, like pigz does. The result is only slightly larger than with a single Deflater.
+ *
+ * <p>The default {@link FlateProvider} uses this automatically for streams of at least
+ * {@link #getThreshold()} bytes, i.e. whenever a COSStream is written with {@link
+ * org.apache.pdfbox.cos.COSStream#createOutputStream(org.apache.pdfbox.cos.COSBase)}. The sync
+ * flush needs a Java 7 runtime, on older runtimes all streams are compressed on one thread.</p>
+ */
+public final class ParallelFlateEncoder
+{
+    /** the default minimum stream length for parallel compression. */
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    // pigz uses 128 KB blocks, too
+    private static final int BLOCK_SIZE = 128 * 1024;
+    // the size of the deflate window
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // Deflater#deflate(byte[], int, int, int) and Deflater#SYNC_FLUSH are Java 7
+    private static final Method DEFLATE_WITH_FLUSH;
+    private static final int SYNC_FLUSH;
+
+    static
+    {
+        Method deflate = null;
+        int syncFlush = 0;
+        try
+        {
+            deflate = Deflater.class.getMethod("deflate", byte[].class, int.class, int.class,
+                    int.class);
+            syncFlush = Deflater.class.getField("SYNC_FLUSH").getInt(null);
+        }
+        catch (Exception e)
+        {
+            // Java 6, no parallel compression
+            deflate = null;
+        }
+        DEFLATE_WITH_FLUSH = deflate;
+        SYNC_FLUSH = syncFlush;
+    }
+
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+    private static volatile ExecutorService executor;
+    private static ExecutorService defaultExecutor;
+
+    private ParallelFlateEncoder()
+    {
+    }
+
+    /**
+     * Returns the minimum stream length for parallel compression.
+     *
+     * @return the threshold in bytes
+     */
+    public static int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Sets the minimum stream length for parallel compression, smaller streams are compressed on
+     * the calling thread.
+     *
+     * @param threshold the threshold in bytes, Integer.MAX_VALUE disables parallel compression
+     */
+    public static void setThreshold(int threshold)
+    {
+        if (threshold < 0)
+        {
+            throw new IllegalArgumentException("negative threshold: " + threshold);
+        }
+        ParallelFlateEncoder.threshold = threshold;
+    }
+
+    /**
+     * Sets the executor which compresses the blocks. By default a shared pool of daemon threads,
+     * one per processor, is used.
+     *
+     * @param executor the executor, or null for the default one
+     */
+    public static void setExecutor(ExecutorService executor)
+    {
+        ParallelFlateEncoder.executor = executor;
+    }
+
+    /**
+     * Returns whether a stream of the given length is compressed in parallel.
+     *
+     * @param length the length of the stream
+     * @return true if the stream is compressed in parallel
+     */
+    static boolean isParallel(int length)
+    {
+        return DEFLATE_WITH_FLUSH != null && length >= threshold && length > BLOCK_SIZE
+                && (executor != null || Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    /**
+     * Compresses the input to a zlib stream.
+     *
+     * @param input the data to compress
+     * @param encoded the stream where the zlib stream will be written
+     * @throws IOException if the input could not be read or the output could not be written
+     */
+    static void encode(InputStream input, OutputStream encoded) throws IOException
+    {
+        ExecutorService blockExecutor = getExecutor();
+        // limit the memory used by blocks which are waiting to be compressed or written
+        int maxPending = 2 * Runtime.getRuntime().availableProcessors();
+        Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        Adler32 checksum = new Adler32();
+
+        // zlib header for the default compression level, as written by DeflaterOutputStream
+        encoded.write(0x78);
+        encoded.write(0x9C);
+        try
+        {
+            byte[] dictionary = null;
+            byte[] block = readBlock(input);
+            while (block != null)
+            {
+                checksum.update(block);
+                byte[] next = readBlock(input);
+                pending.add(blockExecutor.submit(new BlockTask(block, dictionary, next == null)));
+                if (pending.size() >= maxPending)
+                {
+                    encoded.write(pending.removeFirst().get());
+                }
+                dictionary = Arrays.copyOfRange(block,
+                        Math.max(0, block.length - DICTIONARY_SIZE), block.length);
+                block = next;
+            }
+            while (!pending.isEmpty())
+            {
+                encoded.write(pending.removeFirst().get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            for (Future<byte[]> future : pending)
+            {
+                future.cancel(true);
+            }
+        }
+
+        long adler = checksum.getValue();
+        encoded.write((int) (adler >> 24));
+        encoded.write((int) (adler >> 16));
+        encoded.write((int) (adler >> 8));
+        encoded.write((int) adler);
+    }
+
+    // reads the next block, null at the end of the input
+    private static byte[] readBlock(InputStream input) throws IOException
+    {
+        byte[] block = new byte[BLOCK_SIZE];
+        int length = (int) IOUtils.populateBuffer(input, block);
+        if (length == 0)
+        {
+            return null;
+        }
+        return length < BLOCK_SIZE ? Arrays.copyOf(block, length) : block;
+    }
+
+    private static ExecutorService getExecutor()
+    {
+        ExecutorService configured = executor;
+        if (configured != null)
+        {
+            return configured;
+        }
+        synchronized (ParallelFlateEncoder.class)
+        {
+            if (defaultExecutor == null)
+            {
+                final AtomicInteger threadCount = new AtomicInteger();
+                defaultExecutor = Executors.newFixedThreadPool(
+                        Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable,
+                                "PDFBox-Flate-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return defaultExecutor;
+        }
+    }
+
+    /**
+     * Deflates one block to raw deflate data. All blocks but the last end with a sync flush, so
+     * that the next block starts at a byte boundary.
+     */
+    private static final class BlockTask implements Callable<byte[]>
+    {
+        private final byte[] block;
+        private final byte[] dictionary;
+        private final boolean last;
+
+        BlockTask(byte[] block, byte[] dictionary, boolean last)
+        {
+            this.block = block;
+            this.dictionary = dictionary;
+            this.last = last;
+        }
+
+        @Override
+        public byte[] call() throws Exception
+        {
+            Deflater deflater = FlateCodecPool.acquireDeflater(true);
+            byte[] buffer = FlateCodecPool.acquireBuffer();
+            try
+            {
+                if (dictionary != null)
+                {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(block);
+                ByteArrayOutputStream output = new ByteArrayOutputStream(block.length / 2);
+                if (last)
+                {
+                    deflater.finish();
+                    while (!deflater.finished())
+                    {
+                        int length = deflater.deflate(buffer);
+                        output.write(buffer, 0, length);
+                    }
+                }
+                else
+                {
+                    // the output is complete when the buffer isn't filled anymore
+                    int length;
+                    do
+                    {
+                        length = deflateWithSyncFlush(deflater, buffer);
+                        output.write(buffer, 0, length);
+                    }
+                    while (length == buffer.length);
+                }
+                return output.toByteArray();
+            }
+            finally
+            {
+                FlateCodecPool.releaseBuffer(buffer);
+                FlateCodecPool.releaseDeflater(deflater, true);
+            }
+        }
+
+        private static int deflateWithSyncFlush(Deflater deflater, byte[] buffer)
+                throws IOException
+        {
+            try
+            {
+                return (Integer) DEFLATE_WITH_FLUSH.invoke(deflater, buffer, 0, buffer.length,
+                        SYNC_FLUSH);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IOException(e);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+}
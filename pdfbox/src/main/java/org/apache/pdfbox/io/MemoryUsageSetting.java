@@ -38,6 +38,9 @@ public final class MemoryUsageSetting
     /** directory to be used for scratch file */
     private File tempDir;
     
+    /** if <code>true</code> a PDF file to be parsed is mapped into memory */
+    private boolean useMemoryMappedFile;
+    
     /**
      * Private constructor for setup buffering memory usage called by one of the setup methods.
      * 
@@ -183,6 +186,7 @@ public final class MemoryUsageSetting
         MemoryUsageSetting copy = new MemoryUsageSetting( useMainMemory, useTempFile,
                                                           newMaxMainMemoryBytes, newMaxStorageBytes );
         copy.tempDir = tempDir;
+        copy.useMemoryMappedFile = useMemoryMappedFile;
         
         return copy;
     }
@@ -200,6 +204,21 @@ public final class MemoryUsageSetting
         return this;
     }
     
+    /**
+     * Sets whether a PDF file to be parsed is mapped into memory (see
+     * {@link RandomAccessMemoryMappedFile}) instead of being read through a heap based page cache.
+     * This setting only applies when loading from a {@link File}.
+     * 
+     * @param useMemoryMappedFile <code>true</code> to map the PDF file into memory
+     * 
+     * @return this instance
+     */
+    public MemoryUsageSetting setUseMemoryMappedFile(boolean useMemoryMappedFile)
+    {
+        this.useMemoryMappedFile = useMemoryMappedFile;
+        return this;
+    }
+    
     /**
      * Returns <code>true</code> if main-memory is to be used.
      * 
@@ -266,6 +285,16 @@ public final class MemoryUsageSetting
         return tempDir;
     }
     
+    /**
+     * Returns <code>true</code> if a PDF file to be parsed is to be mapped into memory.
+     * 
+     * @return <code>true</code> if the PDF file is mapped into memory
+     */
+    public boolean useMemoryMappedFile()
+    {
+        return useMemoryMappedFile;
+    }
+    
     @Override
     public String toString()
     {
@@ -50,47 +50,56 @@ public class RandomAccessInputStream extends InputStream
     @Override
     public int available() throws IOException
     {
-        restorePosition();
-        long available = input.length() - input.getPosition();
+        long available = input.length() - position;
         if (available > Integer.MAX_VALUE)
         {
             return Integer.MAX_VALUE;
         }
-        return (int)available;
+        return (int) Math.max(0, available);
     }
 
     @Override
     public int read() throws IOException
     {
-        restorePosition();
-        if (input.isEOF())
+        // several streams may share the same source, so seeking and reading must not interleave
+        synchronized (input)
         {
-            return -1;
+            restorePosition();
+            if (input.isEOF())
+            {
+                return -1;
+            }
+            int b = input.read();
+            position += 1;
+            return b;
         }
-        int b = input.read();
-        position += 1;
-        return b;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException
     {
-        restorePosition();
-        if (input.isEOF())
+        synchronized (input)
         {
-            return -1;
+            restorePosition();
+            if (input.isEOF())
+            {
+                return -1;
+            }
+            int n = input.read(b, off, len);
+            position += n;
+            return n;
         }
-        int n = input.read(b, off, len);
-        position += n;
-        return n;
     }
 
     @Override
     public long skip(long n) throws IOException
     {
-        restorePosition();
-        input.seek(position + n);
-        position += n;
-        return n;
+        synchronized (input)
+        {
+            restorePosition();
+            input.seek(position + n);
+            position += n;
+            return n;
+        }
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only {@link RandomAccessRead} implementation which maps the given file into memory.
+ *
+ * <p>In contrast to {@link RandomAccessBufferedFileInputStream} no data is copied to the heap,
+ * the bytes are read directly from the mapped region and paging is left to the operating system.
+ * As a single {@link MappedByteBuffer} is limited to 2 GB the file is mapped in several
+ * segments.</p>
+ *
+ * <p>The mapping is released when the buffers are garbage collected, i.e. it may still be
+ * active for a while after {@link #close()} was called.</p>
+ */
+public class RandomAccessMemoryMappedFile implements RandomAccessRead
+{
+    /** default size of a single mapped segment (1 GB). */
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final int segmentSize;
+    private final long fileLength;
+    private MappedByteBuffer[] segments;
+
+    private long position;
+
+    /**
+     * Create a memory mapped random access read instance for the given file.
+     *
+     * @param file the file to be read.
+     * @throws IOException if something went wrong while mapping the given file.
+     */
+    public RandomAccessMemoryMappedFile(File file) throws IOException
+    {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Create a memory mapped random access read instance for the given file using
+     * segments of the given size.
+     *
+     * @param file the file to be read.
+     * @param segmentSize the maximum size of a single mapped segment.
+     * @throws IOException if something went wrong while mapping the given file.
+     */
+    RandomAccessMemoryMappedFile(File file, int segmentSize) throws IOException
+    {
+        if (segmentSize <= 0)
+        {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        java.io.RandomAccessFile raFile = new java.io.RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = raFile.getChannel();
+            fileLength = channel.size();
+            int segmentCount = (int) ((fileLength + segmentSize - 1) / segmentSize);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++)
+            {
+                long offset = (long) i * segmentSize;
+                long size = Math.min(segmentSize, fileLength - offset);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            }
+        }
+        finally
+        {
+            // the mapping stays valid after the channel has been closed
+            raFile.close();
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        checkClosed();
+        if (position >= fileLength)
+        {
+            return -1;
+        }
+        int result = segments[(int) (position / segmentSize)].get((int) (position % segmentSize));
+        position++;
+        return result & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException
+    {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException
+    {
+        checkClosed();
+        if (position >= fileLength)
+        {
+            return -1;
+        }
+        int bytesToRead = (int) Math.min(length, fileLength - position);
+        int bytesRead = 0;
+        while (bytesRead < bytesToRead)
+        {
+            MappedByteBuffer segment = segments[(int) (position / segmentSize)];
+            int segmentOffset = (int) (position % segmentSize);
+            int count = Math.min(bytesToRead - bytesRead, segment.limit() - segmentOffset);
+            // use a duplicate to keep the position of the mapped segment untouched
+            ByteBuffer view = segment.duplicate();
+            view.position(segmentOffset);
+            view.get(b, offset + bytesRead, count);
+            bytesRead += count;
+            position += count;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException
+    {
+        checkClosed();
+        if (newPosition < 0)
+        {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        position = newPosition;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return fileLength;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return segments == null;
+    }
+
+    @Override
+    public int peek() throws IOException
+    {
+        int result = read();
+        if (result != -1)
+        {
+            rewind(1);
+        }
+        return result;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException
+    {
+        seek(getPosition() - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int length) throws IOException
+    {
+        byte[] b = new byte[length];
+        int bytesRead = 0;
+        while (bytesRead < length)
+        {
+            int count = read(b, bytesRead, length - bytesRead);
+            if (count < 0)
+            {
+                throw new EOFException();
+            }
+            bytesRead += count;
+        }
+        return b;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException
+    {
+        checkClosed();
+        return position >= fileLength;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        checkClosed();
+        return (int) Math.max(0, Math.min(fileLength - position, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        segments = null;
+    }
+
+    /**
+     * Ensure that the RandomAccessMemoryMappedFile is not closed
+     * @throws IOException
+     */
+    private void checkClosed() throws IOException
+    {
+        if (segments == null)
+        {
+            throw new IOException("RandomAccessMemoryMappedFile already closed");
+        }
+    }
+}
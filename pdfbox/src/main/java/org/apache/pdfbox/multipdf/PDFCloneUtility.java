@@ -41,14 +41,27 @@ public class PDFCloneUtility
 
     private final PDDocument destination;
     private final Map<Object,COSBase> clonedVersion = new HashMap<Object,COSBase>();
+    private final StreamDeduplicator deduplicator;
 
     /**
      * Creates a new instance for the given target document.
      * @param dest the destination PDF document that will receive the clones
      */
     public PDFCloneUtility(PDDocument dest)
+    {
+        this(dest, null);
+    }
+
+    /**
+     * Creates a new instance for the given target document, which replaces clones of streams by
+     * identical streams cloned before.
+     * @param dest the destination PDF document that will receive the clones
+     * @param deduplicator the deduplicator for the cloned streams, or null
+     */
+    public PDFCloneUtility(PDDocument dest, StreamDeduplicator deduplicator)
     {
         this.destination = dest;
+        this.deduplicator = deduplicator;
     }
 
     /**
@@ -124,7 +137,7 @@ public class PDFCloneUtility
               {
                   stream.setItem(entry.getKey(), cloneForNewDocument(entry.getValue()));
               }
-              retval = stream;
+              retval = deduplicator != null ? deduplicator.deduplicate(stream) : stream;
           }
           else if( base instanceof COSDictionary )
           {
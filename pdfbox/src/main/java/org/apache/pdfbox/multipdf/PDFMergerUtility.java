@@ -16,9 +16,11 @@
  */
 package org.apache.pdfbox.multipdf;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,9 +36,11 @@ import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfwriter.COSWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
@@ -74,6 +78,30 @@ public class PDFMergerUtility
     private boolean ignoreAcroFormErrors = false;
     private PDDocumentInformation destinationDocumentInformation = null;
     private PDMetadata destinationMetadata = null;
+    private DocumentMergeMode documentMergeMode = DocumentMergeMode.PDFBOX_LEGACY_MODE;
+    private boolean deduplicateStreams = false;
+    private StreamDeduplicator streamDeduplicator = null;
+
+    /**
+     * The modes of {@link #mergeDocuments(org.apache.pdfbox.io.MemoryUsageSetting)}.
+     */
+    public enum DocumentMergeMode
+    {
+        /**
+         * All sources are merged into one document, which is saved at the end. Everything
+         * {@link #appendDocument(PDDocument, PDDocument)} supports is merged, but the whole
+         * result has to be kept in memory.
+         */
+        PDFBOX_LEGACY_MODE,
+
+        /**
+         * The pages of each source are written as soon as the source has been read, and then
+         * released, so that the memory needed is bounded by the largest source. Only the pages
+         * and the document information are merged, document level features like outlines,
+         * forms, named destinations, page labels and the logical structure are dropped.
+         */
+        STREAMING_MODE
+    }
 
     /**
      * Instantiate a new PDFMergerUtility.
@@ -168,6 +196,52 @@ public class PDFMergerUtility
         destinationMetadata = meta;
     }
 
+    /**
+     * Get the merge mode, the default is {@link DocumentMergeMode#PDFBOX_LEGACY_MODE}.
+     *
+     * @return the merge mode.
+     */
+    public DocumentMergeMode getDocumentMergeMode()
+    {
+        return documentMergeMode;
+    }
+
+    /**
+     * Set the merge mode, {@link DocumentMergeMode#STREAMING_MODE} allows to merge documents
+     * which don't fit into memory.
+     *
+     * @param theDocumentMergeMode the merge mode.
+     */
+    public void setDocumentMergeMode(DocumentMergeMode theDocumentMergeMode)
+    {
+        this.documentMergeMode = theDocumentMergeMode;
+    }
+
+    /**
+     * Returns whether identical streams of the sources are only kept once, see
+     * {@link #setDeduplicateStreams(boolean)}.
+     *
+     * @return true if identical streams are deduplicated.
+     */
+    public boolean isDeduplicateStreams()
+    {
+        return deduplicateStreams;
+    }
+
+    /**
+     * Set whether {@link #mergeDocuments(org.apache.pdfbox.io.MemoryUsageSetting)} keeps identical
+     * streams of the sources only once, e.g. the fonts, images and ICC profiles of documents created
+     * by the same generator. The default is false. Documents merged with
+     * {@link #appendDocument(PDDocument, PDDocument)} can be deduplicated with
+     * {@link StreamDeduplicator#deduplicate(PDDocument)}.
+     *
+     * @param deduplicateStreams true if identical streams are to be deduplicated.
+     */
+    public void setDeduplicateStreams(boolean deduplicateStreams)
+    {
+        this.deduplicateStreams = deduplicateStreams;
+    }
+
     /**
      * Add a source file to the list of files to merge.
      *
@@ -237,6 +311,18 @@ public class PDFMergerUtility
      * @throws IOException If there is an error saving the document.
      */
     public void mergeDocuments(MemoryUsageSetting memUsageSetting) throws IOException
+    {
+        if (documentMergeMode == DocumentMergeMode.STREAMING_MODE)
+        {
+            streamingMergeDocuments(memUsageSetting);
+        }
+        else
+        {
+            legacyMergeDocuments(memUsageSetting);
+        }
+    }
+
+    private void legacyMergeDocuments(MemoryUsageSetting memUsageSetting) throws IOException
     {
         PDDocument destination = null;
         InputStream sourceFile;
@@ -252,6 +338,10 @@ public class PDFMergerUtility
                         MemoryUsageSetting.setupMainMemoryOnly();
                 Iterator<InputStream> sit = sources.iterator();
                 destination = new PDDocument(partitionedMemSetting);
+                if (deduplicateStreams)
+                {
+                    streamDeduplicator = new StreamDeduplicator();
+                }
 
                 while (sit.hasNext())
                 {
@@ -282,6 +372,7 @@ public class PDFMergerUtility
             }
             finally
             {
+                streamDeduplicator = null;
                 if (destination != null)
                 {
                     destination.close();
@@ -298,6 +389,141 @@ public class PDFMergerUtility
         }
     }
 
+    private void streamingMergeDocuments(MemoryUsageSetting memUsageSetting) throws IOException
+    {
+        if (sources == null || sources.isEmpty())
+        {
+            return;
+        }
+        // only one source is loaded at a time
+        MemoryUsageSetting partitionedMemSetting = memUsageSetting != null ?
+                memUsageSetting.getPartitionedCopy(2) : MemoryUsageSetting.setupMainMemoryOnly();
+        OutputStream output = destinationStream;
+        if (output == null)
+        {
+            output = new BufferedOutputStream(new FileOutputStream(destinationFileName));
+        }
+        COSWriter writer = new COSWriter(output);
+        try
+        {
+            // the header is written before the version of the sources is known,
+            // newer versions are set in the catalog
+            float version = 1.4f;
+            writer.startDocument(version);
+
+            COSDictionary pages = new COSDictionary();
+            pages.setItem(COSName.TYPE, COSName.PAGES);
+            COSArray kids = new COSArray();
+            pages.setItem(COSName.KIDS, kids);
+            COSObject pagesReference = writer.reserveObject(pages);
+            COSDictionary info = new COSDictionary();
+            StreamDeduplicator deduplicator = deduplicateStreams ? new StreamDeduplicator() : null;
+
+            for (InputStream sourceFile : sources)
+            {
+                PDDocument source = PDDocument.load(sourceFile, partitionedMemSetting);
+                // the clones of the streams are kept in a scratch document until they are written
+                PDDocument scratch = new PDDocument(partitionedMemSetting);
+                try
+                {
+                    if (isDynamicXfa(source.getDocumentCatalog().getAcroForm()))
+                    {
+                        throw new IOException("Error: can't merge source document containing dynamic XFA form content.");
+                    }
+                    version = Math.max(version, source.getVersion());
+                    PDFCloneUtility cloner = new PDFCloneUtility(scratch, deduplicator);
+                    COSDictionary srcInfo = source.getDocumentInformation().getCOSObject();
+                    info.mergeInto((COSDictionary) cloner.cloneForNewDocument(srcInfo));
+
+                    List<COSDictionary> newPages = clonePages(cloner, source);
+                    // pages may refer to each other, e.g. by links, so a page may be written
+                    // before its turn, it must have its parent by then
+                    for (COSDictionary newPage : newPages)
+                    {
+                        newPage.setItem(COSName.PARENT, pagesReference);
+                    }
+                    for (COSDictionary newPage : newPages)
+                    {
+                        kids.add(writer.writeIndirectObject(newPage));
+                    }
+                    if (deduplicator != null)
+                    {
+                        // later sources refer to the written streams
+                        deduplicator.replaceStreamsByReferences(writer);
+                    }
+                    writer.releaseObjects();
+                }
+                finally
+                {
+                    scratch.close();
+                    source.close();
+                }
+            }
+            pages.setInt(COSName.COUNT, kids.size());
+            writer.writeIndirectObject(pages);
+
+            COSDictionary catalog = new COSDictionary();
+            catalog.setItem(COSName.TYPE, COSName.CATALOG);
+            catalog.setItem(COSName.PAGES, pagesReference);
+            if (version > 1.4f)
+            {
+                catalog.setName(COSName.VERSION, Float.toString(version));
+            }
+            if (destinationMetadata != null)
+            {
+                catalog.setItem(COSName.METADATA, destinationMetadata);
+            }
+            if (destinationDocumentInformation != null)
+            {
+                info = destinationDocumentInformation.getCOSObject();
+            }
+            COSDictionary trailer = new COSDictionary();
+            trailer.setItem(COSName.ROOT, catalog);
+            trailer.setItem(COSName.INFO, info);
+            writer.finishDocument(trailer);
+        }
+        finally
+        {
+            writer.close();
+            for (FileInputStream stream : fileInputStreams)
+            {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Clones the pages of a source for the streaming merge. The inherited attributes are copied
+     * into the pages, and the clones don't have a parent, so that the page tree of the source
+     * isn't cloned.
+     */
+    private List<COSDictionary> clonePages(PDFCloneUtility cloner, PDDocument source)
+            throws IOException
+    {
+        List<PDPage> srcPages = new ArrayList<PDPage>();
+        for (PDPage page : source.getPages())
+        {
+            // the source is discarded after the merge, so it can be modified
+            page.setCropBox(page.getCropBox());
+            page.setMediaBox(page.getMediaBox());
+            page.setRotation(page.getRotation());
+            PDResources resources = page.getResources();
+            page.setResources(resources != null ? resources : new PDResources());
+            srcPages.add(page);
+        }
+        // all parents are removed before cloning, as pages may refer to other pages
+        for (PDPage page : srcPages)
+        {
+            page.getCOSObject().removeItem(COSName.PARENT);
+        }
+        List<COSDictionary> newPages = new ArrayList<COSDictionary>(srcPages.size());
+        for (PDPage page : srcPages)
+        {
+            newPages.add((COSDictionary) cloner.cloneForNewDocument(page.getCOSObject()));
+        }
+        return newPages;
+    }
+
     /**
      * append all pages from source to destination.
      *
@@ -346,7 +572,7 @@ public class PDFMergerUtility
             destCatalog.setOpenAction(srcCatalog.getOpenAction());
         }
 
-        PDFCloneUtility cloner = new PDFCloneUtility(destination);
+        PDFCloneUtility cloner = new PDFCloneUtility(destination, streamDeduplicator);
 
         try
         {
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.multipdf;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -44,9 +45,27 @@ public class Splitter
     private int startPage = Integer.MIN_VALUE;
     private int endPage = Integer.MAX_VALUE;
     private List<PDDocument> destinationDocuments;
+    private OutputStreamFactory outputStreamFactory;
+    private int savedDocumentCount;
 
     private int currentPageNumber = 0;
 
+    /**
+     * Creates the output streams for {@link Splitter#split(PDDocument, OutputStreamFactory)}.
+     */
+    public interface OutputStreamFactory
+    {
+        /**
+         * Creates the output stream for the next split document. The stream is closed after the
+         * document has been saved.
+         *
+         * @param documentNumber the number of the split document, starting with 1
+         * @return the output stream
+         * @throws IOException If the output stream could not be created.
+         */
+        OutputStream createOutputStream(int documentNumber) throws IOException;
+    }
+
     /**
      * This will take a document and split into several other documents.
      *
@@ -60,10 +79,49 @@ public class Splitter
     {
         destinationDocuments = new ArrayList<PDDocument>();
         sourceDocument = document;
+        currentDestinationDocument = null;
+        currentPageNumber = 0;
         processPages();
         return destinationDocuments;
     }
 
+    /**
+     * This will take a document and split it into several other documents, which are saved as
+     * soon as they are complete. Each split document is closed before the next one is created,
+     * so that only one of them is in memory at a time.
+     *
+     * @param document The document to split.
+     * @param factory The factory for the output streams of the split documents.
+     *
+     * @return The number of split documents.
+     *
+     * @throws IOException If there is an IOError
+     */
+    public int split(PDDocument document, OutputStreamFactory factory) throws IOException
+    {
+        destinationDocuments = null;
+        sourceDocument = document;
+        outputStreamFactory = factory;
+        savedDocumentCount = 0;
+        currentDestinationDocument = null;
+        currentPageNumber = 0;
+        try
+        {
+            processPages();
+            saveDestinationDocument();
+        }
+        finally
+        {
+            if (currentDestinationDocument != null)
+            {
+                currentDestinationDocument.close();
+                currentDestinationDocument = null;
+            }
+            outputStreamFactory = null;
+        }
+        return savedDocumentCount;
+    }
+
     /**
      * This will tell the splitting algorithm where to split the pages.  The default
      * is 1, so every page will become a new document.  If it was two then each document would
@@ -120,9 +178,9 @@ public class Splitter
      */
     private void processPages() throws IOException
     {
-        for (int i = 0; i < sourceDocument.getNumberOfPages(); i++)
+        // the iterator doesn't search the page tree for every page
+        for (PDPage page : sourceDocument.getPages())
         {
-            PDPage page = sourceDocument.getPage(i);
             if (currentPageNumber + 1 >= startPage && currentPageNumber + 1 <= endPage)
             {
                 processPage(page);
@@ -151,8 +209,39 @@ public class Splitter
     {
         if (splitAtPage(currentPageNumber) || currentDestinationDocument == null)
         {
-            currentDestinationDocument = createNewDocument();
-            destinationDocuments.add(currentDestinationDocument);
+            if (outputStreamFactory != null)
+            {
+                saveDestinationDocument();
+                currentDestinationDocument = createNewDocument();
+            }
+            else
+            {
+                currentDestinationDocument = createNewDocument();
+                destinationDocuments.add(currentDestinationDocument);
+            }
+        }
+    }
+
+    /**
+     * Saves and closes the current destination document, if any.
+     *
+     * @throws IOException If there is an error saving the document.
+     */
+    private void saveDestinationDocument() throws IOException
+    {
+        if (currentDestinationDocument != null)
+        {
+            PDDocument document = currentDestinationDocument;
+            currentDestinationDocument = null;
+            try
+            {
+                savedDocumentCount++;
+                document.save(outputStreamFactory.createOutputStream(savedDocumentCount));
+            }
+            finally
+            {
+                document.close();
+            }
         }
     }
 
@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.multipdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.util.Charsets;
+import org.apache.pdfbox.util.Hex;
+
+/**
+ * Finds identical streams, e.g. the same font, image or ICC profile embedded in several merged
+ * documents, so that only one copy of them is kept. Streams are identical if their raw data and
+ * their dictionaries are identical, apart from the length. Streams referred to by the dictionary
+ * are compared by content, too, other indirect objects by identity.
+ *
+ * <p>The same instance can be used while cloning with {@link PDFCloneUtility}, or afterwards for a
+ * whole document with {@link #deduplicate(PDDocument)}.</p>
+ */
+public class StreamDeduplicator
+{
+    // the first stream with the given content, or a reference to it once it has been written
+    private final Map<String, COSBase> streams = new HashMap<String, COSBase>();
+    // the keys of the streams which have been replaced by references
+    private final Map<COSBase, String> referenceKeys = new IdentityHashMap<COSBase, String>();
+    private final Map<COSStream, String> keys = new IdentityHashMap<COSStream, String>();
+    private final Set<COSStream> keysInProgress =
+            Collections.newSetFromMap(new IdentityHashMap<COSStream, Boolean>());
+    // the ids of indirect objects other than streams, the ids are never reused because the keys
+    // of the written streams contain them
+    private final Map<COSBase, Integer> ids = new IdentityHashMap<COSBase, Integer>();
+    private int nextId = 0;
+    private int duplicateCount = 0;
+
+    /**
+     * Returns the stream to be used instead of the given stream, which is the first identical
+     * stream passed to this deduplicator.
+     *
+     * @param stream the stream
+     * @return the first identical stream, which may be the given stream itself
+     * @throws IOException if the stream could not be read
+     */
+    public COSBase deduplicate(COSStream stream) throws IOException
+    {
+        String key = getKey(stream);
+        if (key == null)
+        {
+            return stream;
+        }
+        COSBase existing = streams.get(key);
+        if (existing == null)
+        {
+            streams.put(key, stream);
+            return stream;
+        }
+        if (existing != stream)
+        {
+            duplicateCount++;
+        }
+        return existing;
+    }
+
+    /**
+     * Replaces all duplicate streams of a document by the first identical stream. Streams which
+     * have been passed to this deduplicator before are also taken into account.
+     *
+     * @param document the document
+     * @return the number of streams which have been replaced
+     * @throws IOException if a stream could not be read
+     */
+    public int deduplicate(PDDocument document) throws IOException
+    {
+        int count = duplicateCount;
+        List<COSBase> containers = new ArrayList<COSBase>();
+        List<COSStream> documentStreams = new ArrayList<COSStream>();
+        collect(document.getDocument().getTrailer(), containers, documentStreams);
+
+        Map<COSStream, COSBase> replacements = new IdentityHashMap<COSStream, COSBase>();
+        for (COSStream stream : documentStreams)
+        {
+            COSBase canonical = deduplicate(stream);
+            if (canonical != stream)
+            {
+                replacements.put(stream, canonical);
+            }
+        }
+        if (!replacements.isEmpty())
+        {
+            for (COSBase container : containers)
+            {
+                replace(container, replacements);
+            }
+        }
+        return duplicateCount - count;
+    }
+
+    /**
+     * Returns the number of duplicate streams found so far.
+     *
+     * @return the number of duplicates
+     */
+    public int getDuplicateCount()
+    {
+        return duplicateCount;
+    }
+
+    /**
+     * Replaces the streams by references to the written streams, so that the streams can be
+     * released by the writer. Used by the streaming merge after the pages of a source have been
+     * written.
+     */
+    void replaceStreamsByReferences(COSWriter writer) throws IOException
+    {
+        for (Map.Entry<String, COSBase> entry : streams.entrySet())
+        {
+            if (entry.getValue() instanceof COSStream)
+            {
+                COSBase reference = writer.writeIndirectObject(entry.getValue());
+                referenceKeys.put(reference, entry.getKey());
+                entry.setValue(reference);
+            }
+        }
+        keys.clear();
+        ids.clear();
+    }
+
+    // collects all dictionaries, arrays and streams reachable from the trailer
+    private static void collect(COSDictionary trailer, List<COSBase> containers,
+            List<COSStream> documentStreams)
+    {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+        Deque<COSBase> toVisit = new ArrayDeque<COSBase>();
+        toVisit.push(trailer);
+        while (!toVisit.isEmpty())
+        {
+            COSBase base = toVisit.pop();
+            if (base instanceof COSObject)
+            {
+                base = ((COSObject) base).getObject();
+            }
+            if (!(base instanceof COSDictionary || base instanceof COSArray) || !visited.add(base))
+            {
+                continue;
+            }
+            containers.add(base);
+            if (base instanceof COSStream)
+            {
+                documentStreams.add((COSStream) base);
+            }
+            if (base instanceof COSArray)
+            {
+                for (COSBase item : (COSArray) base)
+                {
+                    if (item != null)
+                    {
+                        toVisit.push(item);
+                    }
+                }
+            }
+            else
+            {
+                for (COSBase value : ((COSDictionary) base).getValues())
+                {
+                    if (value != null)
+                    {
+                        toVisit.push(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void replace(COSBase container, Map<COSStream, COSBase> replacements)
+    {
+        if (container instanceof COSArray)
+        {
+            COSArray array = (COSArray) container;
+            for (int i = 0; i < array.size(); i++)
+            {
+                COSBase replacement = getReplacement(array.get(i), replacements);
+                if (replacement != null)
+                {
+                    array.set(i, replacement);
+                }
+            }
+        }
+        else
+        {
+            COSDictionary dictionary = (COSDictionary) container;
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+            {
+                COSBase replacement = getReplacement(entry.getValue(), replacements);
+                if (replacement != null)
+                {
+                    dictionary.setItem(entry.getKey(), replacement);
+                }
+            }
+        }
+    }
+
+    private static COSBase getReplacement(COSBase base, Map<COSStream, COSBase> replacements)
+    {
+        COSBase actual = base;
+        if (actual instanceof COSObject)
+        {
+            actual = ((COSObject) actual).getObject();
+        }
+        if (actual instanceof COSStream)
+        {
+            return replacements.get(actual);
+        }
+        return null;
+    }
+
+    // the digest of the dictionary and the raw data, null if the stream refers to itself
+    private String getKey(COSStream stream) throws IOException
+    {
+        String key = keys.get(stream);
+        if (key != null || !keysInProgress.add(stream))
+        {
+            return key;
+        }
+        try
+        {
+            ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+            Set<COSBase> visiting =
+                    Collections.newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+            if (!appendDictionary(stream, dictionary, visiting))
+            {
+                return null;
+            }
+            MessageDigest digest = createDigest();
+            digest.update(dictionary.toByteArray());
+            InputStream input = stream.createRawInputStream();
+            try
+            {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = input.read(buffer)) != -1)
+                {
+                    digest.update(buffer, 0, length);
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+            key = Hex.getString(digest.digest());
+            keys.put(stream, key);
+            return key;
+        }
+        finally
+        {
+            keysInProgress.remove(stream);
+        }
+    }
+
+    // appends a canonical form of the object, returns false if there is a cycle
+    private boolean append(COSBase base, ByteArrayOutputStream output, Set<COSBase> visiting)
+            throws IOException
+    {
+        if (base instanceof COSObject)
+        {
+            String referenceKey = referenceKeys.get(base);
+            if (referenceKey != null)
+            {
+                write(output, "S" + referenceKey);
+                return true;
+            }
+            COSBase actual = ((COSObject) base).getObject();
+            if (actual instanceof COSStream)
+            {
+                return append(actual, output, visiting);
+            }
+            // other indirect objects are compared by identity
+            write(output, "R" + getId(actual != null ? actual : base));
+            return true;
+        }
+        if (base instanceof COSStream)
+        {
+            String key = getKey((COSStream) base);
+            if (key == null)
+            {
+                return false;
+            }
+            write(output, "S" + key);
+            return true;
+        }
+        if (base instanceof COSDictionary || base instanceof COSArray)
+        {
+            if (!visiting.add(base))
+            {
+                return false;
+            }
+            boolean appended;
+            if (base instanceof COSDictionary)
+            {
+                appended = appendDictionary((COSDictionary) base, output, visiting);
+            }
+            else
+            {
+                appended = appendArray((COSArray) base, output, visiting);
+            }
+            visiting.remove(base);
+            return appended;
+        }
+        if (base instanceof COSString)
+        {
+            COSWriter.writeString((COSString) base, output);
+        }
+        else if (base instanceof COSName)
+        {
+            ((COSName) base).writePDF(output);
+        }
+        else if (base instanceof COSNumber)
+        {
+            // COSInteger and COSFloat
+            write(output, base.toString());
+        }
+        else if (base instanceof COSBoolean)
+        {
+            ((COSBoolean) base).writePDF(output);
+        }
+        else
+        {
+            COSNull.NULL.writePDF(output);
+        }
+        return true;
+    }
+
+    private boolean appendDictionary(COSDictionary dictionary, ByteArrayOutputStream output,
+            Set<COSBase> visiting) throws IOException
+    {
+        List<COSName> names = new ArrayList<COSName>(dictionary.keySet());
+        Collections.sort(names);
+        write(output, "<<");
+        for (COSName name : names)
+        {
+            if (dictionary instanceof COSStream && COSName.LENGTH.equals(name))
+            {
+                continue;
+            }
+            COSBase value = dictionary.getItem(name);
+            if (value != null)
+            {
+                name.writePDF(output);
+                write(output, " ");
+                if (!append(value, output, visiting))
+                {
+                    return false;
+                }
+                write(output, " ");
+            }
+        }
+        write(output, ">>");
+        return true;
+    }
+
+    private boolean appendArray(COSArray array, ByteArrayOutputStream output,
+            Set<COSBase> visiting) throws IOException
+    {
+        write(output, "[");
+        for (COSBase item : array)
+        {
+            if (!append(item, output, visiting))
+            {
+                return false;
+            }
+            write(output, " ");
+        }
+        write(output, "]");
+        return true;
+    }
+
+    private int getId(COSBase base)
+    {
+        Integer id = ids.get(base);
+        if (id == null)
+        {
+            id = nextId++;
+            ids.put(base, id);
+        }
+        return id;
+    }
+
+    private static void write(ByteArrayOutputStream output, String text) throws IOException
+    {
+        output.write(text.getBytes(Charsets.ISO_8859_1));
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -44,6 +44,7 @@ import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSObjectKey;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSXrefTable;
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
 import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
@@ -574,14 +575,15 @@ public class COSParser extends BaseParser
                 {
                     COSObject obj = (COSObject) baseObj;
                     long objId = getObjectId(obj);
-                    COSObjectKey objKey = new COSObjectKey(obj.getObjectNumber(), obj.getGenerationNumber());
 
                     if (!parsedObjects.contains(objId))
                     {
-                        Long fileOffset = xrefTrailerResolver.getXrefTable().get(objKey);
+                        COSXrefTable xrefTable = xrefTrailerResolver.getXrefEntries();
+                        long fileOffset = xrefTable.get(obj.getObjectNumber(),
+                                obj.getGenerationNumber(), 0);
                         // it is allowed that object references point to null,
                         // thus we have to test
-                        if (fileOffset != null && fileOffset != 0)
+                        if (fileOffset != 0)
                         {
                             if (fileOffset > 0)
                             {
@@ -592,13 +594,13 @@ public class COSParser extends BaseParser
                                 // negative offset means we have a compressed
                                 // object within object stream;
                                 // get offset of object stream
-                                fileOffset = xrefTrailerResolver.getXrefTable().get(
-                                        new COSObjectKey((int)-fileOffset, 0));
-                                if ((fileOffset == null) || (fileOffset <= 0))
+                                long objstmObjNr = (int) -fileOffset;
+                                fileOffset = xrefTable.get(objstmObjNr, 0, 0);
+                                if (fileOffset <= 0)
                                 {
                                     throw new IOException(
-                                            "Invalid object stream xref object reference for key '" + objKey + "': "
-                                                    + fileOffset);
+                                            "Invalid object stream xref object reference for key '"
+                                                    + new COSObjectKey(obj) + "': " + fileOffset);
                                 }
 
                                 List<COSObject> stmObjects = objToBeParsed.get(fileOffset);
@@ -613,7 +615,7 @@ public class COSParser extends BaseParser
                         else
                         {
                             // NULL object
-                            COSObject pdfObject = document.getObjectFromPool(objKey);
+                            COSObject pdfObject = document.getObjectFromPool(new COSObjectKey(obj));
                             pdfObject.setObject(COSNull.NULL);
                         }
                     }
@@ -859,11 +861,11 @@ public class COSParser extends BaseParser
             // register all objects which are referenced to be contained in object stream
             for (COSObject next : parser.getObjects())
             {
-                COSObjectKey stmObjKey = new COSObjectKey(next);
-                Long offset = xrefTrailerResolver.getXrefTable().get(stmObjKey); 
-                if (offset != null && offset == -objstmObjNr)
+                long offset = xrefTrailerResolver.getXrefEntries().get(next.getObjectNumber(),
+                        next.getGenerationNumber(), 0);
+                if (offset == -objstmObjNr)
                 {
-                    COSObject stmObj = document.getObjectFromPool(stmObjKey);
+                    COSObject stmObj = document.getObjectFromPool(new COSObjectKey(next));
                     stmObj.setObject(next.getObject());
                 }
             }
@@ -2031,8 +2033,7 @@ public class COSParser extends BaseParser
                     {
                         long currOffset = Long.parseLong(splitString[0]);
                         int currGenID = Integer.parseInt(splitString[1]);
-                        COSObjectKey objKey = new COSObjectKey(currObjID, currGenID);
-                        xrefTrailerResolver.setXRef(objKey, currOffset);
+                        xrefTrailerResolver.setXRef(currObjID, currGenID, currOffset);
                     }
                     catch(NumberFormatException e)
                     {
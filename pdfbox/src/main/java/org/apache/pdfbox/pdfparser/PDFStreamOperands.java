@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+
+/**
+ * The operands of an operator as collected by a {@link PDFStreamTokenizer}. Numbers and names are
+ * kept as primitives or slices of the content stream, the COS objects are only created when an
+ * element is requested. Operator processors which only need the numeric value may use
+ * {@link #isNumber(int)} and {@link #getDouble(int)} to avoid creating them at all.
+ *
+ * <p>An instance may be reused for the operands of the next operator after {@link #clear()}, which
+ * keeps the allocated arrays.</p>
+ */
+public final class PDFStreamOperands extends AbstractList<COSBase> implements RandomAccess
+{
+    private final byte[] data;
+    private int size;
+    private int[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private long[] bits;
+    private COSBase[] objects;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenizer the tokenizer providing the operands
+     */
+    public PDFStreamOperands(PDFStreamTokenizer tokenizer)
+    {
+        data = tokenizer.getBuffer();
+        allocate(8);
+    }
+
+    private void allocate(int capacity)
+    {
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        bits = new long[capacity];
+        objects = new COSBase[capacity];
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > kinds.length)
+        {
+            int newCapacity = Math.max(capacity, kinds.length * 2);
+            kinds = Arrays.copyOf(kinds, newCapacity);
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+            bits = Arrays.copyOf(bits, newCapacity);
+            objects = Arrays.copyOf(objects, newCapacity);
+        }
+    }
+
+    /**
+     * Appends the current operand of the tokenizer.
+     *
+     * @param tokenizer the tokenizer, it must be the one this instance was created with
+     */
+    public void addOperand(PDFStreamTokenizer tokenizer)
+    {
+        ensureCapacity(size + 1);
+        int kind = tokenizer.getKind();
+        kinds[size] = kind;
+        starts[size] = tokenizer.getTokenOffset();
+        ends[size] = tokenizer.getTokenEnd();
+        bits[size] = tokenizer.getBits();
+        COSBase object = null;
+        if (kind == PDFStreamTokenizer.KIND_OBJECT)
+        {
+            object = tokenizer.getParsedObject();
+            if (object instanceof COSObject)
+            {
+                object = ((COSObject) object).getObject();
+            }
+        }
+        objects[size] = object;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Returns whether the given operand is a number.
+     *
+     * @param index the index of the operand
+     * @return true if the operand is a number
+     */
+    public boolean isNumber(int index)
+    {
+        checkIndex(index);
+        int kind = kinds[index];
+        return kind == PDFStreamTokenizer.KIND_INTEGER || kind == PDFStreamTokenizer.KIND_REAL
+                || objects[index] instanceof COSNumber;
+    }
+
+    /**
+     * Returns the value of a numeric operand without creating a COS object.
+     *
+     * @param index the index of the operand
+     * @return the numeric value
+     * @throws ClassCastException if the operand is not a number
+     */
+    public double getDouble(int index)
+    {
+        checkIndex(index);
+        int kind = kinds[index];
+        if (kind == PDFStreamTokenizer.KIND_INTEGER || kind == PDFStreamTokenizer.KIND_REAL)
+        {
+            return PDFStreamTokenizer.toDouble(kind, bits[index], null);
+        }
+        return ((COSNumber) get(index)).doubleValue();
+    }
+
+    @Override
+    public COSBase get(int index)
+    {
+        checkIndex(index);
+        COSBase object = objects[index];
+        if (object == null && kinds[index] != PDFStreamTokenizer.KIND_OBJECT)
+        {
+            object = PDFStreamTokenizer.toCOSBase(kinds[index], data, starts[index], ends[index],
+                    bits[index]);
+            objects[index] = object;
+        }
+        return object;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public COSBase set(int index, COSBase element)
+    {
+        COSBase previous = get(index);
+        kinds[index] = PDFStreamTokenizer.KIND_OBJECT;
+        objects[index] = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, COSBase element)
+    {
+        if (index < 0 || index > size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        kinds[index] = PDFStreamTokenizer.KIND_OBJECT;
+        objects[index] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public COSBase remove(int index)
+    {
+        COSBase previous = get(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        objects[size] = null;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    private void shift(int from, int to, int count)
+    {
+        System.arraycopy(kinds, from, kinds, to, count);
+        System.arraycopy(starts, from, starts, to, count);
+        System.arraycopy(ends, from, ends, to, count);
+        System.arraycopy(bits, from, bits, to, count);
+        System.arraycopy(objects, from, objects, to, count);
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
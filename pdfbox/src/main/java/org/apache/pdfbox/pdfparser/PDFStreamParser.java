@@ -103,6 +103,16 @@ public class PDFStreamParser extends BaseParser
         super(new InputStreamSource(new ByteArrayInputStream(bytes)));
     }
 
+    /**
+     * Constructor.
+     *
+     * @param source the source to parse.
+     */
+    PDFStreamParser(SequentialSource source)
+    {
+        super(source);
+    }
+
     /**
      * This will parse the tokens in the stream.  This will close the
      * stream when it is finished parsing.
@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.util.Charsets;
+
+/**
+ * A pull tokenizer for content streams which works on the decoded bytes of the stream.
+ *
+ * <p>Numbers, plain names and operators, i.e. almost all tokens of a typical content stream, are
+ * scanned directly from the buffer without creating any objects. Their value is available as a
+ * primitive or as a slice of the buffer, a COS object is only created when
+ * {@link #getOperand()} is called. All other tokens (strings, arrays, dictionaries, escaped names
+ * and inline images) are parsed by a {@link PDFStreamParser} working on the same buffer.</p>
+ *
+ * <p>The tokens are the same as the ones returned by {@link PDFStreamParser#parseNextToken()}.</p>
+ */
+public final class PDFStreamTokenizer
+{
+    /**
+     * The type of a token.
+     */
+    public enum TokenType
+    {
+        /** a number, see {@link PDFStreamTokenizer#getNumber()}. */
+        NUMBER,
+        /** a name without escape sequences, the token slice is the name without the slash. */
+        NAME,
+        /** any other operand, see {@link PDFStreamTokenizer#getOperand()}. */
+        OBJECT,
+        /** an operator, see {@link PDFStreamTokenizer#getOperator()}. */
+        OPERATOR
+    }
+
+    /** exactly representable powers of ten. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+        1e16, 1e17, 1e18 };
+
+    /** the number of digits which always fit into a long. */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /** mantissas up to this value are exact as a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final int OPERATOR_CACHE_SIZE = 64;
+
+    static final int KIND_INTEGER = 0;
+    static final int KIND_REAL = 1;
+    static final int KIND_NAME = 2;
+    static final int KIND_OBJECT = 3;
+
+    private final byte[] data;
+    private final int length;
+    private int pos;
+
+    private RandomAccessBuffer objectInput;
+    private PDFStreamParser objectParser;
+
+    private final byte[][] operatorKeys = new byte[OPERATOR_CACHE_SIZE][];
+    private final Operator[] operatorValues = new Operator[OPERATOR_CACHE_SIZE];
+
+    // the current token
+    private TokenType tokenType;
+    private int kind;
+    private int tokenStart;
+    private int tokenEnd;
+    private long bits;
+    private COSBase object;
+    private Operator operator;
+
+    /**
+     * Constructor.
+     *
+     * @param contentStream the content stream to be tokenized
+     * @throws IOException if the content stream could not be read
+     */
+    public PDFStreamTokenizer(PDContentStream contentStream) throws IOException
+    {
+        this(readContents(contentStream));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bytes the decoded content stream, it must not be modified while being tokenized
+     */
+    public PDFStreamTokenizer(byte[] bytes)
+    {
+        data = bytes;
+        length = bytes.length;
+    }
+
+    private static byte[] readContents(PDContentStream contentStream) throws IOException
+    {
+        InputStream input = contentStream.getContents();
+        try
+        {
+            return IOUtils.toByteArray(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return the type of the token or null if the end of the stream has been reached
+     * @throws IOException if the stream is malformed
+     */
+    public TokenType nextToken() throws IOException
+    {
+        object = null;
+        operator = null;
+        skipSpaces();
+        // PDFStreamParser treats 0xff like EOF
+        if (pos >= length || data[pos] == (byte) 0xff)
+        {
+            pos = length;
+            tokenType = null;
+            return null;
+        }
+        int c = data[pos] & 0xff;
+        switch (c)
+        {
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+            case '-':
+            case '+':
+            case '.':
+                scanNumber(c);
+                break;
+            case '/':
+                scanName();
+                break;
+            case ']':
+                // stray closing bracket, see PDFStreamParser
+                pos++;
+                setObject(COSNull.NULL);
+                break;
+            case 'n':
+            case 't':
+            case 'f':
+            case 'R':
+            case 'B':
+                scanWord(c);
+                break;
+            case '<':
+            case '[':
+            case '(':
+            case 'I':
+                parseObject();
+                break;
+            default:
+                scanOperator();
+        }
+        return tokenType;
+    }
+
+    /**
+     * Returns the type of the current token.
+     *
+     * @return the type of the current token or null at the end of the stream
+     */
+    public TokenType getTokenType()
+    {
+        return tokenType;
+    }
+
+    /**
+     * Returns the buffer the token slices refer to.
+     *
+     * @return the decoded content stream, it must not be modified
+     */
+    public byte[] getBuffer()
+    {
+        return data;
+    }
+
+    /**
+     * Returns the start of the current token in the buffer. For names this is the first byte after
+     * the slash.
+     *
+     * @return the offset of the current token
+     */
+    public int getTokenOffset()
+    {
+        return tokenStart;
+    }
+
+    /**
+     * Returns the length of the current token in the buffer.
+     *
+     * @return the length of the current token
+     */
+    public int getTokenLength()
+    {
+        return tokenEnd - tokenStart;
+    }
+
+    /**
+     * Returns the value of the current {@link TokenType#NUMBER} token.
+     *
+     * @return the numeric value
+     */
+    public double getNumber()
+    {
+        return toDouble(kind, bits, object);
+    }
+
+    /**
+     * Returns whether the current {@link TokenType#NUMBER} token is an integer.
+     *
+     * @return true if the number is an integer
+     */
+    public boolean isInteger()
+    {
+        return kind == KIND_INTEGER || object instanceof COSInteger;
+    }
+
+    /**
+     * Returns the current operand as a COS object, creating it if necessary.
+     *
+     * @return the current operand
+     * @throws IllegalStateException if the current token is not an operand
+     */
+    public COSBase getOperand()
+    {
+        if (tokenType == null || tokenType == TokenType.OPERATOR)
+        {
+            throw new IllegalStateException("The current token is not an operand");
+        }
+        if (object == null && kind != KIND_OBJECT)
+        {
+            object = toCOSBase(kind, data, tokenStart, tokenEnd, bits);
+        }
+        return object;
+    }
+
+    /**
+     * Returns the current operator.
+     *
+     * @return the current operator or null if the current token is not an operator
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    int getKind()
+    {
+        return kind;
+    }
+
+    long getBits()
+    {
+        return bits;
+    }
+
+    int getTokenEnd()
+    {
+        return tokenEnd;
+    }
+
+    /**
+     * Returns the parsed object of a {@link #KIND_OBJECT} token.
+     */
+    COSBase getParsedObject()
+    {
+        return object;
+    }
+
+    static double toDouble(int kind, long bits, COSBase object)
+    {
+        switch (kind)
+        {
+            case KIND_INTEGER:
+                return bits;
+            case KIND_REAL:
+                return Double.longBitsToDouble(bits);
+            default:
+                return ((COSNumber) object).doubleValue();
+        }
+    }
+
+    static COSBase toCOSBase(int kind, byte[] data, int start, int end, long bits)
+    {
+        switch (kind)
+        {
+            case KIND_INTEGER:
+                return COSInteger.get(bits);
+            case KIND_REAL:
+                try
+                {
+                    // keep the original string representation
+                    return new COSFloat(new String(data, start, end - start, Charsets.ISO_8859_1));
+                }
+                catch (IOException e)
+                {
+                    // can't happen, the syntax has been checked by the tokenizer
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            case KIND_NAME:
+                return COSName.getPDFName(new String(data, start, end - start, Charsets.ISO_8859_1));
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    private void setObject(COSBase base)
+    {
+        tokenType = TokenType.OBJECT;
+        kind = KIND_OBJECT;
+        object = base;
+    }
+
+    private void skipSpaces()
+    {
+        while (pos < length)
+        {
+            int c = data[pos] & 0xff;
+            if (c == '%')
+            {
+                // skip the comment
+                pos++;
+                while (pos < length && data[pos] != '\n' && data[pos] != '\r')
+                {
+                    pos++;
+                }
+            }
+            else if (isWhitespace(c))
+            {
+                pos++;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+    private void scanNumber(int first) throws IOException
+    {
+        tokenType = TokenType.NUMBER;
+        tokenStart = pos++;
+        // ignore double negative (this is consistent with Adobe Reader)
+        if (first == '-' && pos < length && data[pos] == '-')
+        {
+            tokenStart = pos++;
+        }
+        boolean dotNotRead = first != '.';
+        boolean negative = first == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        if (first >= '0' && first <= '9')
+        {
+            mantissa = first - '0';
+            digits = 1;
+        }
+        while (pos < length)
+        {
+            int c = data[pos];
+            if (c >= '0' && c <= '9')
+            {
+                if (++digits <= MAX_LONG_DIGITS)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (!dotNotRead)
+                {
+                    fractionDigits++;
+                }
+            }
+            else if (dotNotRead && c == '.')
+            {
+                dotNotRead = false;
+            }
+            else
+            {
+                break;
+            }
+            pos++;
+        }
+        tokenEnd = pos;
+
+        boolean isReal = !dotNotRead;
+        if (tokenEnd - tokenStart == 1 && (first == '-' || first == '.'))
+        {
+            // see PDFBOX-592
+            kind = KIND_INTEGER;
+            bits = 0;
+        }
+        else if (digits == 0 || digits > MAX_LONG_DIGITS || isReal && mantissa > MAX_EXACT_MANTISSA)
+        {
+            // rare cases, let COSNumber deal with them, this throws for malformed numbers
+            kind = KIND_OBJECT;
+            object = COSNumber.get(
+                    new String(data, tokenStart, tokenEnd - tokenStart, Charsets.ISO_8859_1));
+        }
+        else if (isReal)
+        {
+            // both values are exact, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            kind = KIND_REAL;
+            bits = Double.doubleToLongBits(negative && mantissa != 0 ? -value : value);
+        }
+        else
+        {
+            kind = KIND_INTEGER;
+            bits = negative ? -mantissa : mantissa;
+        }
+    }
+
+    private void scanName() throws IOException
+    {
+        int start = pos + 1;
+        int end = start;
+        while (end < length)
+        {
+            int c = data[end] & 0xff;
+            if (isEndOfName(c))
+            {
+                break;
+            }
+            if (c == '#' || c < 0x21 || c > 0x7e)
+            {
+                // escape sequences and non ASCII names are handled by the parser
+                parseObject();
+                return;
+            }
+            end++;
+        }
+        tokenType = TokenType.NAME;
+        kind = KIND_NAME;
+        tokenStart = start;
+        tokenEnd = end;
+        pos = end;
+    }
+
+    /**
+     * Reads a token which might be a keyword, see the corresponding cases in PDFStreamParser.
+     */
+    private void scanWord(int first) throws IOException
+    {
+        int start = pos;
+        int end = start;
+        while (end < length && !isEndOfName(data[end] & 0xff))
+        {
+            end++;
+        }
+        int wordLength = end - start;
+        if (first == 'B' && wordLength == 2 && data[start + 1] == 'I')
+        {
+            // inline image
+            parseObject();
+            return;
+        }
+        pos = end;
+        if (first == 'n' && matches(start, wordLength, "null"))
+        {
+            setObject(COSNull.NULL);
+        }
+        else if (first == 't' && matches(start, wordLength, "true"))
+        {
+            setObject(COSBoolean.TRUE);
+        }
+        else if (first == 'f' && matches(start, wordLength, "false"))
+        {
+            setObject(COSBoolean.FALSE);
+        }
+        else if (first == 'R' && wordLength == 1)
+        {
+            setObject(new COSObject(null));
+        }
+        else
+        {
+            setOperator(start, end);
+        }
+    }
+
+    private boolean matches(int start, int wordLength, String keyword)
+    {
+        if (wordLength != keyword.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++)
+        {
+            if (data[start + i] != keyword.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an operator, see PDFStreamParser.readOperator().
+     */
+    private void scanOperator() throws IOException
+    {
+        int start = pos;
+        while (pos < length)
+        {
+            int c = data[pos] & 0xff;
+            if (isWhitespace(c) || c == ']' || c == '[' || c == '<' || c == '(' || c == '/'
+                    || c >= '0' && c <= '9')
+            {
+                break;
+            }
+            pos++;
+            // Type3 Glyph description has operators with a number in the name
+            if (c == 'd' && pos < length && (data[pos] == '0' || data[pos] == '1'))
+            {
+                pos++;
+            }
+        }
+        if (pos == start)
+        {
+            // we have a corrupt stream, stop reading here
+            pos = length;
+            tokenType = null;
+            return;
+        }
+        setOperator(start, pos);
+    }
+
+    private void setOperator(int start, int end)
+    {
+        tokenType = TokenType.OPERATOR;
+        tokenStart = start;
+        tokenEnd = end;
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + data[i];
+        }
+        int slot = (hash ^ (hash >>> 7)) & (OPERATOR_CACHE_SIZE - 1);
+        byte[] key = operatorKeys[slot];
+        if (key != null && key.length == end - start && regionMatches(key, start))
+        {
+            operator = operatorValues[slot];
+            return;
+        }
+        key = Arrays.copyOfRange(data, start, end);
+        operator = Operator.getOperator(new String(key, Charsets.ISO_8859_1));
+        operatorKeys[slot] = key;
+        operatorValues[slot] = operator;
+    }
+
+    private boolean regionMatches(byte[] key, int start)
+    {
+        for (int i = 0; i < key.length; i++)
+        {
+            if (key[i] != data[start + i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the token at the current position with a {@link PDFStreamParser}.
+     */
+    private void parseObject() throws IOException
+    {
+        if (objectParser == null)
+        {
+            objectInput = new RandomAccessBuffer(data);
+            objectParser = new PDFStreamParser(new RandomAccessSource(objectInput));
+        }
+        tokenStart = pos;
+        objectInput.seek(pos);
+        Object token = objectParser.parseNextToken();
+        pos = (int) objectInput.getPosition();
+        tokenEnd = pos;
+        if (token == null)
+        {
+            pos = length;
+            tokenType = null;
+        }
+        else if (token instanceof Operator)
+        {
+            tokenType = TokenType.OPERATOR;
+            operator = (Operator) token;
+        }
+        else
+        {
+            setObject((COSBase) token);
+        }
+    }
+
+    private static boolean isWhitespace(int c)
+    {
+        return c == 0 || c == 9 || c == 12 || c == 10 || c == 13 || c == 32;
+    }
+
+    private static boolean isEndOfName(int c)
+    {
+        return c == ' ' || c == 13 || c == 10 || c == 9 || c == '>' || c == '<' || c == '['
+                || c == '/' || c == ']' || c == ')' || c == '(' || c == 0 || c == '\f';
+    }
+}
@@ -18,9 +18,7 @@ package org.apache.pdfbox.pdfparser;
 
 import java.io.IOException;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -28,7 +26,6 @@ import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
-import org.apache.pdfbox.cos.COSObjectKey;
 
 /**
  * This will parse a PDF 1.5 (or better) Xref stream and
@@ -83,22 +80,18 @@ public class PDFXrefStreamParser extends BaseParser
             indexArray.add(stream.getDictionaryObject(COSName.SIZE));
         }
 
-        List<Long> objNums = new ArrayList<Long>();
-
         /*
-         * Populates objNums with all object numbers available
+         * Collects the object number ranges as pairs of first object number and object count,
+         * to avoid boxing every single object number
          */
+        long[] objRanges = new long[indexArray.size() & ~1];
         Iterator<COSBase> indexIter = indexArray.iterator();
-        while(indexIter.hasNext())
+        for (int i = 0; i < objRanges.length; i++)
         {
-            long objID = ((COSInteger)indexIter.next()).longValue();
-            int size = ((COSInteger)indexIter.next()).intValue();
-            for(int i = 0; i < size; i++)
-            {
-                objNums.add(objID + i);
-            }
+            objRanges[i] = ((COSInteger)indexIter.next()).longValue();
         }
-        Iterator<Long> objIter = objNums.iterator();
+        int rangeIndex = 0;
+        long rangeEntry = 0;
         /*
          * Calculating the size of the line in bytes
          */
@@ -106,10 +99,20 @@ public class PDFXrefStreamParser extends BaseParser
         int w1 = xrefFormat.getInt(1);
         int w2 = xrefFormat.getInt(2);
         int lineSize = w0 + w1 + w2;
+        byte[] currLine = new byte[lineSize];
 
-        while(!seqSource.isEOF() && objIter.hasNext())
+        while(!seqSource.isEOF())
         {
-            byte[] currLine = new byte[lineSize];
+            // skip to the next non empty range
+            while (rangeIndex < objRanges.length && rangeEntry >= objRanges[rangeIndex + 1])
+            {
+                rangeIndex += 2;
+                rangeEntry = 0;
+            }
+            if (rangeIndex >= objRanges.length)
+            {
+                break;
+            }
             seqSource.read(currLine);
 
             int type;            
@@ -132,7 +135,7 @@ public class PDFXrefStreamParser extends BaseParser
                 }
             }
             //Need to remember the current objID
-            Long objID = objIter.next();
+            long objID = objRanges[rangeIndex] + rangeEntry++;
             /*
              * 3 different types of entries.
              */
@@ -154,8 +157,7 @@ public class PDFXrefStreamParser extends BaseParser
                     {
                         genNum += (currLine[i + w0 + w1] & 0x00ff) << ((w2 - i - 1) * 8);
                     }
-                    COSObjectKey objKey = new COSObjectKey(objID, genNum);
-                    xrefTrailerResolver.setXRef(objKey, offset);
+                    xrefTrailerResolver.setXRef(objID, genNum, offset);
                     break;
                 case 2:
                     /*
@@ -178,8 +180,7 @@ public class PDFXrefStreamParser extends BaseParser
                     {
                         objstmObjNr += (currLine[i + w0] & 0x00ff) << ((w1 - i - 1) * 8);
                     }    
-                    objKey = new COSObjectKey( objID, 0 );
-                    xrefTrailerResolver.setXRef( objKey, -objstmObjNr );
+                    xrefTrailerResolver.setXRef( objID, 0, -objstmObjNr );
                     break;
                 default:
                     break;
@@ -32,6 +32,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSXrefTable;
 
 /**
  * This class will collect all XRef/trailer objects and creates correct
@@ -44,7 +45,7 @@ import org.apache.pdfbox.cos.COSObjectKey;
  *
  * For each new xref object/XRef stream method {@link #nextXrefObj(long, XRefType)}
  * must be called with start byte position. All following calls to
- * {@link #setXRef(COSObjectKey, long)} or {@link #setTrailer(COSDictionary)}
+ * {@link #setXRef(long, int, long)} or {@link #setTrailer(COSDictionary)}
  * will add the data for this byte position.
  *
  * After all objects are parsed the startxref position must be provided
@@ -65,7 +66,7 @@ public class XrefTrailerResolver
 
         private XRefType xrefType;
 
-        private final Map<COSObjectKey, Long> xrefTable = new HashMap<COSObjectKey, Long>();
+        private final COSXrefTable xrefTable = new COSXrefTable();
         
         /**
          *  Default constructor.
@@ -168,18 +169,30 @@ public class XrefTrailerResolver
      * @param offset The byte offset in this file
      */
     public void setXRef( COSObjectKey objKey, long offset )
+    {
+        setXRef( objKey.getNumber(), objKey.getGeneration(), offset );
+    }
+
+    /**
+     * Populate XRef HashMap of current XRef object.
+     * Will add an Xreftable entry that maps the given object to a byte offset in the file.
+     * @param objNr The object number
+     * @param genNr The generation number
+     * @param offset The byte offset in this file
+     */
+    public void setXRef( long objNr, int genNr, long offset )
     {
         if ( curXrefTrailerObj == null )
         {
             // should not happen...
-            LOG.warn( "Cannot add XRef entry for '" + objKey.getNumber() + "' because XRef start was not signalled." );
+            LOG.warn( "Cannot add XRef entry for '" + objNr + "' because XRef start was not signalled." );
             return;
         }
         // PDFBOX-3506 check before adding to the map, to avoid entries from the table being 
         // overwritten by obsolete entries in hybrid files (/XRefStm entry)
-        if (!curXrefTrailerObj.xrefTable.containsKey(objKey) )
+        if (!curXrefTrailerObj.xrefTable.containsKey(objNr, genNr) )
         {
-            curXrefTrailerObj.xrefTable.put(objKey, offset);
+            curXrefTrailerObj.xrefTable.put(objNr, genNr, offset);
         }
     }
 
@@ -311,6 +324,17 @@ public class XrefTrailerResolver
      * @return the xrefTable if available
      */
     public Map<COSObjectKey, Long> getXrefTable()
+    {
+        return getXrefEntries();
+    }
+
+    /**
+     * Gets the resolved xref table with its primitive accessors. Might return <code>null</code>
+     * in case {@link #setStartxref(long)} was not called before.
+     *
+     * @return the xrefTable if available
+     */
+    COSXrefTable getXrefEntries()
     {
         return ( resolvedXrefTrailer == null ) ? null : resolvedXrefTrailer.xrefTable;
     }
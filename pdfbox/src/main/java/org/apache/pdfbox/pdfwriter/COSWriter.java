@@ -31,6 +31,7 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -209,6 +210,16 @@ public class COSWriter implements ICOSVisitor, Closeable
     private FDFDocument fdfDocument = null;
     private boolean willEncrypt = false;
 
+    // object streams, null for the classic file structure
+    private final CompressParameters compressParameters;
+    private boolean objectStreamsEnabled = false;
+    private COSWriterObjectStream objectStream;
+    private COSObjectKey objectStreamKey;
+
+    // writing a document piece by piece, the keys of the references which survive releaseObjects()
+    private final Map<COSBase, COSObjectKey> retainedKeys = new HashMap<COSBase, COSObjectKey>();
+    private int releasedXRefEntries = 0;
+
     // signing
     private boolean incrementalUpdate = false;
     private boolean reachedSignature = false;
@@ -226,9 +237,21 @@ public class COSWriter implements ICOSVisitor, Closeable
      * @param os The wrapped output stream.
      */
     public COSWriter(OutputStream os)
+    {
+        this(os, (CompressParameters) null);
+    }
+
+    /**
+     * COSWriter constructor with compression.
+     *
+     * @param os The wrapped output stream.
+     * @param compressParameters how to compress the objects, or null for no compression
+     */
+    public COSWriter(OutputStream os, CompressParameters compressParameters)
     {
         setOutput(os);
         setStandardOutput(new COSStandardOutputStream(output));
+        this.compressParameters = compressParameters;
     }
 
     /**
@@ -248,6 +271,7 @@ public class COSWriter implements ICOSVisitor, Closeable
         incrementalInput = inputData;
         incrementalOutput = outputStream;
         incrementalUpdate = true;
+        compressParameters = null;
     }
 
     private void prepareIncrement(PDDocument doc)
@@ -441,7 +465,11 @@ public class COSWriter implements ICOSVisitor, Closeable
             addObjectToWrite( info );
         }
 
+        objectStreamsEnabled = isCompress();
         doWriteObjects();
+        // the encryption dictionary must not be in an object stream
+        doWriteObjectStream();
+        objectStreamsEnabled = false;
         willEncrypt = false;
         if( encrypt != null )
         {
@@ -510,6 +538,11 @@ public class COSWriter implements ICOSVisitor, Closeable
         writtenObjects.add( obj );
         // find the physical reference
         currentObjectKey = getObjectKey( obj );
+        if (objectStreamsEnabled && canWriteToObjectStream(obj))
+        {
+            doWriteObjectToObjectStream(obj);
+            return;
+        }
         // add a x ref entry
         addXRefEntry( new COSWriterXRefEntry(getStandardOutput().getPos(), obj, currentObjectKey));
         // write the object
@@ -525,6 +558,81 @@ public class COSWriter implements ICOSVisitor, Closeable
         getStandardOutput().writeEOL();
     }
 
+    /**
+     * Returns whether objects are written to object streams, which is never the case for
+     * incremental updates and FDF documents.
+     */
+    private boolean isCompress()
+    {
+        return compressParameters != null && compressParameters.isCompress()
+                && !incrementalUpdate && fdfDocument == null;
+    }
+
+    // streams can't be in object streams, and the byte range of signatures refers to file offsets
+    private boolean canWriteToObjectStream(COSBase obj)
+    {
+        COSBase actual = obj;
+        if (actual instanceof COSObject)
+        {
+            actual = ((COSObject) actual).getObject();
+        }
+        if (actual instanceof COSStream || currentObjectKey.getGeneration() != 0)
+        {
+            return false;
+        }
+        if (actual instanceof COSDictionary)
+        {
+            COSBase type = ((COSDictionary) actual).getItem(COSName.TYPE);
+            return !COSName.SIG.equals(type) && !COSName.DOC_TIME_STAMP.equals(type);
+        }
+        return true;
+    }
+
+    // writes the current object to the current object stream
+    private void doWriteObjectToObjectStream(COSBase obj) throws IOException
+    {
+        if (objectStream == null)
+        {
+            objectStream = new COSWriterObjectStream();
+            objectStreamKey = getObjectKey(objectStream.getStream());
+        }
+        COSWriterXRefEntry entry = new COSWriterXRefEntry(objectStream.size(), obj,
+                currentObjectKey);
+        entry.setObjectStreamKey(objectStreamKey);
+        addXRefEntry(entry);
+
+        // strings in object streams aren't encrypted, the whole object stream is
+        COSStandardOutputStream standardOutputOriginal = getStandardOutput();
+        boolean willEncryptOriginal = willEncrypt;
+        setStandardOutput(objectStream.beginObject(currentObjectKey.getNumber()));
+        willEncrypt = false;
+        try
+        {
+            obj.accept(this);
+        }
+        finally
+        {
+            setStandardOutput(standardOutputOriginal);
+            willEncrypt = willEncryptOriginal;
+        }
+
+        if (objectStream.size() >= compressParameters.getObjectStreamSize())
+        {
+            doWriteObjectStream();
+        }
+    }
+
+    // writes the current object stream, if any
+    private void doWriteObjectStream() throws IOException
+    {
+        if (objectStream != null)
+        {
+            COSStream stream = objectStream.finish();
+            objectStream = null;
+            doWriteObject(stream);
+        }
+    }
+
     /**
      * This will write the header to the PDF document.
      *
@@ -541,8 +649,19 @@ public class COSWriter implements ICOSVisitor, Closeable
         }
         else
         {
-            headerString = "%PDF-"+ Float.toString(pdDocument.getDocument().getVersion());
+            float version = pdDocument.getDocument().getVersion();
+            if (isCompress())
+            {
+                // object streams and cross-reference streams need PDF 1.5
+                version = Math.max(version, 1.5f);
+            }
+            headerString = "%PDF-"+ Float.toString(version);
         }
+        doWriteHeader(headerString);
+    }
+
+    private void doWriteHeader(String headerString) throws IOException
+    {
         getStandardOutput().write( headerString.getBytes(Charsets.ISO_8859_1) );
         
         getStandardOutput().writeEOL();
@@ -560,11 +679,20 @@ public class COSWriter implements ICOSVisitor, Closeable
      * @throws IOException If there is an IOError while writing the document.
      */
     protected void doWriteTrailer(COSDocument doc) throws IOException
+    {
+        COSDictionary trailer = doc.getTrailer();
+        if (!doc.isXRefStream())
+        {
+            trailer.removeItem( COSName.XREF_STM );
+        }
+        doWriteTrailer(trailer);
+    }
+
+    private void doWriteTrailer(COSDictionary trailer) throws IOException
     {
         getStandardOutput().write(TRAILER);
         getStandardOutput().writeEOL();
 
-        COSDictionary trailer = doc.getTrailer();
         //sort xref, needed only if object keys not regenerated
         Collections.sort(getXRefEntries());
         COSWriterXRefEntry lastEntry = getXRefEntries().get( getXRefEntries().size()-1);
@@ -574,10 +702,6 @@ public class COSWriter implements ICOSVisitor, Closeable
         {
           trailer.removeItem( COSName.PREV );
         }
-        if (!doc.isXRefStream())
-        {
-            trailer.removeItem( COSName.XREF_STM );
-        }
         // Remove a checksum if present
         trailer.removeItem( COSName.DOC_CHECKSUM );
         
@@ -589,37 +713,8 @@ public class COSWriter implements ICOSVisitor, Closeable
         if (doc.isXRefStream() || hybridPrev != -1)
         {
             // the file uses XrefStreams, so we need to update
-            // it with an xref stream. We create a new one and fill it
-            // with data available here
-
-            // create a new XRefStrema object
-            PDFXRefStream pdfxRefStream = new PDFXRefStream();
-
-            // add all entries from the incremental update.
-            List<COSWriterXRefEntry> xRefEntries2 = getXRefEntries();
-            for ( COSWriterXRefEntry cosWriterXRefEntry : xRefEntries2 )
-            {
-                pdfxRefStream.addEntry(cosWriterXRefEntry);
-            }
-
-            COSDictionary trailer = doc.getTrailer();
-            if (incrementalUpdate)
-            {
-                // use previous startXref value as new PREV value
-                trailer.setLong(COSName.PREV, doc.getStartXref());
-            }
-            else
-            {
-                trailer.removeItem(COSName.PREV);
-            }
-            pdfxRefStream.addTrailerInfo(trailer);
-            // the size is the highest object number+1. we add one more
-            // for the xref stream object we are going to write
-            pdfxRefStream.setSize(getNumber() + 2);
-
-            setStartxref(getStandardOutput().getPos());
-            COSStream stream2 = pdfxRefStream.getStream();
-            doWriteObject(stream2);
+            // it with an xref stream.
+            doWriteXRefStream(doc);
         }
 
         if (!doc.isXRefStream() || hybridPrev != -1)
@@ -637,6 +732,44 @@ public class COSWriter implements ICOSVisitor, Closeable
         }
     }
 
+    // writes an xref stream, which also contains the trailer
+    private void doWriteXRefStream(COSDocument doc) throws IOException
+    {
+        COSDictionary trailer = doc.getTrailer();
+        if (incrementalUpdate)
+        {
+            // use previous startXref value as new PREV value
+            trailer.setLong(COSName.PREV, doc.getStartXref());
+        }
+        else
+        {
+            trailer.removeItem(COSName.PREV);
+        }
+        doWriteXRefStream(trailer);
+    }
+
+    private void doWriteXRefStream(COSDictionary trailer) throws IOException
+    {
+        // create a new XRefStream object and fill it with the data available here
+        PDFXRefStream pdfxRefStream = new PDFXRefStream();
+
+        // add all entries written so far
+        List<COSWriterXRefEntry> xRefEntries2 = getXRefEntries();
+        for ( COSWriterXRefEntry cosWriterXRefEntry : xRefEntries2 )
+        {
+            pdfxRefStream.addEntry(cosWriterXRefEntry);
+        }
+
+        pdfxRefStream.addTrailerInfo(trailer);
+        // the size is the highest object number+1. we add one more
+        // for the xref stream object we are going to write
+        pdfxRefStream.setSize(getNumber() + 2);
+
+        setStartxref(getStandardOutput().getPos());
+        COSStream stream2 = pdfxRefStream.getStream();
+        doWriteObject(stream2);
+    }
+
     // writes the "xref" table
     private void doWriteXRefTable() throws IOException
     {
@@ -1109,7 +1242,12 @@ public class COSWriter implements ICOSVisitor, Closeable
             hybridPrev = trailer.getLong(COSName.XREF_STM);
         }
 
-        if(incrementalUpdate || doc.isXRefStream())
+        if (isCompress())
+        {
+            // the classic xref table can't refer to objects in object streams
+            doWriteXRefStream(doc);
+        }
+        else if(incrementalUpdate || doc.isXRefStream())
         {
             doWriteXRefInc(doc, hybridPrev);
         }
@@ -1119,13 +1257,7 @@ public class COSWriter implements ICOSVisitor, Closeable
             doWriteTrailer(doc);
         }
 
-        // write endof
-        getStandardOutput().write(STARTXREF);
-        getStandardOutput().writeEOL();
-        getStandardOutput().write(String.valueOf(getStartxref()).getBytes(Charsets.ISO_8859_1));
-        getStandardOutput().writeEOL();
-        getStandardOutput().write(EOF);
-        getStandardOutput().writeEOL();
+        doWriteEndOfFile();
 
         if(incrementalUpdate)
         {
@@ -1140,6 +1272,17 @@ public class COSWriter implements ICOSVisitor, Closeable
         return null;
     }
 
+    // writes startxref and the end of file marker
+    private void doWriteEndOfFile() throws IOException
+    {
+        getStandardOutput().write(STARTXREF);
+        getStandardOutput().writeEOL();
+        getStandardOutput().write(String.valueOf(getStartxref()).getBytes(Charsets.ISO_8859_1));
+        getStandardOutput().writeEOL();
+        getStandardOutput().write(EOF);
+        getStandardOutput().writeEOL();
+    }
+
     @Override
     public Object visitFromFloat(COSFloat obj) throws IOException
     {
@@ -1384,6 +1527,169 @@ public class COSWriter implements ICOSVisitor, Closeable
         COSDocument cosDoc = fdfDocument.getDocument();
         cosDoc.accept(this);
     }
+
+    /**
+     * Starts writing a document piece by piece, instead of writing a whole document with
+     * {@link #write(PDDocument)}. The objects are written with {@link #writeIndirectObject(COSBase)}
+     * and can be released with {@link #releaseObjects()}, so that documents can be written which
+     * don't fit into memory. {@link #finishDocument(COSDictionary)} writes the cross-reference
+     * table and the trailer. Documents written this way are not encrypted.
+     *
+     * @param version the version for the PDF header
+     *
+     * @throws IOException If an error occurs while writing the header.
+     * @throws IllegalStateException If this writer is used for an incremental update.
+     */
+    public void startDocument(float version) throws IOException
+    {
+        if (incrementalUpdate)
+        {
+            throw new IllegalStateException("Incremental updates can't be written piece by piece");
+        }
+        willEncrypt = false;
+        float headerVersion = version;
+        if (isCompress())
+        {
+            // object streams and cross-reference streams need PDF 1.5
+            headerVersion = Math.max(headerVersion, 1.5f);
+        }
+        doWriteHeader("%PDF-" + Float.toString(headerVersion));
+    }
+
+    /**
+     * Reserves an object number for an object which will be written later, e.g. for the page tree
+     * node which is the parent of pages written before the page tree is complete.
+     *
+     * @param object the object which will be written later with
+     * {@link #writeIndirectObject(COSBase)}
+     * @return a reference to the object, to be used by other objects instead of the object itself
+     *
+     * @throws IOException If the reference could not be created.
+     */
+    public COSObject reserveObject(COSBase object) throws IOException
+    {
+        COSObjectKey key = getObjectKey(object);
+        retainedKeys.put(object, key);
+        return createReference(key);
+    }
+
+    /**
+     * Writes an object as indirect object, together with all objects it refers to which haven't
+     * been written yet, see {@link #startDocument(float)}.
+     *
+     * @param object the object to write
+     * @return a reference to the written object, which stays valid after {@link #releaseObjects()}
+     *
+     * @throws IOException If an error occurs while writing the objects.
+     */
+    public COSObject writeIndirectObject(COSBase object) throws IOException
+    {
+        objectStreamsEnabled = isCompress();
+        try
+        {
+            addObjectToWrite(object);
+            doWriteObjects();
+        }
+        finally
+        {
+            objectStreamsEnabled = false;
+        }
+        COSObjectKey key = getObjectKey(object);
+        retainedKeys.remove(object);
+        return createReference(key);
+    }
+
+    /**
+     * Forgets all objects which have been written so far, so that they can be garbage collected.
+     * Only the references returned by {@link #reserveObject(COSBase)} and
+     * {@link #writeIndirectObject(COSBase)} can still be used. Released objects which are referred
+     * to again are written again, as new objects.
+     *
+     * @throws IOException If an error occurs while writing pending objects.
+     */
+    public void releaseObjects() throws IOException
+    {
+        // the pending object stream only contains the serialized objects
+        doWriteObjectStream();
+        writtenObjects.clear();
+        actualsAdded.clear();
+        objectKeys.clear();
+        for (Map.Entry<COSBase, COSObjectKey> entry : retainedKeys.entrySet())
+        {
+            objectKeys.put(entry.getKey(), entry.getValue());
+            if (isReference(entry.getKey()))
+            {
+                writtenObjects.add(entry.getKey());
+            }
+        }
+        for (int i = releasedXRefEntries; i < xRefEntries.size(); i++)
+        {
+            xRefEntries.get(i).setObject(null);
+        }
+        releasedXRefEntries = xRefEntries.size();
+    }
+
+    /**
+     * Finishes a document started with {@link #startDocument(float)}. The root and the info
+     * dictionaries of the trailer are written if this hasn't been done yet, followed by the
+     * cross-reference table and the trailer.
+     *
+     * @param trailer the trailer of the document
+     *
+     * @throws IOException If an error occurs while writing the data.
+     */
+    public void finishDocument(COSDictionary trailer) throws IOException
+    {
+        objectStreamsEnabled = isCompress();
+        try
+        {
+            COSBase root = trailer.getItem(COSName.ROOT);
+            if (root != null)
+            {
+                addObjectToWrite(root);
+            }
+            COSBase info = trailer.getItem(COSName.INFO);
+            if (info != null)
+            {
+                addObjectToWrite(info);
+            }
+            doWriteObjects();
+            doWriteObjectStream();
+        }
+        finally
+        {
+            objectStreamsEnabled = false;
+        }
+
+        if (isCompress())
+        {
+            doWriteXRefStream(trailer);
+        }
+        else
+        {
+            doWriteXRefTable();
+            doWriteTrailer(trailer);
+        }
+        doWriteEndOfFile();
+    }
+
+    // a reference to an object which has already been written, or will be written later
+    private COSObject createReference(COSObjectKey key) throws IOException
+    {
+        COSObject reference = new COSObject(null);
+        reference.setObjectNumber(key.getNumber());
+        reference.setGenerationNumber(key.getGeneration());
+        objectKeys.put(reference, key);
+        writtenObjects.add(reference);
+        retainedKeys.put(reference, key);
+        return reference;
+    }
+
+    private static boolean isReference(COSBase base)
+    {
+        return base instanceof COSObject && ((COSObject) base).getObject() == null;
+    }
+
     /**
      * This will output the given byte getString as a PDF object.
      *
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfwriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.util.Charsets;
+
+/**
+ * Collects the objects of an object stream while COSWriter writes them.
+ *
+ * @see CompressParameters
+ */
+final class COSWriterObjectStream
+{
+    private final COSStream stream = new COSStream();
+    private final List<Long> objectNumbers = new ArrayList<Long>();
+    private final List<Long> offsets = new ArrayList<Long>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final COSStandardOutputStream output = new COSStandardOutputStream(data);
+
+    /**
+     * Returns the object stream, which gets its content in {@link #finish()}.
+     */
+    COSStream getStream()
+    {
+        return stream;
+    }
+
+    /**
+     * Returns the number of objects in this object stream.
+     */
+    int size()
+    {
+        return objectNumbers.size();
+    }
+
+    /**
+     * Starts the next object.
+     *
+     * @param objectNumber the number of the object
+     * @return the output where the object has to be written to
+     * @throws IOException if the output could not be written
+     */
+    COSStandardOutputStream beginObject(long objectNumber) throws IOException
+    {
+        // separate the objects, as e.g. two numbers would be merged otherwise
+        output.writeEOL();
+        objectNumbers.add(objectNumber);
+        offsets.add(output.getPos());
+        return output;
+    }
+
+    /**
+     * Writes the collected objects to the object stream.
+     *
+     * @return the object stream
+     * @throws IOException if the stream could not be written
+     */
+    COSStream finish() throws IOException
+    {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < objectNumbers.size(); i++)
+        {
+            header.append(objectNumbers.get(i)).append(' ').append(offsets.get(i)).append(' ');
+        }
+        header.append('\n');
+        byte[] headerBytes = header.toString().getBytes(Charsets.US_ASCII);
+
+        stream.setItem(COSName.TYPE, COSName.OBJ_STM);
+        stream.setInt(COSName.N, objectNumbers.size());
+        stream.setInt(COSName.FIRST, headerBytes.length);
+        OutputStream streamOutput = stream.createOutputStream(COSName.FLATE_DECODE);
+        try
+        {
+            streamOutput.write(headerBytes);
+            data.writeTo(streamOutput);
+        }
+        finally
+        {
+            streamOutput.close();
+        }
+        return stream;
+    }
+}
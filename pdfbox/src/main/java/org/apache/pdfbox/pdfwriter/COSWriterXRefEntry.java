@@ -32,6 +32,7 @@ public class COSWriterXRefEntry implements Comparable<COSWriterXRefEntry>
     private COSBase object;
     private COSObjectKey key;
     private boolean free = false;
+    private COSObjectKey objectStreamKey;
     private static final COSWriterXRefEntry NULLENTRY;
     
     static 
@@ -111,6 +112,27 @@ public class COSWriterXRefEntry implements Comparable<COSWriterXRefEntry>
         free = newFree;
     }
 
+    /**
+     * Returns the key of the object stream which contains the object, the offset is then the
+     * index of the object within the object stream.
+     *
+     * @return the key of the object stream, or null if the object isn't in an object stream
+     */
+    public COSObjectKey getObjectStreamKey()
+    {
+        return objectStreamKey;
+    }
+
+    /**
+     * Sets the key of the object stream which contains the object.
+     *
+     * @param objectStreamKey the key of the object stream, or null
+     */
+    public void setObjectStreamKey(COSObjectKey objectStreamKey)
+    {
+        this.objectStreamKey = objectStreamKey;
+    }
+
     /**
      * This will set the object key.
      *
@@ -161,7 +183,7 @@ public class COSWriterXRefEntry implements Comparable<COSWriterXRefEntry>
      *
      * @param newObject The object that is being set.
      */
-    private void setObject(COSBase newObject)
+    void setObject(COSBase newObject)
     {
         object = newObject;
     }
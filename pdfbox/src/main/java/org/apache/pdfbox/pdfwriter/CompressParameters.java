@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfwriter;
+
+/**
+ * Controls whether COSWriter packs objects into compressed object streams, which also requires a
+ * cross-reference stream instead of a cross-reference table, see PDF 32000-1:2008, 7.5.7 and
+ * 7.5.8. Streams, the encryption dictionary and signature dictionaries are always written as
+ * top-level objects. Incremental updates are never compressed.
+ */
+public final class CompressParameters
+{
+    /** the default number of objects per object stream. */
+    public static final int DEFAULT_OBJECT_STREAM_SIZE = 100;
+
+    /** compress with object streams of the default size. */
+    public static final CompressParameters DEFAULT_COMPRESSION = new CompressParameters();
+
+    /** write all objects at the top level with a cross-reference table, like PDFBox always did. */
+    public static final CompressParameters NO_COMPRESSION = new CompressParameters(0);
+
+    private final int objectStreamSize;
+
+    /**
+     * Creates parameters for object streams of the default size.
+     */
+    public CompressParameters()
+    {
+        this(DEFAULT_OBJECT_STREAM_SIZE);
+    }
+
+    /**
+     * Creates parameters for object streams of the given size.
+     *
+     * @param objectStreamSize the maximum number of objects per object stream, 0 disables the
+     * compression
+     */
+    public CompressParameters(int objectStreamSize)
+    {
+        if (objectStreamSize < 0)
+        {
+            throw new IllegalArgumentException("negative object stream size: " + objectStreamSize);
+        }
+        this.objectStreamSize = objectStreamSize;
+    }
+
+    /**
+     * Returns the maximum number of objects per object stream.
+     *
+     * @return the object stream size
+     */
+    public int getObjectStreamSize()
+    {
+        return objectStreamSize;
+    }
+
+    /**
+     * Returns whether object streams are used.
+     *
+     * @return true if objects are compressed
+     */
+    public boolean isCompress()
+    {
+        return objectStreamSize > 0;
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.pdmodel;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+/**
+ * A resource cache with a fixed budget. Every resource gets an estimated weight in bytes, the
+ * least recently used resources are evicted when the total weight exceeds the budget. Unlike
+ * {@link DefaultResourceCache} this doesn't depend on the garbage collector clearing soft
+ * references, so the cache doesn't suddenly lose all its content under memory pressure.
+ *
+ * <p>The cache is split into segments with their own lock, so it can be used by several threads
+ * and be shared by several documents. The budget applies to all segments together, a resource
+ * may use all of it. Entries are keyed by the indirect object, i.e. resources of different
+ * documents are never mixed up.</p>
+ */
+public class BoundedResourceCache implements ResourceCache
+{
+    /** weight of resources which have no better estimate. */
+    private static final long DEFAULT_WEIGHT = 1024;
+
+    private final Segment[] segments;
+    private final long maxWeight;
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    // the access order across all segments
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a cache with 16 segments.
+     *
+     * @param maxWeight the budget of the cache in (estimated) bytes
+     */
+    public BoundedResourceCache(long maxWeight)
+    {
+        this(maxWeight, 16);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxWeight the budget of the cache in (estimated) bytes
+     * @param segmentCount the number of independently locked segments
+     */
+    public BoundedResourceCache(long maxWeight, int segmentCount)
+    {
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("maxWeight must not be negative");
+        }
+        if (segmentCount < 1)
+        {
+            throw new IllegalArgumentException("segmentCount must be positive");
+        }
+        this.maxWeight = maxWeight;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+        {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found a resource.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which didn't find a resource.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of resources which were evicted to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the estimated weight of all cached resources.
+     *
+     * @return the total weight in bytes
+     */
+    public long getWeight()
+    {
+        return totalWeight.get();
+    }
+
+    /**
+     * Returns the number of cached resources.
+     *
+     * @return the number of cached resources
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all resources from the cache.
+     */
+    public void clear()
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.entries.clear();
+                totalWeight.addAndGet(-segment.weight);
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory used by a resource. Images are weighed by their decoded size, all other
+     * resources get a small constant weight. Subclasses may override this to use a better estimate.
+     *
+     * @param resource the resource
+     * @return the estimated weight in bytes
+     */
+    protected long weigh(Object resource)
+    {
+        if (resource instanceof PDImageXObject)
+        {
+            PDImageXObject image = (PDImageXObject) resource;
+            return Math.max(DEFAULT_WEIGHT, 4L * image.getWidth() * image.getHeight());
+        }
+        return DEFAULT_WEIGHT;
+    }
+
+    private Segment segmentFor(COSObject indirect)
+    {
+        int h = System.identityHashCode(indirect);
+        h ^= h >>> 16;
+        return segments[(h & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private <T> T get(COSObject indirect, Class<T> type)
+    {
+        Segment segment = segmentFor(indirect);
+        Entry entry;
+        synchronized (segment)
+        {
+            entry = segment.entries.get(indirect);
+            if (entry != null)
+            {
+                entry.lastAccess = clock.incrementAndGet();
+            }
+        }
+        if (entry != null && type.isInstance(entry.resource))
+        {
+            hitCount.incrementAndGet();
+            return type.cast(entry.resource);
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    private void put(COSObject indirect, Object resource)
+    {
+        if (resource == null)
+        {
+            return;
+        }
+        long weight = weigh(resource);
+        Segment segment = segmentFor(indirect);
+        Entry entry = new Entry(resource, weight);
+        synchronized (segment)
+        {
+            Entry old;
+            if (weight > maxWeight)
+            {
+                // don't flush the whole cache for a resource which can't be kept anyway
+                old = segment.entries.remove(indirect);
+            }
+            else
+            {
+                entry.lastAccess = clock.incrementAndGet();
+                old = segment.entries.put(indirect, entry);
+                segment.weight += weight;
+                totalWeight.addAndGet(weight);
+            }
+            if (old != null)
+            {
+                segment.weight -= old.weight;
+                totalWeight.addAndGet(-old.weight);
+            }
+        }
+        while (totalWeight.get() > maxWeight)
+        {
+            if (!evictEldest(entry))
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used resource of all segments, except the given one.
+     *
+     * @return false if there was nothing to evict
+     */
+    private boolean evictEldest(Entry added)
+    {
+        Segment eldestSegment = null;
+        long eldestAccess = Long.MAX_VALUE;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                Entry eldest = segment.eldest();
+                if (eldest != null && eldest != added && eldest.lastAccess < eldestAccess)
+                {
+                    eldestSegment = segment;
+                    eldestAccess = eldest.lastAccess;
+                }
+            }
+        }
+        if (eldestSegment == null)
+        {
+            return false;
+        }
+        synchronized (eldestSegment)
+        {
+            // other threads may have changed the segment in the meantime, then the next call
+            // looks again
+            Entry eldest = eldestSegment.eldest();
+            if (eldest != null && eldest != added && totalWeight.get() > maxWeight)
+            {
+                Iterator<Entry> iterator = eldestSegment.entries.values().iterator();
+                iterator.next();
+                iterator.remove();
+                eldestSegment.weight -= eldest.weight;
+                totalWeight.addAndGet(-eldest.weight);
+                evictionCount.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect)
+    {
+        return get(indirect, PDFont.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font)
+    {
+        put(indirect, (Object) font);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect)
+    {
+        return get(indirect, PDColorSpace.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace)
+    {
+        put(indirect, (Object) colorSpace);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect)
+    {
+        return get(indirect, PDExtendedGraphicsState.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState)
+    {
+        put(indirect, (Object) extGState);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect)
+    {
+        return get(indirect, PDShading.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading)
+    {
+        put(indirect, (Object) shading);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect)
+    {
+        return get(indirect, PDAbstractPattern.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern)
+    {
+        put(indirect, (Object) pattern);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect)
+    {
+        return get(indirect, PDPropertyList.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList)
+    {
+        put(indirect, (Object) propertyList);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect)
+    {
+        return get(indirect, PDXObject.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject)
+    {
+        put(indirect, (Object) xobject);
+    }
+
+    /**
+     * A cached resource, its weight and the time it was last used.
+     */
+    private static final class Entry
+    {
+        private final Object resource;
+        private final long weight;
+        private long lastAccess;
+
+        private Entry(Object resource, long weight)
+        {
+            this.resource = resource;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A part of the cache, guarded by its own monitor. The map is in access order, so iterating
+     * it starts with the least recently used entry.
+     */
+    private static final class Segment
+    {
+        private final Map<COSObject, Entry> entries =
+                new LinkedHashMap<COSObject, Entry>(16, 0.75f, true);
+        private long weight;
+
+        private Entry eldest()
+        {
+            return entries.isEmpty() ? null : entries.values().iterator().next();
+        }
+    }
+}
@@ -36,14 +36,17 @@ import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.filter.FlateCodecPool;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.io.RandomAccessBuffer;
 import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessMemoryMappedFile;
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.io.ScratchFile;
 import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdfwriter.CompressParameters;
 import org.apache.pdfbox.pdmodel.common.COSArrayList;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.common.PDStream;
@@ -947,7 +950,8 @@ public class PDDocument implements Closeable
      * @param password password to be used for decryption
      * @param keyStore key store to be used for decryption when using public key security 
      * @param alias alias to be used for decryption when using public key security
-     * @param memUsageSetting defines how memory is used for buffering PDF streams 
+     * @param memUsageSetting defines how memory is used for buffering PDF streams and whether
+     *                        the file is mapped into memory
      * 
      * @return loaded document
      * 
@@ -956,7 +960,8 @@ public class PDDocument implements Closeable
     public static PDDocument load(File file, String password, InputStream keyStore, String alias,
                                   MemoryUsageSetting memUsageSetting) throws IOException
     {
-        RandomAccessBufferedFileInputStream raFile = new RandomAccessBufferedFileInputStream(file);
+        RandomAccessRead raFile = memUsageSetting.useMemoryMappedFile() ?
+                new RandomAccessMemoryMappedFile(file) : new RandomAccessBufferedFileInputStream(file);
         try
         {
             ScratchFile scratchFile = new ScratchFile(memUsageSetting);
@@ -1192,6 +1197,19 @@ public class PDDocument implements Closeable
         save(new File(fileName));
     }
 
+    /**
+     * Save the document to a file, with the given compression.
+     * 
+     * @param fileName The file to save as.
+     * @param compressParameters whether to use object streams, see {@link CompressParameters}
+     *
+     * @throws IOException if the output could not be written
+     */
+    public void save(String fileName, CompressParameters compressParameters) throws IOException
+    {
+        save(new File(fileName), compressParameters);
+    }
+
     /**
      * Save the document to a file.
      * 
@@ -1204,6 +1222,19 @@ public class PDDocument implements Closeable
         save(new BufferedOutputStream(new FileOutputStream(file)));
     }
 
+    /**
+     * Save the document to a file, with the given compression.
+     * 
+     * @param file The file to save as.
+     * @param compressParameters whether to use object streams, see {@link CompressParameters}
+     *
+     * @throws IOException if the output could not be written
+     */
+    public void save(File file, CompressParameters compressParameters) throws IOException
+    {
+        save(new BufferedOutputStream(new FileOutputStream(file)), compressParameters);
+    }
+
     /**
      * This will save the document to an output stream.
      * 
@@ -1212,6 +1243,22 @@ public class PDDocument implements Closeable
      * @throws IOException if the output could not be written
      */
     public void save(OutputStream output) throws IOException
+    {
+        save(output, CompressParameters.NO_COMPRESSION);
+    }
+
+    /**
+     * This will save the document to an output stream, with the given compression. Packing the
+     * objects into object streams makes most files considerably smaller, but the output needs a
+     * PDF 1.5 reader.
+     * 
+     * @param output The stream to write to.
+     * @param compressParameters whether to use object streams, see {@link CompressParameters}
+     *
+     * @throws IOException if the output could not be written
+     */
+    public void save(OutputStream output, CompressParameters compressParameters)
+            throws IOException
     {
         if (document.isClosed())
         {
@@ -1226,7 +1273,7 @@ public class PDDocument implements Closeable
         fontsToSubset.clear();
         
         // save PDF
-        COSWriter writer = new COSWriter(output);
+        COSWriter writer = new COSWriter(output, compressParameters);
         try
         {
             writer.write(this);
@@ -1367,6 +1414,9 @@ public class PDDocument implements Closeable
             {
                 pdfSource.close();
             }
+
+            // release the Inflaters and Deflaters pooled by this thread
+            FlateCodecPool.clear();
         }
     }
 
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.pdmodel;
+
+import java.io.IOException;
+
+/**
+ * Processes the pages of a document one after another while keeping the heap bounded. The
+ * resources created for a page, e.g. fonts and images, are released as soon as the page has been
+ * handled, only resources used by several pages stay cached, see {@link StreamingResourceCache}.
+ *
+ * <p>The resource cache of the document is replaced during the processing and restored
+ * afterwards. The handler must not keep references to the page or its resources once
+ * {@link PageHandler#processPage(PDPage, int)} returns, otherwise they can't be released.</p>
+ */
+public class StreamingPageProcessor
+{
+    /**
+     * Callback invoked for every page.
+     */
+    public interface PageHandler
+    {
+        /**
+         * Processes a single page.
+         *
+         * @param page the page
+         * @param pageIndex the zero based index of the page
+         * @throws IOException if the page could not be processed
+         */
+        void processPage(PDPage page, int pageIndex) throws IOException;
+    }
+
+    private int maxSharedResources = 64;
+
+    /**
+     * Returns the maximum number of resources shared by several pages which are kept cached.
+     *
+     * @return the maximum number of shared resources
+     */
+    public int getMaxSharedResources()
+    {
+        return maxSharedResources;
+    }
+
+    /**
+     * Sets the maximum number of resources shared by several pages which are kept cached. The
+     * default is 64.
+     *
+     * @param maxSharedResources the maximum number of shared resources
+     */
+    public void setMaxSharedResources(int maxSharedResources)
+    {
+        if (maxSharedResources < 0)
+        {
+            throw new IllegalArgumentException("maxSharedResources must not be negative");
+        }
+        this.maxSharedResources = maxSharedResources;
+    }
+
+    /**
+     * Calls the handler for every page of the document in page order.
+     *
+     * @param document the document
+     * @param handler the handler for the pages
+     * @throws IOException if the handler failed
+     */
+    public void process(PDDocument document, PageHandler handler) throws IOException
+    {
+        StreamingResourceCache streamingCache = new StreamingResourceCache(maxSharedResources);
+        ResourceCache oldCache = document.getResourceCache();
+        document.setResourceCache(streamingCache);
+        try
+        {
+            int pageIndex = 0;
+            // the iterator takes the resource cache from the document when creating the page
+            for (PDPage page : document.getPages())
+            {
+                try
+                {
+                    handler.processPage(page, pageIndex++);
+                }
+                finally
+                {
+                    streamingCache.endPage();
+                }
+            }
+        }
+        finally
+        {
+            document.setResourceCache(oldCache);
+        }
+    }
+}
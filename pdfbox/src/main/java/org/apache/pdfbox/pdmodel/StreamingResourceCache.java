@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.pdmodel;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+/**
+ * A resource cache for processing the pages of a document one after another, see
+ * {@link StreamingPageProcessor}. Resources are only kept until the current page is finished,
+ * unless they are referenced by more than one page. Those shared resources stay pinned, the least
+ * recently used ones are dropped if there are more than the given maximum.
+ *
+ * <p>To detect shared resources, the cache remembers the objects of the resources it has seen
+ * recently. This is bounded as well, a resource which is used again after many other resources
+ * is treated like a new one.</p>
+ */
+public class StreamingResourceCache implements ResourceCache
+{
+    /** the default maximum number of resources remembered to detect shared resources. */
+    public static final int DEFAULT_MAX_KNOWN_RESOURCES = 10000;
+
+    /** resources of the current page. */
+    private final Map<COSObject, Object> pageResources = new HashMap<COSObject, Object>();
+
+    /** resources used by more than one page, in access order. */
+    private final Map<COSObject, Object> sharedResources;
+
+    /** the resources cached recently, in access order, to detect resources shared by pages. */
+    private final Map<COSObject, Boolean> knownResources;
+
+    /**
+     * Constructor. Up to {@value #DEFAULT_MAX_KNOWN_RESOURCES} resources are remembered to detect
+     * shared resources.
+     *
+     * @param maxSharedResources the maximum number of resources shared by several pages to be kept
+     */
+    public StreamingResourceCache(int maxSharedResources)
+    {
+        this(maxSharedResources, DEFAULT_MAX_KNOWN_RESOURCES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSharedResources the maximum number of resources shared by several pages to be kept
+     * @param maxKnownResources the maximum number of resources remembered to detect shared ones
+     */
+    public StreamingResourceCache(final int maxSharedResources, final int maxKnownResources)
+    {
+        knownResources = new LinkedHashMap<COSObject, Boolean>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<COSObject, Boolean> eldest)
+            {
+                return size() > maxKnownResources;
+            }
+        };
+        sharedResources = new LinkedHashMap<COSObject, Object>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<COSObject, Object> eldest)
+            {
+                return size() > maxSharedResources;
+            }
+        };
+    }
+
+    /**
+     * Releases all resources which were only used by the current page.
+     */
+    public void endPage()
+    {
+        pageResources.clear();
+    }
+
+    /**
+     * Returns the number of resources currently kept because they are shared by several pages.
+     *
+     * @return the number of shared resources
+     */
+    public int getSharedResourceCount()
+    {
+        return sharedResources.size();
+    }
+
+    private <T> T get(COSObject indirect, Class<T> type)
+    {
+        Object resource = pageResources.get(indirect);
+        if (resource == null)
+        {
+            resource = sharedResources.get(indirect);
+        }
+        return type.isInstance(resource) ? type.cast(resource) : null;
+    }
+
+    private void put(COSObject indirect, Object resource)
+    {
+        if (knownResources.put(indirect, Boolean.TRUE) == null)
+        {
+            pageResources.put(indirect, resource);
+        }
+        else
+        {
+            // the resource was already used by a former page
+            pageResources.remove(indirect);
+            sharedResources.put(indirect, resource);
+        }
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect)
+    {
+        return get(indirect, PDFont.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font)
+    {
+        put(indirect, (Object) font);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect)
+    {
+        return get(indirect, PDColorSpace.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace)
+    {
+        put(indirect, (Object) colorSpace);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect)
+    {
+        return get(indirect, PDExtendedGraphicsState.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState)
+    {
+        put(indirect, (Object) extGState);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect)
+    {
+        return get(indirect, PDShading.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading)
+    {
+        put(indirect, (Object) shading);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect)
+    {
+        return get(indirect, PDAbstractPattern.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern)
+    {
+        put(indirect, (Object) pattern);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect)
+    {
+        return get(indirect, PDPropertyList.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList)
+    {
+        put(indirect, (Object) propertyList);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect)
+    {
+        return get(indirect, PDXObject.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject)
+    {
+        put(indirect, (Object) xobject);
+    }
+}
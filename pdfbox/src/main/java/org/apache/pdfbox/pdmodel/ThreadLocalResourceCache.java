@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.pdmodel;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+/**
+ * A resource cache which keeps a separate {@link DefaultResourceCache} for each thread. Page
+ * resources such as fonts keep mutable state, so they must not be shared between threads which
+ * process pages of the same document concurrently.
+ *
+ * <p>Optionally, image XObjects are shared by all threads, so that an image used on several pages
+ * is only decoded once. {@link PDImageXObject} decodes and caches its image while holding its
+ * lock, the other resources are never shared.</p>
+ */
+public class ThreadLocalResourceCache implements ResourceCache
+{
+    /** the images shared by all threads, or null if images aren't shared. */
+    private final Map<COSObject, SoftReference<PDImageXObject>> sharedImages;
+
+    private final ThreadLocal<ResourceCache> caches = new ThreadLocal<ResourceCache>()
+    {
+        @Override
+        protected ResourceCache initialValue()
+        {
+            return new DefaultResourceCache();
+        }
+    };
+
+    /**
+     * Constructor, no resources are shared between threads.
+     */
+    public ThreadLocalResourceCache()
+    {
+        this(false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param shareImages true if image XObjects are to be shared by all threads
+     */
+    public ThreadLocalResourceCache(boolean shareImages)
+    {
+        sharedImages = shareImages ? new HashMap<COSObject, SoftReference<PDImageXObject>>() : null;
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect) throws IOException
+    {
+        return caches.get().getFont(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font) throws IOException
+    {
+        caches.get().put(indirect, font);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect) throws IOException
+    {
+        return caches.get().getColorSpace(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace) throws IOException
+    {
+        caches.get().put(indirect, colorSpace);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect)
+    {
+        return caches.get().getExtGState(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState)
+    {
+        caches.get().put(indirect, extGState);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect) throws IOException
+    {
+        return caches.get().getShading(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading) throws IOException
+    {
+        caches.get().put(indirect, shading);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect) throws IOException
+    {
+        return caches.get().getPattern(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern) throws IOException
+    {
+        caches.get().put(indirect, pattern);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect)
+    {
+        return caches.get().getProperties(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList)
+    {
+        caches.get().put(indirect, propertyList);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect) throws IOException
+    {
+        if (sharedImages != null)
+        {
+            SoftReference<PDImageXObject> reference;
+            synchronized (sharedImages)
+            {
+                reference = sharedImages.get(indirect);
+            }
+            PDImageXObject image = reference == null ? null : reference.get();
+            if (image != null)
+            {
+                return image;
+            }
+        }
+        return caches.get().getXObject(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject) throws IOException
+    {
+        if (sharedImages != null && xobject instanceof PDImageXObject)
+        {
+            synchronized (sharedImages)
+            {
+                sharedImages.put(indirect,
+                        new SoftReference<PDImageXObject>((PDImageXObject) xobject));
+            }
+        }
+        else
+        {
+            caches.get().put(indirect, xobject);
+        }
+    }
+}
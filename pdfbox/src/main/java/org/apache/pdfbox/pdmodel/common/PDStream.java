@@ -32,6 +32,7 @@ import org.apache.pdfbox.cos.COSInputStream;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.io.IOUtils;
@@ -235,6 +236,18 @@ public class PDStream implements COSObjectable
         return stream.createInputStream();
     }
 
+    /**
+     * This will get a stream that can be read from, the options are passed to the last filter.
+     *
+     * @param options the decode options, see {@link DecodeOptions}
+     * @return An InputStream to read the decoded stream data.
+     * @throws IOException If there is an error getting the stream.
+     */
+    public COSInputStream createInputStream(DecodeOptions options) throws IOException
+    {
+        return stream.createInputStream(options);
+    }
+
     /**
      * This will get a stream with some filters applied but not others. This is
      * useful when doing images, ie filters = [flate,dct], we want to remove
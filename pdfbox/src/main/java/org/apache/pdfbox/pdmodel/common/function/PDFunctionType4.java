@@ -18,17 +18,24 @@ package org.apache.pdfbox.pdmodel.common.function;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.pdmodel.common.PDRange;
+import org.apache.pdfbox.pdmodel.common.function.type4.CompiledProgram;
 import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
 import org.apache.pdfbox.pdmodel.common.function.type4.Operators;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class represents a Type 4 (PostScript calculator) function in a PDF document.
  * <p>
  * See section 3.9.4 of the PDF 1.4 Reference.
+ * <p>
+ * The function is compiled with {@link CompiledProgram} if possible, and interpreted otherwise.
+ * The parsed and compiled programs are cached by their text, as the functions of shadings and
+ * color spaces are often created again for the same function stream.
  *
  */
 public class PDFunctionType4 extends PDFunction
@@ -36,7 +43,21 @@ public class PDFunctionType4 extends PDFunction
 
     private static final Operators OPERATORS = new Operators();
 
+    // the maximum number of cached programs
+    private static final int MAX_CACHED_PROGRAMS = 100;
+
+    private static final Map<String, Program> PROGRAMS =
+            new LinkedHashMap<String, Program>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Program> eldest)
+        {
+            return size() > MAX_CACHED_PROGRAMS;
+        }
+    };
+
     private final InstructionSequence instructions;
+    private final CompiledProgram compiledProgram;
 
     /**
      * Constructor.
@@ -49,7 +70,27 @@ public class PDFunctionType4 extends PDFunction
         super( functionStream );
         byte[] bytes = getPDStream().toByteArray();
         String string =  new String(bytes, "ISO-8859-1");
-        this.instructions = InstructionSequenceBuilder.parse(string);
+        Program program = getProgram(string);
+        this.instructions = program.instructions;
+        this.compiledProgram = program.compiledProgram;
+    }
+
+    private static Program getProgram(String string)
+    {
+        synchronized (PROGRAMS)
+        {
+            Program program = PROGRAMS.get(string);
+            if (program != null)
+            {
+                return program;
+            }
+        }
+        Program program = new Program(InstructionSequenceBuilder.parse(string));
+        synchronized (PROGRAMS)
+        {
+            PROGRAMS.put(string, program);
+        }
+        return program;
     }
     
     /**
@@ -66,11 +107,31 @@ public class PDFunctionType4 extends PDFunction
     public float[] eval(float[] input) throws IOException
     {
         //Setup the input values
-        ExecutionContext context = new ExecutionContext(OPERATORS);
+        float[] inputValues = new float[input.length];
         for (int i = 0; i < input.length; i++)
         {
             PDRange domain = getDomainForInput(i);
-            float value = clipToRange(input[i], domain.getMin(), domain.getMax());
+            inputValues[i] = clipToRange(input[i], domain.getMin(), domain.getMax());
+        }
+        int numberOfOutputValues = getNumberOfOutputParameters();
+
+        //Execute the compiled function, the interpreter reports errors
+        if (compiledProgram != null)
+        {
+            float[] outputValues = compiledProgram.execute(inputValues, numberOfOutputValues);
+            if (outputValues != null)
+            {
+                for (int i = 0; i < numberOfOutputValues; i++)
+                {
+                    PDRange range = getRangeForOutput(i);
+                    outputValues[i] = clipToRange(outputValues[i], range.getMin(), range.getMax());
+                }
+                return outputValues;
+            }
+        }
+        ExecutionContext context = new ExecutionContext(OPERATORS);
+        for (float value : inputValues)
+        {
             context.getStack().push(value);
         }
 
@@ -78,7 +139,6 @@ public class PDFunctionType4 extends PDFunction
         instructions.execute(context);
 
         //Extract the output values
-        int numberOfOutputValues = getNumberOfOutputParameters();
         int numberOfActualOutputValues = context.getStack().size();
         if (numberOfActualOutputValues < numberOfOutputValues)
         {
@@ -98,4 +158,17 @@ public class PDFunctionType4 extends PDFunction
         //Return the resulting array
         return outputValues;
     }
+
+    // a parsed function, and its compiled form if it can be compiled
+    private static final class Program
+    {
+        private final InstructionSequence instructions;
+        private final CompiledProgram compiledProgram;
+
+        Program(InstructionSequence instructions)
+        {
+            this.instructions = instructions;
+            this.compiledProgram = CompiledProgram.compile(instructions);
+        }
+    }
 }
@@ -0,0 +1,810 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An instruction sequence compiled to a flat array of opcodes, which is executed on a stack of
+ * primitive values. This avoids the boxing of every intermediate value and the operator lookup
+ * by name of {@link InstructionSequence#execute(ExecutionContext)}, which matters for shadings
+ * that evaluate a function for every pixel.
+ *
+ * <p>The procs of <code>if</code> and <code>ifelse</code> are compiled to conditional jumps.
+ * Programs which use procs in any other way or unknown operators aren't compiled. The compiled
+ * program gives the same results as the interpreter, including the int and real typing of the
+ * values. If it runs into an error, e.g. a type mismatch or a stack underflow, it returns null so
+ * that the caller can execute the interpreter, which reports the error.</p>
+ */
+public final class CompiledProgram
+{
+    // the types of the stack values
+    private static final byte INT = 0;
+    private static final byte REAL = 1;
+    private static final byte BOOL = 2;
+
+    // opcodes, PUSH and the jumps are followed by an operand
+    private static final int PUSH = 0;
+    private static final int JUMP = 1;
+    private static final int JUMP_IF_FALSE = 2;
+    private static final int ABS = 3;
+    private static final int ADD = 4;
+    private static final int ATAN = 5;
+    private static final int CEILING = 6;
+    private static final int COS = 7;
+    private static final int CVI = 8;
+    private static final int CVR = 9;
+    private static final int DIV = 10;
+    private static final int EXP = 11;
+    private static final int FLOOR = 12;
+    private static final int IDIV = 13;
+    private static final int LN = 14;
+    private static final int LOG = 15;
+    private static final int MOD = 16;
+    private static final int MUL = 17;
+    private static final int NEG = 18;
+    private static final int ROUND = 19;
+    private static final int SIN = 20;
+    private static final int SQRT = 21;
+    private static final int SUB = 22;
+    private static final int TRUNCATE = 23;
+    private static final int AND = 24;
+    private static final int BITSHIFT = 25;
+    private static final int EQ = 26;
+    private static final int FALSE = 27;
+    private static final int GE = 28;
+    private static final int GT = 29;
+    private static final int LE = 30;
+    private static final int LT = 31;
+    private static final int NE = 32;
+    private static final int NOT = 33;
+    private static final int OR = 34;
+    private static final int TRUE = 35;
+    private static final int XOR = 36;
+    private static final int COPY = 37;
+    private static final int DUP = 38;
+    private static final int EXCH = 39;
+    private static final int INDEX = 40;
+    private static final int POP = 41;
+    private static final int ROLL = 42;
+
+    // the number of values each opcode pops, and how many it pushes
+    private static final int[] POPPED = {
+        0, 0, 1, 1, 2, 2, 1, 1, 1, 1, 2, 2, 1, 2, 1, 1, 2, 2, 1, 1, 1, 1, 2, 1,
+        2, 2, 2, 0, 2, 2, 2, 2, 2, 1, 2, 0, 2, 1, 1, 2, 1, 1, 2 };
+    private static final int[] PUSHED = {
+        1, 0, 0, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+        1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 2, 2, 1, 0, 0 };
+
+    private static final Map<String, Integer> OPCODES = new HashMap<String, Integer>();
+
+    static
+    {
+        String[] names = { "abs", "add", "atan", "ceiling", "cos", "cvi", "cvr", "div", "exp",
+            "floor", "idiv", "ln", "log", "mod", "mul", "neg", "round", "sin", "sqrt", "sub",
+            "truncate", "and", "bitshift", "eq", "false", "ge", "gt", "le", "lt", "ne", "not",
+            "or", "true", "xor", "copy", "dup", "exch", "index", "pop", "roll" };
+        for (int i = 0; i < names.length; i++)
+        {
+            OPCODES.put(names[i], ABS + i);
+        }
+    }
+
+    private static final int FAILED = -1;
+
+    // the largest literal count of copy that is compiled
+    private static final int MAX_COPY = 100;
+
+    private final int[] code;
+    private final double[] constantValues;
+    private final byte[] constantTypes;
+    private final int maxGrowth;
+
+    private CompiledProgram(Compiler compiler)
+    {
+        code = new int[compiler.code.size()];
+        for (int i = 0; i < code.length; i++)
+        {
+            code[i] = compiler.code.get(i);
+        }
+        constantValues = new double[compiler.constants.size()];
+        constantTypes = new byte[constantValues.length];
+        for (int i = 0; i < constantValues.length; i++)
+        {
+            Object constant = compiler.constants.get(i);
+            if (constant instanceof Integer)
+            {
+                constantValues[i] = (Integer) constant;
+                constantTypes[i] = INT;
+            }
+            else if (constant instanceof Float)
+            {
+                constantValues[i] = (Float) constant;
+                constantTypes[i] = REAL;
+            }
+            else
+            {
+                constantValues[i] = (Boolean) constant ? 1 : 0;
+                constantTypes[i] = BOOL;
+            }
+        }
+        maxGrowth = compiler.maxDepth;
+    }
+
+    /**
+     * Compiles the given instruction sequence.
+     *
+     * @param sequence the parsed type 4 function
+     * @return the compiled program, or null if the sequence can only be interpreted
+     */
+    public static CompiledProgram compile(InstructionSequence sequence)
+    {
+        Compiler compiler = new Compiler();
+        if (!compiler.compile(sequence))
+        {
+            return null;
+        }
+        return new CompiledProgram(compiler);
+    }
+
+    /**
+     * Executes the program with the given real values on the stack and returns the topmost
+     * values of the resulting stack as reals.
+     *
+     * @param input the input values, the last one is on top of the stack
+     * @param numberOfOutputs the number of values to return
+     * @return the output values, the last one was on top of the stack, or null if the program
+     * failed and must be executed by the interpreter
+     */
+    public float[] execute(float[] input, int numberOfOutputs)
+    {
+        int capacity = input.length + maxGrowth;
+        double[] values = new double[capacity];
+        byte[] types = new byte[capacity];
+        for (int i = 0; i < input.length; i++)
+        {
+            values[i] = input[i];
+            types[i] = REAL;
+        }
+        int sp = run(values, types, input.length);
+        if (sp < numberOfOutputs)
+        {
+            return null;
+        }
+        float[] output = new float[numberOfOutputs];
+        for (int i = 0, j = sp - numberOfOutputs; i < numberOfOutputs; i++, j++)
+        {
+            if (types[j] == BOOL)
+            {
+                return null;
+            }
+            output[i] = (float) values[j];
+        }
+        return output;
+    }
+
+    // returns the stack size after the execution, or FAILED
+    private int run(double[] values, byte[] types, int stackSize)
+    {
+        int[] code = this.code;
+        int sp = stackSize;
+        int pc = 0;
+        while (pc < code.length)
+        {
+            int op = code[pc++];
+            if (sp < POPPED[op])
+            {
+                return FAILED;
+            }
+            switch (op)
+            {
+                case PUSH:
+                {
+                    int index = code[pc++];
+                    values[sp] = constantValues[index];
+                    types[sp++] = constantTypes[index];
+                    break;
+                }
+                case JUMP:
+                    pc = code[pc];
+                    break;
+                case JUMP_IF_FALSE:
+                    if (types[--sp] != BOOL)
+                    {
+                        return FAILED;
+                    }
+                    pc = values[sp] != 0 ? pc + 1 : code[pc];
+                    break;
+                case ABS:
+                case CEILING:
+                case FLOOR:
+                case NEG:
+                case ROUND:
+                case TRUNCATE:
+                    if (!unaryNumber(op, values, types, sp - 1))
+                    {
+                        return FAILED;
+                    }
+                    break;
+                case COS:
+                case CVI:
+                case CVR:
+                case LN:
+                case LOG:
+                case SIN:
+                case SQRT:
+                    if (!unaryReal(op, values, types, sp - 1))
+                    {
+                        return FAILED;
+                    }
+                    break;
+                case ADD:
+                case ATAN:
+                case DIV:
+                case EXP:
+                case MUL:
+                case SUB:
+                case GE:
+                case GT:
+                case LE:
+                case LT:
+                    if (!binaryNumber(op, values, types, --sp))
+                    {
+                        return FAILED;
+                    }
+                    break;
+                case IDIV:
+                case MOD:
+                case BITSHIFT:
+                case AND:
+                case OR:
+                case XOR:
+                    if (!binaryInt(op, values, types, --sp))
+                    {
+                        return FAILED;
+                    }
+                    break;
+                case EQ:
+                case NE:
+                {
+                    sp--;
+                    byte type1 = types[sp - 1];
+                    byte type2 = types[sp];
+                    boolean equal;
+                    if (type1 != BOOL && type2 != BOOL)
+                    {
+                        equal = (float) values[sp - 1] == (float) values[sp];
+                    }
+                    else
+                    {
+                        equal = type1 == type2 && values[sp - 1] == values[sp];
+                    }
+                    setBool(values, types, sp - 1, op == EQ ? equal : !equal);
+                    break;
+                }
+                case NOT:
+                    if (types[sp - 1] == BOOL)
+                    {
+                        values[sp - 1] = values[sp - 1] != 0 ? 0 : 1;
+                    }
+                    else if (types[sp - 1] == INT)
+                    {
+                        values[sp - 1] = -(int) values[sp - 1];
+                    }
+                    else
+                    {
+                        return FAILED;
+                    }
+                    break;
+                case TRUE:
+                case FALSE:
+                    setBool(values, types, sp++, op == TRUE);
+                    break;
+                case COPY:
+                {
+                    if (types[--sp] == BOOL)
+                    {
+                        return FAILED;
+                    }
+                    int n = (int) values[sp];
+                    if (n > 0)
+                    {
+                        if (n > sp || sp + n > values.length)
+                        {
+                            return FAILED;
+                        }
+                        System.arraycopy(values, sp - n, values, sp, n);
+                        System.arraycopy(types, sp - n, types, sp, n);
+                        sp += n;
+                    }
+                    break;
+                }
+                case DUP:
+                    values[sp] = values[sp - 1];
+                    types[sp] = types[sp - 1];
+                    sp++;
+                    break;
+                case EXCH:
+                {
+                    double value = values[sp - 1];
+                    byte type = types[sp - 1];
+                    values[sp - 1] = values[sp - 2];
+                    types[sp - 1] = types[sp - 2];
+                    values[sp - 2] = value;
+                    types[sp - 2] = type;
+                    break;
+                }
+                case INDEX:
+                {
+                    if (types[sp - 1] == BOOL)
+                    {
+                        return FAILED;
+                    }
+                    int n = (int) values[sp - 1];
+                    if (n < 0 || n > sp - 2)
+                    {
+                        return FAILED;
+                    }
+                    values[sp - 1] = values[sp - n - 2];
+                    types[sp - 1] = types[sp - n - 2];
+                    break;
+                }
+                case POP:
+                    sp--;
+                    break;
+                case ROLL:
+                    sp -= 2;
+                    if (!roll(values, types, sp))
+                    {
+                        return FAILED;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + op);
+            }
+        }
+        return sp;
+    }
+
+    // the unary operators which keep ints
+    private static boolean unaryNumber(int op, double[] values, byte[] types, int i)
+    {
+        byte type = types[i];
+        if (type == BOOL)
+        {
+            return false;
+        }
+        double value = values[i];
+        if (type == INT)
+        {
+            int num = (int) value;
+            if (op == ABS)
+            {
+                values[i] = Math.abs(num);
+            }
+            else if (op == NEG)
+            {
+                if (num == Integer.MIN_VALUE)
+                {
+                    setReal(values, types, i, -(float) num);
+                }
+                else
+                {
+                    values[i] = -num;
+                }
+            }
+            return true;
+        }
+        switch (op)
+        {
+            case ABS:
+                values[i] = Math.abs((float) value);
+                break;
+            case CEILING:
+                values[i] = (float) Math.ceil(value);
+                break;
+            case FLOOR:
+                values[i] = (float) Math.floor(value);
+                break;
+            case NEG:
+                values[i] = -(float) value;
+                break;
+            case ROUND:
+                values[i] = (float) Math.round(value);
+                break;
+            default:
+                values[i] = (float) (int) value;
+                break;
+        }
+        return true;
+    }
+
+    // the unary operators of numbers which don't keep ints
+    private static boolean unaryReal(int op, double[] values, byte[] types, int i)
+    {
+        if (types[i] == BOOL)
+        {
+            return false;
+        }
+        double value = values[i];
+        switch (op)
+        {
+            case COS:
+                setReal(values, types, i, (float) Math.cos(Math.toRadians((float) value)));
+                break;
+            case CVI:
+                values[i] = (int) value;
+                types[i] = INT;
+                break;
+            case CVR:
+                setReal(values, types, i, (float) value);
+                break;
+            case LN:
+                setReal(values, types, i, (float) Math.log(value));
+                break;
+            case LOG:
+                setReal(values, types, i, (float) Math.log10(value));
+                break;
+            case SIN:
+                setReal(values, types, i, (float) Math.sin(Math.toRadians((float) value)));
+                break;
+            default:
+                float num = (float) value;
+                if (num < 0)
+                {
+                    return false;
+                }
+                setReal(values, types, i, (float) Math.sqrt(num));
+                break;
+        }
+        return true;
+    }
+
+    // the binary operators of numbers, the operands are at i - 1 and i
+    private static boolean binaryNumber(int op, double[] values, byte[] types, int i)
+    {
+        byte type1 = types[i - 1];
+        byte type2 = types[i];
+        if (type1 == BOOL || type2 == BOOL)
+        {
+            return false;
+        }
+        double value1 = values[i - 1];
+        double value2 = values[i];
+        boolean ints = type1 == INT && type2 == INT;
+        switch (op)
+        {
+            case ADD:
+                if (ints)
+                {
+                    setLong(values, types, i - 1, (long) value1 + (long) value2);
+                }
+                else
+                {
+                    setReal(values, types, i - 1, (float) value1 + (float) value2);
+                }
+                break;
+            case SUB:
+                if (ints)
+                {
+                    setLong(values, types, i - 1, (long) value1 - (long) value2);
+                }
+                else
+                {
+                    setReal(values, types, i - 1, (float) value1 - (float) value2);
+                }
+                break;
+            case MUL:
+                if (ints)
+                {
+                    setLong(values, types, i - 1, (long) value1 * (long) value2);
+                }
+                else
+                {
+                    setReal(values, types, i - 1, (float) (value1 * value2));
+                }
+                break;
+            case DIV:
+                setReal(values, types, i - 1, (float) value1 / (float) value2);
+                break;
+            case EXP:
+                setReal(values, types, i - 1, (float) Math.pow(value1, value2));
+                break;
+            case ATAN:
+                float atan = (float) Math.atan2((float) value1, (float) value2);
+                atan = (float) Math.toDegrees(atan) % 360;
+                if (atan < 0)
+                {
+                    atan = atan + 360;
+                }
+                setReal(values, types, i - 1, atan);
+                break;
+            case GE:
+                setBool(values, types, i - 1, (float) value1 >= (float) value2);
+                break;
+            case GT:
+                setBool(values, types, i - 1, (float) value1 > (float) value2);
+                break;
+            case LE:
+                setBool(values, types, i - 1, (float) value1 <= (float) value2);
+                break;
+            default:
+                setBool(values, types, i - 1, (float) value1 < (float) value2);
+                break;
+        }
+        return true;
+    }
+
+    // the binary operators of ints, and of bools for the logical ones
+    private static boolean binaryInt(int op, double[] values, byte[] types, int i)
+    {
+        byte type1 = types[i - 1];
+        byte type2 = types[i];
+        if (type1 == BOOL && type2 == BOOL && (op == AND || op == OR || op == XOR))
+        {
+            boolean bool1 = values[i - 1] != 0;
+            boolean bool2 = values[i] != 0;
+            boolean result = op == AND ? bool1 & bool2 : op == OR ? bool1 | bool2 : bool1 ^ bool2;
+            values[i - 1] = result ? 1 : 0;
+            return true;
+        }
+        if (type1 != INT || type2 != INT)
+        {
+            return false;
+        }
+        int int1 = (int) values[i - 1];
+        int int2 = (int) values[i];
+        switch (op)
+        {
+            case IDIV:
+            case MOD:
+                if (int2 == 0)
+                {
+                    return false;
+                }
+                values[i - 1] = op == IDIV ? int1 / int2 : int1 % int2;
+                break;
+            case BITSHIFT:
+                values[i - 1] = int2 < 0 ? int1 >> Math.abs(int2) : int1 << int2;
+                break;
+            case AND:
+                values[i - 1] = int1 & int2;
+                break;
+            case OR:
+                values[i - 1] = int1 | int2;
+                break;
+            default:
+                values[i - 1] = int1 ^ int2;
+                break;
+        }
+        return true;
+    }
+
+    // the operands n and j of roll are at sp and sp + 1
+    private static boolean roll(double[] values, byte[] types, int sp)
+    {
+        if (types[sp] == BOOL || types[sp + 1] == BOOL)
+        {
+            return false;
+        }
+        int n = (int) values[sp];
+        int j = (int) values[sp + 1];
+        if (j == 0)
+        {
+            return true;
+        }
+        if (n < 0)
+        {
+            return false;
+        }
+        // like the interpreter, the top values are moved below the others
+        long moved;
+        long length;
+        if (j > 0)
+        {
+            moved = j;
+            length = j + Math.max(n - j, 0);
+        }
+        else
+        {
+            moved = Math.max(n + j, 0);
+            length = moved - j;
+        }
+        if (length > sp)
+        {
+            return false;
+        }
+        int start = sp - (int) length;
+        reverse(values, types, start, sp);
+        reverse(values, types, start, start + (int) moved);
+        reverse(values, types, start + (int) moved, sp);
+        return true;
+    }
+
+    private static void reverse(double[] values, byte[] types, int from, int to)
+    {
+        for (int i = from, k = to - 1; i < k; i++, k--)
+        {
+            double value = values[i];
+            values[i] = values[k];
+            values[k] = value;
+            byte type = types[i];
+            types[i] = types[k];
+            types[k] = type;
+        }
+    }
+
+    private static void setLong(double[] values, byte[] types, int i, long value)
+    {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+        {
+            setReal(values, types, i, (float) value);
+        }
+        else
+        {
+            values[i] = value;
+            types[i] = INT;
+        }
+    }
+
+    private static void setReal(double[] values, byte[] types, int i, float value)
+    {
+        values[i] = value;
+        types[i] = REAL;
+    }
+
+    private static void setBool(double[] values, byte[] types, int i, boolean value)
+    {
+        values[i] = value ? 1 : 0;
+        types[i] = BOOL;
+    }
+
+    // translates the instructions, and determines how much the stack can grow
+    private static final class Compiler
+    {
+        private final List<Integer> code = new ArrayList<Integer>();
+        private final List<Object> constants = new ArrayList<Object>();
+        private int depth;
+        private int maxDepth;
+
+        boolean compile(InstructionSequence sequence)
+        {
+            List<Object> instructions = sequence.getInstructions();
+            for (int i = 0; i < instructions.size(); i++)
+            {
+                Object instruction = instructions.get(i);
+                Object next = i + 1 < instructions.size() ? instructions.get(i + 1) : null;
+                if (instruction instanceof InstructionSequence)
+                {
+                    InstructionSequence proc = (InstructionSequence) instruction;
+                    if ("if".equals(next))
+                    {
+                        if (!compileIf(proc))
+                        {
+                            return false;
+                        }
+                        i++;
+                    }
+                    else if (next instanceof InstructionSequence && i + 2 < instructions.size()
+                            && "ifelse".equals(instructions.get(i + 2)))
+                    {
+                        if (!compileIfElse(proc, (InstructionSequence) next))
+                        {
+                            return false;
+                        }
+                        i += 2;
+                    }
+                    else if (next == null)
+                    {
+                        // a proc left on top of the stack is executed at the end of the sequence
+                        if (!compile(proc))
+                        {
+                            return false;
+                        }
+                    }
+                    else
+                    {
+                        return false;
+                    }
+                }
+                else if (instruction instanceof String)
+                {
+                    Integer opcode = OPCODES.get(instruction);
+                    if (opcode == null)
+                    {
+                        return false;
+                    }
+                    if (opcode == COPY)
+                    {
+                        // only a literal count gives an upper bound of the stack size
+                        if (i == 0 || !(instructions.get(i - 1) instanceof Integer)
+                                || (Integer) instructions.get(i - 1) > MAX_COPY)
+                        {
+                            return false;
+                        }
+                        grow(Math.max((Integer) instructions.get(i - 1), 0));
+                    }
+                    emit(opcode);
+                }
+                else
+                {
+                    code.add(PUSH);
+                    code.add(constants.size());
+                    constants.add(instruction);
+                    grow(1);
+                }
+            }
+            return true;
+        }
+
+        private boolean compileIf(InstructionSequence proc)
+        {
+            emit(JUMP_IF_FALSE);
+            int jump = code.size();
+            code.add(0);
+            int depthBefore = depth;
+            if (!compile(proc))
+            {
+                return false;
+            }
+            code.set(jump, code.size());
+            depth = Math.max(depth, depthBefore);
+            return true;
+        }
+
+        private boolean compileIfElse(InstructionSequence proc1, InstructionSequence proc2)
+        {
+            emit(JUMP_IF_FALSE);
+            int jumpToElse = code.size();
+            code.add(0);
+            int depthBefore = depth;
+            if (!compile(proc1))
+            {
+                return false;
+            }
+            int depth1 = depth;
+            code.add(JUMP);
+            int jumpToEnd = code.size();
+            code.add(0);
+            code.set(jumpToElse, code.size());
+            depth = depthBefore;
+            if (!compile(proc2))
+            {
+                return false;
+            }
+            code.set(jumpToEnd, code.size());
+            depth = Math.max(depth, depth1);
+            return true;
+        }
+
+        private void emit(int opcode)
+        {
+            code.add(opcode);
+            grow(PUSHED[opcode] - POPPED[opcode]);
+        }
+
+        // the stack depth relative to the input values, the maximum is an upper bound
+        private void grow(int delta)
+        {
+            depth += delta;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+    }
+}
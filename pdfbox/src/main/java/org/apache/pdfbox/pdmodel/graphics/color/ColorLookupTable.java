@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+
+/**
+ * A lookup table for converting 8-bit images of a special color space, i.e. with a tint transform
+ * into an alternate color space, which is slow to evaluate for every pixel.
+ *
+ * <p>For one and two components, every color is converted once and then looked up, which gives
+ * exactly the result of converting each pixel. For three and four components, the color space
+ * is sampled on a regular grid, and the pixels of large images are converted by multilinear
+ * interpolation between the grid points, which differs from converting each pixel by less than
+ * one level on average. Smaller images are converted pixel by pixel, as sampling the grid would
+ * take longer.</p>
+ *
+ * <p>The table is built when it is used first, and may be used by several threads.</p>
+ */
+final class ColorLookupTable
+{
+    // the number of grid points per component, for three and four components
+    private static final int[] GRID_SIZE = { 0, 0, 0, 33, 16 };
+
+    // set in the entries of the exact table which have been converted
+    private static final int CONVERTED = 0xff000000;
+
+    private final PDFunction tintTransform;
+    private final PDColorSpace alternateColorSpace;
+    private final int numComponents;
+
+    // the packed RGB value of every color, for one and two components
+    private final int[] table;
+
+    // the RGB values of the grid points in 0..255, for three and four components
+    private final int gridSize;
+    private volatile float[] grid;
+
+    // the lower grid point of each sample value, and its distance to it in grid units
+    private final int[] gridIndex;
+    private final float[] gridFraction;
+
+    /**
+     * Creates a lookup table for the given tint transform.
+     *
+     * @param tintTransform the tint transform into the alternate color space
+     * @param alternateColorSpace the alternate color space
+     * @param numComponents the number of components, 1 to 4
+     */
+    ColorLookupTable(PDFunction tintTransform, PDColorSpace alternateColorSpace,
+            int numComponents)
+    {
+        if (!isSupported(numComponents))
+        {
+            throw new IllegalArgumentException("Unsupported number of components: "
+                    + numComponents);
+        }
+        this.tintTransform = tintTransform;
+        this.alternateColorSpace = alternateColorSpace;
+        this.numComponents = numComponents;
+        if (numComponents <= 2)
+        {
+            table = new int[1 << (8 * numComponents)];
+            gridSize = 0;
+            gridIndex = null;
+            gridFraction = null;
+        }
+        else
+        {
+            table = null;
+            gridSize = GRID_SIZE[numComponents];
+            gridIndex = new int[256];
+            gridFraction = new float[256];
+            for (int sample = 0; sample < 256; sample++)
+            {
+                float position = sample * (gridSize - 1) / 255f;
+                gridIndex[sample] = Math.min((int) position, gridSize - 2);
+                gridFraction[sample] = position - gridIndex[sample];
+            }
+        }
+    }
+
+    /**
+     * Returns whether a lookup table supports the given number of components.
+     */
+    static boolean isSupported(int numComponents)
+    {
+        return numComponents >= 1 && numComponents <= 4;
+    }
+
+    /**
+     * Converts the given raster to an RGB image.
+     *
+     * @param raster the raster of 8-bit samples
+     * @return the RGB image
+     * @throws IOException if the color conversion fails
+     */
+    BufferedImage toRGBImage(WritableRaster raster) throws IOException
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+
+        // the samples of other rasters may be out of the range of the table
+        boolean is8Bit = raster.getTransferType() == DataBuffer.TYPE_BYTE;
+        if (is8Bit && table == null && (long) width * height >= 2L * getGridPointCount())
+        {
+            return toRGBImageWithGrid(raster);
+        }
+
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        WritableRaster rgbRaster = rgbImage.getRaster();
+        int[][] samples = new int[numComponents][width];
+        int[] rgbRow = new int[width];
+        float[] value = new float[numComponents];
+        for (int y = 0; y < height; y++)
+        {
+            for (int c = 0; c < numComponents; c++)
+            {
+                raster.getSamples(0, y, width, 1, c, samples[c]);
+            }
+            for (int x = 0; x < width; x++)
+            {
+                if (is8Bit && table != null)
+                {
+                    rgbRow[x] = lookup(samples, x, value);
+                }
+                else
+                {
+                    for (int c = 0; c < numComponents; c++)
+                    {
+                        value[c] = samples[c][x] / 255f;
+                    }
+                    rgbRow[x] = convert(value);
+                }
+            }
+            rgbRaster.setDataElements(0, y, width, 1, rgbRow);
+        }
+        return rgbImage;
+    }
+
+    private int lookup(int[][] samples, int x, float[] value) throws IOException
+    {
+        int index = samples[0][x];
+        if (numComponents == 2)
+        {
+            index = index << 8 | samples[1][x];
+        }
+        int rgb = table[index];
+        if (rgb == 0)
+        {
+            for (int c = 0; c < numComponents; c++)
+            {
+                value[c] = samples[c][x] / 255f;
+            }
+            // several threads may convert the same color, with the same result
+            rgb = convert(value) | CONVERTED;
+            table[index] = rgb;
+        }
+        return rgb & ~CONVERTED;
+    }
+
+    // converts a single color to a packed RGB value, like the pixels of an RGB raster
+    private int convert(float[] value) throws IOException
+    {
+        float[] rgb = alternateColorSpace.toRGB(tintTransform.eval(value));
+        int r = (int) (rgb[0] * 255f);
+        int g = (int) (rgb[1] * 255f);
+        int b = (int) (rgb[2] * 255f);
+        return (r & 0xff) << 16 | (g & 0xff) << 8 | (b & 0xff);
+    }
+
+    //
+    // WARNING: this method is performance sensitive, modify with care!
+    //
+    private BufferedImage toRGBImageWithGrid(WritableRaster raster) throws IOException
+    {
+        float[] gridValues = getGrid();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        WritableRaster rgbRaster = rgbImage.getRaster();
+
+        int corners = 1 << numComponents;
+        int[][] samples = new int[numComponents][width];
+        int[] rgbRow = new int[width];
+        for (int y = 0; y < height; y++)
+        {
+            for (int c = 0; c < numComponents; c++)
+            {
+                raster.getSamples(0, y, width, 1, c, samples[c]);
+            }
+            for (int x = 0; x < width; x++)
+            {
+                // interpolate between the 2^n grid points around the color
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int corner = 0; corner < corners; corner++)
+                {
+                    float weight = 1;
+                    int index = 0;
+                    for (int c = 0; c < numComponents; c++)
+                    {
+                        int sample = samples[c][x];
+                        int lower = gridIndex[sample];
+                        if ((corner >> (numComponents - 1 - c) & 1) != 0)
+                        {
+                            weight *= gridFraction[sample];
+                            lower++;
+                        }
+                        else
+                        {
+                            weight *= 1 - gridFraction[sample];
+                        }
+                        index = index * gridSize + lower;
+                    }
+                    if (weight != 0)
+                    {
+                        index *= 3;
+                        r += weight * gridValues[index];
+                        g += weight * gridValues[index + 1];
+                        b += weight * gridValues[index + 2];
+                    }
+                }
+                rgbRow[x] = toByte(r) << 16 | toByte(g) << 8 | toByte(b);
+            }
+            rgbRaster.setDataElements(0, y, width, 1, rgbRow);
+        }
+        return rgbImage;
+    }
+
+    private static int toByte(float value)
+    {
+        return Math.max(0, Math.min(255, (int) value));
+    }
+
+    private int getGridPointCount()
+    {
+        int count = 1;
+        for (int c = 0; c < numComponents; c++)
+        {
+            count *= gridSize;
+        }
+        return count;
+    }
+
+    private float[] getGrid() throws IOException
+    {
+        float[] values = grid;
+        if (values == null)
+        {
+            values = createGrid();
+            grid = values;
+        }
+        return values;
+    }
+
+    // converts the grid points, the first component varies slowest
+    private float[] createGrid() throws IOException
+    {
+        int count = getGridPointCount();
+        float[] values = new float[count * 3];
+        float[] value = new float[numComponents];
+        for (int i = 0; i < count; i++)
+        {
+            for (int c = numComponents - 1, rest = i; c >= 0; c--, rest /= gridSize)
+            {
+                value[c] = (float) (rest % gridSize) / (gridSize - 1);
+            }
+            float[] rgb = alternateColorSpace.toRGB(tintTransform.eval(value));
+            values[i * 3] = rgb[0] * 255f;
+            values[i * 3 + 1] = rgb[1] * 255f;
+            values[i * 3 + 2] = rgb[2] * 255f;
+        }
+        return values;
+    }
+}
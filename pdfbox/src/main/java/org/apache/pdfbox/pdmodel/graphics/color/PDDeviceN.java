@@ -63,6 +63,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     private int[] colorantToComponent;
     private PDColorSpace processColorSpace;
     private PDSeparation[] spotColorSpaces;
+    private volatile ColorLookupTable lookupTable;
 
     /**
      * Creates a new DeviceN color space.
@@ -286,10 +287,16 @@ public class PDDeviceN extends PDSpecialColorSpace
 
         // use the tint transform to convert the sample into
         // the alternate color space (this is usually 1:many)
+        int numSrcComponents = getColorantNames().size();
+        if (ColorLookupTable.isSupported(numSrcComponents))
+        {
+            // up to 4 colorants are converted with a lookup table
+            return getLookupTable(numSrcComponents).toRGBImage(raster);
+        }
+
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         WritableRaster rgbRaster = rgbImage.getRaster();
         int[] rgb = new int[3];
-        int numSrcComponents = getColorantNames().size();
         float[] src = new float[numSrcComponents];
         for (int y = 0; y < height; y++)
         {
@@ -297,9 +304,6 @@ public class PDDeviceN extends PDSpecialColorSpace
             {
                 raster.getPixel(x, y, src);
 
-                int[] intSrc = new int[numSrcComponents];
-                raster.getPixel(x, y, intSrc);
-
                 // scale to 0..1
                 for (int s = 0; s < numSrcComponents; s++)
                 {
@@ -324,6 +328,17 @@ public class PDDeviceN extends PDSpecialColorSpace
         return rgbImage;
     }
 
+    private ColorLookupTable getLookupTable(int numSrcComponents)
+    {
+        ColorLookupTable table = lookupTable;
+        if (table == null)
+        {
+            table = new ColorLookupTable(tintTransform, alternateColorSpace, numSrcComponents);
+            lookupTable = table;
+        }
+        return table;
+    }
+
     @Override
     public float[] toRGB(float[] value) throws IOException
     {
@@ -468,6 +483,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     {
         COSArray namesArray = COSArrayList.convertStringListToCOSNameCOSArray(names);
         array.set(COLORANT_NAMES, namesArray);
+        lookupTable = null;
     }
 
     /**
@@ -478,6 +494,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setAttributes(PDDeviceNAttributes attributes)
     {
         this.attributes = attributes;
+        lookupTable = null;
         if (attributes == null)
         {
             array.remove(DEVICEN_ATTRIBUTES);
@@ -518,6 +535,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace cs)
     {
         alternateColorSpace = cs;
+        lookupTable = null;
         COSBase space = null;
         if (cs != null)
         {
@@ -550,6 +568,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setTintTransform(PDFunction tint)
     {
         tintTransform = tint;
+        lookupTable = null;
         array.set(TINT_TRANSFORM, tint);
     }
 
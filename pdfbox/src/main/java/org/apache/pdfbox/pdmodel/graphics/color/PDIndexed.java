@@ -50,6 +50,7 @@ public final class PDIndexed extends PDSpecialColorSpace
     private float[][] colorTable;
     private int actualMaxIndex;
     private int[][] rgbColorTable;
+    private int[] packedRgbColorTable;
 
     /**
      * Creates a new Indexed color space.
@@ -130,9 +131,12 @@ public final class PDIndexed extends PDSpecialColorSpace
         rgbColorTable = new int[actualMaxIndex + 1][3];
         int[] nil = null;
 
+        packedRgbColorTable = new int[actualMaxIndex + 1];
         for (int i = 0, n = actualMaxIndex; i <= n; i++)
         {
-            rgbColorTable[i] = rgbRaster.getPixel(i, 0, nil);
+            int[] rgb = rgbRaster.getPixel(i, 0, nil);
+            rgbColorTable[i] = rgb;
+            packedRgbColorTable[i] = (rgb[0] & 0xff) << 16 | (rgb[1] & 0xff) << 8 | (rgb[2] & 0xff);
         }
     }
 
@@ -170,17 +174,18 @@ public final class PDIndexed extends PDSpecialColorSpace
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         WritableRaster rgbRaster = rgbImage.getRaster();
 
-        int[] src = new int[1];
+        // convert a row at a time, with the packed RGB values
+        int[] row = new int[width];
         for (int y = 0; y < height; y++)
         {
+            raster.getSamples(0, y, width, 1, 0, row);
             for (int x = 0; x < width; x++)
             {
-                raster.getPixel(x, y, src);
-
                 // lookup
-                int index = Math.min(src[0], actualMaxIndex);
-                rgbRaster.setPixel(x, y, rgbColorTable[index]);
+                int index = Math.min(row[x], actualMaxIndex);
+                row[x] = packedRgbColorTable[index];
             }
+            rgbRaster.setDataElements(0, y, width, 1, row);
         }
 
         return rgbImage;
@@ -53,6 +53,10 @@ public class PDSeparation extends PDSpecialColorSpace
     private PDColorSpace alternateColorSpace = null;
     private PDFunction tintTransform = null;
 
+    // color conversion cache, built when an image is converted first
+    private volatile int[] rgbLookupTable;
+    private volatile ColorLookupTable lookupTable;
+
     /**
      * Creates a new Separation color space.
      */
@@ -120,6 +124,12 @@ public class PDSeparation extends PDSpecialColorSpace
             // PDFBOX-3622 - regular converter fails for Lab colorspaces
             return toRGBImage2(raster);
         }
+
+        if (raster.getTransferType() == DataBuffer.TYPE_BYTE)
+        {
+            // 8-bit tints are converted with a lookup table
+            return toRGBImageWithLookupTable(raster);
+        }
         
         // use the tint transform to convert the sample into
         // the alternate color space (this is usually 1:many)
@@ -155,9 +165,72 @@ public class PDSeparation extends PDSpecialColorSpace
         return alternateColorSpace.toRGBImage(altRaster);
     }
 
+    //
+    // WARNING: this method is performance sensitive, modify with care!
+    //
+    private BufferedImage toRGBImageWithLookupTable(WritableRaster raster) throws IOException
+    {
+        int[] rgbTable = getRgbLookupTable();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        WritableRaster rgbRaster = rgbImage.getRaster();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++)
+        {
+            raster.getSamples(0, y, width, 1, 0, row);
+            for (int x = 0; x < width; x++)
+            {
+                row[x] = rgbTable[row[x]];
+            }
+            rgbRaster.setDataElements(0, y, width, 1, row);
+        }
+        return rgbImage;
+    }
+
+    // the packed RGB values of all 8-bit tints, converted like the pixels of an image
+    private int[] getRgbLookupTable() throws IOException
+    {
+        int[] rgbTable = rgbLookupTable;
+        if (rgbTable != null)
+        {
+            return rgbTable;
+        }
+
+        // convert all tints into a 1-row raster in the alternate color space
+        int numAltComponents = alternateColorSpace.getNumberOfComponents();
+        WritableRaster altRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 256, 1,
+                numAltComponents, new Point(0, 0));
+        float[] samples = new float[1];
+        int[] alt = new int[numAltComponents];
+        for (int i = 0; i < 256; i++)
+        {
+            samples[0] = i;
+            tintTransform(samples, alt);
+            altRaster.setPixel(i, 0, alt);
+        }
+
+        // convert the alternate color space to RGB
+        WritableRaster rgbRaster = alternateColorSpace.toRGBImage(altRaster).getRaster();
+        rgbTable = new int[256];
+        int[] rgb = new int[3];
+        for (int i = 0; i < 256; i++)
+        {
+            rgbRaster.getPixel(i, 0, rgb);
+            rgbTable[i] = (rgb[0] & 0xff) << 16 | (rgb[1] & 0xff) << 8 | (rgb[2] & 0xff);
+        }
+        rgbLookupTable = rgbTable;
+        return rgbTable;
+    }
+
     // converter that works without using super implementation of toRGBImage()
     private BufferedImage toRGBImage2(WritableRaster raster) throws IOException
     {
+        if (raster.getTransferType() == DataBuffer.TYPE_BYTE)
+        {
+            return getLookupTable().toRGBImage(raster);
+        }
+
         int width = raster.getWidth();
         int height = raster.getHeight();
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
@@ -189,6 +262,17 @@ public class PDSeparation extends PDSpecialColorSpace
         return rgbImage;
     }
 
+    private ColorLookupTable getLookupTable()
+    {
+        ColorLookupTable table = lookupTable;
+        if (table == null)
+        {
+            table = new ColorLookupTable(tintTransform, alternateColorSpace, 1);
+            lookupTable = table;
+        }
+        return table;
+    }
+
     protected void tintTransform(float[] samples, int[] alt) throws IOException
     {
         samples[0] /= 255; // 0..1
@@ -235,6 +319,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace colorSpace)
     {
         alternateColorSpace = colorSpace;
+        clearLookupTables();
         COSBase space = null;
         if (colorSpace != null)
         {
@@ -250,9 +335,16 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setTintTransform(PDFunction tint)
     {
         tintTransform = tint;
+        clearLookupTables();
         array.set(TINT_TRANSFORM, tint);
     }
 
+    private void clearLookupTables()
+    {
+        rgbLookupTable = null;
+        lookupTable = null;
+    }
+
     @Override
     public String toString()
     {
@@ -18,6 +18,7 @@ package org.apache.pdfbox.pdmodel.graphics.image;
 
 import java.awt.Graphics2D;
 import java.awt.Paint;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
@@ -37,6 +38,8 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSInputStream;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.filter.DecodeOptions;
+import org.apache.pdfbox.filter.DecodeResult;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDResources;
@@ -62,6 +65,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     private static final Log LOG = LogFactory.getLog(PDImageXObject.class);
 
     private SoftReference<BufferedImage> cachedImage;
+    private int cachedSubsampling;
     private PDColorSpace colorSpace;
 
     /**
@@ -157,7 +161,26 @@ public final class PDImageXObject extends PDXObject implements PDImage
      */
     public PDImageXObject(PDStream stream, PDResources resources) throws IOException
     {
-        this(stream, resources, stream.createInputStream());
+        super(stream, COSName.IMAGE);
+        this.resources = resources;
+        List<COSName> filters = stream.getFilters();
+        if (filters != null && !filters.isEmpty()
+                && COSName.JPX_DECODE.equals(filters.get(filters.size() - 1)))
+        {
+            // JPX images define their own size and color space, the stream parameters are
+            // repaired with them, see PDFBOX-1735. Other images aren't decoded until needed.
+            COSInputStream input = stream.createInputStream();
+            try
+            {
+                DecodeResult decodeResult = input.getDecodeResult();
+                stream.getCOSObject().addAll(decodeResult.getParameters());
+                this.colorSpace = decodeResult.getJPXColorSpace();
+            }
+            finally
+            {
+                input.close();
+            }
+        }
     }
     
     /**
@@ -277,21 +300,6 @@ public final class PDImageXObject extends PDXObject implements PDImage
         throw new IllegalArgumentException("Image type not supported: " + file.getName());
     }
 
-    // repairs parameters using decode result
-    private PDImageXObject(PDStream stream, PDResources resources, COSInputStream input)
-    {
-        super(repair(stream, input), COSName.IMAGE);
-        this.resources = resources;
-        this.colorSpace = input.getDecodeResult().getJPXColorSpace();
-    }
-
-    // repairs parameters using decode result
-    private static PDStream repair(PDStream stream, COSInputStream input)
-    {
-        stream.getCOSObject().addAll(input.getDecodeResult().getParameters());
-        return stream;
-    }
-
     /**
      * Returns the metadata associated with this XObject, or null if there is none.
      * @return the metadata associated with this object.
@@ -340,7 +348,27 @@ public final class PDImageXObject extends PDXObject implements PDImage
     @Override
     public BufferedImage getImage() throws IOException
     {
-        if (cachedImage != null)
+        return getImage(null, 1);
+    }
+
+    /**
+     * Returns a part of this image as an AWT buffered image with an (A)RGB color space. Only the
+     * given region is read, and only every n-th pixel of it in both directions, which is much
+     * faster and needs less memory when a large image is drawn at a small size.
+     * Only the whole image is cached, at the subsampling it was requested with last, via a
+     * SoftReference. The image is decoded while holding the lock of this object, so an image
+     * shared by several threads is decoded only once.
+     *
+     * @param region the region of the image in pixels, or null for the whole image
+     * @param subsampling the subsampling factor, 1 to read every pixel
+     * @return content of this image as a buffered image.
+     * @throws IOException if the image cannot be read
+     */
+    public synchronized BufferedImage getImage(Rectangle region, int subsampling)
+            throws IOException
+    {
+        boolean isFullImage = region == null;
+        if (isFullImage && cachedImage != null && cachedSubsampling == subsampling)
         {
             BufferedImage cached = cachedImage.get();
             if (cached != null)
@@ -350,13 +378,14 @@ public final class PDImageXObject extends PDXObject implements PDImage
         }
 
         // get image as RGB
-        BufferedImage image = SampledImageReader.getRGBImage(this, getColorKeyMask());
+        BufferedImage image = SampledImageReader.getRGBImage(this, region, subsampling,
+                getColorKeyMask());
 
         // soft mask (overrides explicit mask)
         PDImageXObject softMask = getSoftMask();
         if (softMask != null)
         {
-            image = applyMask(image, softMask.getOpaqueImage(), true);
+            image = applyMask(image, getMaskImage(softMask, region, subsampling), true);
         }
         else
         {
@@ -364,14 +393,45 @@ public final class PDImageXObject extends PDXObject implements PDImage
             PDImageXObject mask = getMask();
             if (mask != null && mask.isStencil())
             {
-                image = applyMask(image, mask.getOpaqueImage(), false);
+                image = applyMask(image, getMaskImage(mask, region, subsampling), false);
             }
         }
 
-        cachedImage = new SoftReference<BufferedImage>(image);
+        if (isFullImage)
+        {
+            cachedImage = new SoftReference<BufferedImage>(image);
+            cachedSubsampling = subsampling;
+        }
         return image;
     }
 
+    /**
+     * Reads the part of a mask which belongs to the given region of this image. The mask may have
+     * another size than the image, the result is scaled by applyMask().
+     */
+    private BufferedImage getMaskImage(PDImageXObject mask, Rectangle region, int subsampling)
+            throws IOException
+    {
+        if (region == null && subsampling == 1 || mask.getWidth() <= 0 || mask.getHeight() <= 0)
+        {
+            return mask.getOpaqueImage();
+        }
+        double scaleX = mask.getWidth() / (double) getWidth();
+        double scaleY = mask.getHeight() / (double) getHeight();
+        Rectangle maskRegion = null;
+        if (region != null)
+        {
+            Rectangle area = region.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+            int x0 = (int) Math.floor(area.x * scaleX);
+            int y0 = (int) Math.floor(area.y * scaleY);
+            int x1 = (int) Math.ceil((area.x + area.width) * scaleX);
+            int y1 = (int) Math.ceil((area.y + area.height) * scaleY);
+            maskRegion = new Rectangle(x0, y0, Math.max(1, x1 - x0), Math.max(1, y1 - y0));
+        }
+        int maskSubsampling = Math.max(1, (int) (subsampling * Math.min(scaleX, scaleY)));
+        return SampledImageReader.getRGBImage(mask, maskRegion, maskSubsampling, null);
+    }
+
     /**
      * {@inheritDoc}
      * The returned images are not cached.
@@ -549,7 +609,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     }
 
     @Override
-    public PDColorSpace getColorSpace() throws IOException
+    public synchronized PDColorSpace getColorSpace() throws IOException
     {
         if (colorSpace == null)
         {
@@ -584,6 +644,19 @@ public final class PDImageXObject extends PDXObject implements PDImage
         return getStream().createInputStream(stopFilters);
     }
 
+    /**
+     * Returns the decoded image data. The options may be honored by the image filter, see
+     * {@link DecodeOptions#isFilterSubsampled()}.
+     *
+     * @param options the decode options
+     * @return Decoded stream
+     * @throws IOException if the data could not be read.
+     */
+    public InputStream createInputStream(DecodeOptions options) throws IOException
+    {
+        return getStream().createInputStream(options);
+    }
+
     @Override
     public boolean isEmpty()
     {
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.pdmodel.graphics.image;
 
 import java.awt.Paint;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -27,6 +28,7 @@ import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.DecodeResult;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.filter.FilterFactory;
@@ -320,6 +322,19 @@ public final class PDInlineImage implements PDImage
         return new ByteArrayInputStream(out.toByteArray());
     }
 
+    /**
+     * Returns the image data, the options are ignored as the data has already been decoded.
+     *
+     * @param options the decode options
+     * @return Decoded stream
+     * @throws IOException if the data could not be read.
+     */
+    public InputStream createInputStream(DecodeOptions options) throws IOException
+    {
+        // the data has already been decoded
+        return createInputStream();
+    }
+
     @Override
     public boolean isEmpty()
     {
@@ -340,6 +355,20 @@ public final class PDInlineImage implements PDImage
         return SampledImageReader.getRGBImage(this, getColorKeyMask());
     }
 
+    /**
+     * Returns a part of this image as an AWT buffered image with an (A)RGB color space, see
+     * {@link SampledImageReader#getRGBImage(PDImage, Rectangle, int, COSArray)}.
+     *
+     * @param region the region of the image in pixels, or null for the whole image
+     * @param subsampling the subsampling factor, 1 to read every pixel
+     * @return content of this image as a buffered image.
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage getImage(Rectangle region, int subsampling) throws IOException
+    {
+        return SampledImageReader.getRGBImage(this, region, subsampling, getColorKeyMask());
+    }
+
     @Override
     public BufferedImage getStencilImage(Paint paint) throws IOException
     {
@@ -19,6 +19,7 @@ package org.apache.pdfbox.pdmodel.graphics.image;
 import java.awt.Graphics2D;
 import java.awt.Paint;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
@@ -33,6 +34,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
@@ -108,6 +110,29 @@ final class SampledImageReader
      * @throws IOException if the image cannot be read
      */
     public static BufferedImage getRGBImage(PDImage pdImage, COSArray colorKey) throws IOException
+    {
+        return getRGBImage(pdImage, null, 1, colorKey);
+    }
+
+    /**
+     * Returns a part of the given image as an AWT buffered image with an RGB color space. Only the
+     * given region is read and only every n-th pixel of it in both directions, so the size of
+     * the returned image is the size of the region divided by the subsampling factor, rounded up.
+     * Filters which support it (DCT, JPX) decode only these pixels, all others are decoded
+     * completely and the pixels are picked from the decoded rows.
+     * If a color key mask is provided then an ARGB image is returned instead.
+     * This method never returns null.
+     * @param pdImage the image to read
+     * @param region the region of the image in pixels, null for the whole image
+     * @param subsampling the subsampling factor, 1 for every pixel
+     * @param colorKey an optional color key mask
+     * @return content of this image as an RGB buffered image
+     * @throws IOException if the image cannot be read
+     * @throws IllegalArgumentException if the region is outside of the image or the subsampling
+     * factor isn't positive
+     */
+    public static BufferedImage getRGBImage(PDImage pdImage, Rectangle region, int subsampling,
+            COSArray colorKey) throws IOException
     {
         if (pdImage.isEmpty())
         {
@@ -126,6 +151,25 @@ final class SampledImageReader
         {
             throw new IOException("image weight and height must be positive");
         }
+        if (subsampling < 1)
+        {
+            throw new IllegalArgumentException("subsampling must be positive: " + subsampling);
+        }
+
+        Rectangle area = new Rectangle(0, 0, width, height);
+        DecodeOptions options = new DecodeOptions(subsampling);
+        if (region != null && !region.contains(area))
+        {
+            area = area.intersection(region);
+            if (area.isEmpty())
+            {
+                throw new IllegalArgumentException("region " + region
+                        + " is outside of the image");
+            }
+            options.setSourceRegion(area);
+        }
+        final int scanWidth = (area.width + subsampling - 1) / subsampling;
+        final int scanHeight = (area.height + subsampling - 1) / subsampling;
 
         //
         // An AWT raster must use 8/16/32 bits per component. Images with < 8bpc
@@ -133,143 +177,178 @@ final class SampledImageReader
         // in depth to 8bpc as they will be drawn to TYPE_INT_RGB images anyway. All code
         // in PDColorSpace#toRGBImage expects and 8-bit range, i.e. 0-255.
         //
-        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, width, height,
-                numComponents, new Point(0, 0));
+        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, scanWidth,
+                scanHeight, numComponents, new Point(0, 0));
 
-        // convert image, faster path for non-decoded, non-colormasked 8-bit images
-        final float[] defaultDecode = pdImage.getColorSpace().getDefaultDecode(8);
-        if (bitsPerComponent == 8 && Arrays.equals(decode, defaultDecode) && colorKey == null)
+        InputStream input = createInputStream(pdImage, options);
+        try
         {
-            return from8bit(pdImage, raster);
+            int inputWidth = width;
+            int step = subsampling;
+            if (options.isFilterSubsampled())
+            {
+                // the filter has already picked the pixels
+                inputWidth = scanWidth;
+                area = new Rectangle(0, 0, scanWidth, scanHeight);
+                step = 1;
+            }
+
+            // convert image, faster path for non-decoded, non-colormasked 8-bit images
+            final float[] defaultDecode = pdImage.getColorSpace().getDefaultDecode(8);
+            if (bitsPerComponent == 8 && Arrays.equals(decode, defaultDecode) && colorKey == null)
+            {
+                return from8bit(pdImage, input, raster, area, inputWidth, step);
+            }
+            else if (bitsPerComponent == 1 && colorKey == null)
+            {
+                return from1Bit(pdImage, input, raster, area, inputWidth, step);
+            }
+            else
+            {
+                return fromAny(pdImage, input, raster, area, inputWidth, step, colorKey);
+            }
         }
-        else if (bitsPerComponent == 1 && colorKey == null)
+        finally
         {
-            return from1Bit(pdImage, raster);
+            input.close();
         }
-        else
+    }
+
+    // true if the row or column at the given input position is part of the area
+    // the image classes of PDFBox may honor the decode options, other PDImage implementations
+    // always decode the complete image
+    private static InputStream createInputStream(PDImage pdImage, DecodeOptions options)
+            throws IOException
+    {
+        if (pdImage instanceof PDImageXObject)
         {
-            return fromAny(pdImage, raster, colorKey);
+            return ((PDImageXObject) pdImage).createInputStream(options);
         }
+        return pdImage.createInputStream();
     }
-    
-    private static BufferedImage from1Bit(PDImage pdImage, WritableRaster raster)
+
+    private static boolean isSampled(int position, int areaStart, int scanLength, int subsampling)
+    {
+        int offset = position - areaStart;
+        return offset >= 0 && offset % subsampling == 0 && offset / subsampling < scanLength;
+    }
+
+    private static BufferedImage from1Bit(PDImage pdImage, InputStream input,
+            WritableRaster raster, Rectangle area, int inputWidth, int subsampling)
             throws IOException
     {
         final PDColorSpace colorSpace = pdImage.getColorSpace();
-        final int width = pdImage.getWidth();
-        final int height = pdImage.getHeight();
         final float[] decode = getDecodeArray(pdImage);
+        final int scanWidth = raster.getWidth();
+        final int scanHeight = raster.getHeight();
         byte[] output = ((DataBufferByte) raster.getDataBuffer()).getData();
+        final boolean isIndexed = colorSpace instanceof PDIndexed;
 
-        // read bit stream
-        InputStream iis = null;
-        try
+        int rowLen = inputWidth / 8;
+        if (inputWidth % 8 > 0)
         {
-            // create stream
-            iis = pdImage.createInputStream();
-            final boolean isIndexed = colorSpace instanceof PDIndexed;
-
-            int rowLen = width / 8;
-            if (width % 8 > 0)
-            {
-                rowLen++;
-            }
+            rowLen++;
+        }
 
-            // read stream
-            byte value0;
-            byte value1;
-            if (isIndexed || decode[0] < decode[1])
-            {
-                value0 = 0;
-                value1 = (byte) 255;
-            }
-            else
-            {
-                value0 = (byte) 255;
-                value1 = 0;
-            }
-            byte[] buff = new byte[rowLen];
-            int idx = 0;
-            for (int y = 0; y < height; y++)
+        // read stream
+        byte value0;
+        byte value1;
+        if (isIndexed || decode[0] < decode[1])
+        {
+            value0 = 0;
+            value1 = (byte) 255;
+        }
+        else
+        {
+            value0 = (byte) 255;
+            value1 = 0;
+        }
+        byte[] buff = new byte[rowLen];
+        int lastRow = area.y + (scanHeight - 1) * subsampling;
+        for (int y = 0; y <= lastRow; y++)
+        {
+            int readLen = input.read(buff);
+            if (isSampled(y, area.y, scanHeight, subsampling))
             {
-                int x = 0;
-                int readLen = iis.read(buff);
-                for (int r = 0; r < rowLen && r < readLen; r++)
+                int idx = (y - area.y) / subsampling * scanWidth;
+                for (int x = 0; x < scanWidth; x++)
                 {
-                    int value = buff[r];
-                    int mask = 128;
-                    for (int i = 0; i < 8; i++)
+                    int srcX = area.x + x * subsampling;
+                    if (srcX / 8 >= readLen)
                     {
-                        int bit = value & mask;
-                        mask >>= 1;
-                        output[idx++] = bit == 0 ? value0 : value1;
-                        x++;
-                        if (x == width)
-                        {
-                            break;
-                        }
+                        break;
                     }
-                }
-                if (readLen != rowLen)
-                {
-                    LOG.warn("premature EOF, image will be incomplete");
-                    break;
+                    int bit = buff[srcX / 8] & (128 >> (srcX % 8));
+                    output[idx++] = bit == 0 ? value0 : value1;
                 }
             }
-
-            // use the color space to convert the image to RGB
-            BufferedImage rgbImage = colorSpace.toRGBImage(raster);
-
-            return rgbImage;
-        }
-        finally
-        {
-            if (iis != null)
+            if (readLen != rowLen)
             {
-                iis.close();
+                LOG.warn("premature EOF, image will be incomplete");
+                break;
             }
         }
+
+        // use the color space to convert the image to RGB
+        return colorSpace.toRGBImage(raster);
     }
 
     // faster, 8-bit non-decoded, non-colormasked image conversion
-    private static BufferedImage from8bit(PDImage pdImage, WritableRaster raster)
+    private static BufferedImage from8bit(PDImage pdImage, InputStream input,
+            WritableRaster raster, Rectangle area, int inputWidth, int subsampling)
             throws IOException
     {
-        InputStream input = pdImage.createInputStream();
-        try
+        // get the raster's underlying byte buffer
+        byte[][] banks = ((DataBufferByte) raster.getDataBuffer()).getBankData();
+        final int scanWidth = raster.getWidth();
+        final int scanHeight = raster.getHeight();
+        final int numComponents = pdImage.getColorSpace().getNumberOfComponents();
+        final int rowLength = inputWidth * numComponents;
+        byte[] row = new byte[rowLength];
+        int lastRow = area.y + (scanHeight - 1) * subsampling;
+        int i = 0;
+        for (int y = 0; y <= lastRow; y++)
         {
-            // get the raster's underlying byte buffer
-            byte[][] banks = ((DataBufferByte) raster.getDataBuffer()).getBankData();
-            final int width = pdImage.getWidth();
-            final int height = pdImage.getHeight();
-            final int numComponents = pdImage.getColorSpace().getNumberOfComponents();
-            int max = width * height;
-            byte[] tempBytes = new byte[numComponents];
-            for (int i = 0; i < max; i++)
+            long readLen = IOUtils.populateBuffer(input, row);
+            if (isSampled(y, area.y, scanHeight, subsampling))
             {
-                input.read(tempBytes);
-                for (int c = 0; c < numComponents; c++)
+                if (numComponents == 1 && subsampling == 1)
                 {
-                    banks[c][i] = tempBytes[0+c];
+                    System.arraycopy(row, area.x, banks[0], i, scanWidth);
+                    i += scanWidth;
+                }
+                else
+                {
+                    for (int x = 0; x < scanWidth; x++)
+                    {
+                        int src = (area.x + x * subsampling) * numComponents;
+                        for (int c = 0; c < numComponents; c++)
+                        {
+                            banks[c][i] = row[src + c];
+                        }
+                        i++;
+                    }
                 }
             }
-            // use the color space to convert the image to RGB
-            return pdImage.getColorSpace().toRGBImage(raster);
-        }
-        finally
-        {
-            IOUtils.closeQuietly(input);
+            if (readLen != rowLength)
+            {
+                LOG.warn("premature EOF, image will be incomplete");
+                break;
+            }
         }
+        // use the color space to convert the image to RGB
+        return pdImage.getColorSpace().toRGBImage(raster);
     }    
     
     // slower, general-purpose image conversion from any image format
-    private static BufferedImage fromAny(PDImage pdImage, WritableRaster raster, COSArray colorKey)
-            throws IOException
+    private static BufferedImage fromAny(PDImage pdImage, InputStream input,
+            WritableRaster raster, Rectangle area, int inputWidth, int subsampling,
+            COSArray colorKey) throws IOException
     {
         final PDColorSpace colorSpace = pdImage.getColorSpace();
         final int numComponents = colorSpace.getNumberOfComponents();
-        final int width = pdImage.getWidth();
-        final int height = pdImage.getHeight();
+        final int scanWidth = raster.getWidth();
+        final int scanHeight = raster.getHeight();
         final int bitsPerComponent = pdImage.getBitsPerComponent();
         final float[] decode = getDecodeArray(pdImage);
 
@@ -278,7 +357,7 @@ final class SampledImageReader
         try
         {
             // create stream
-            iis = new MemoryCacheImageInputStream(pdImage.createInputStream());
+            iis = new MemoryCacheImageInputStream(input);
             final float sampleMax = (float)Math.pow(2, bitsPerComponent) - 1f;
             final boolean isIndexed = colorSpace instanceof PDIndexed;
 
@@ -288,23 +367,42 @@ final class SampledImageReader
             if (colorKey != null)
             {
                 colorKeyRanges = colorKey.toFloatArray();
-                colorKeyMask = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+                colorKeyMask = new BufferedImage(scanWidth, scanHeight,
+                        BufferedImage.TYPE_BYTE_GRAY);
             }
 
             // calculate row padding
             int padding = 0;
-            if (width * numComponents * bitsPerComponent % 8 > 0)
+            if (inputWidth * numComponents * bitsPerComponent % 8 > 0)
             {
-                padding = 8 - (width * numComponents * bitsPerComponent % 8);
+                padding = 8 - (inputWidth * numComponents * bitsPerComponent % 8);
             }
+            byte[] skippedRow =
+                    new byte[(inputWidth * numComponents * bitsPerComponent + padding) / 8];
 
             // read stream
             byte[] srcColorValues = new byte[numComponents];
             byte[] alpha = new byte[1];
-            for (int y = 0; y < height; y++)
+            int lastRow = area.y + (scanHeight - 1) * subsampling;
+            for (int y = 0; y <= lastRow; y++)
             {
-                for (int x = 0; x < width; x++)
+                if (!isSampled(y, area.y, scanHeight, subsampling))
                 {
+                    // rows start at a byte boundary
+                    iis.readFully(skippedRow);
+                    continue;
+                }
+                int outY = (y - area.y) / subsampling;
+                for (int x = 0; x < inputWidth; x++)
+                {
+                    if (!isSampled(x, area.x, scanWidth, subsampling))
+                    {
+                        for (int c = 0; c < numComponents; c++)
+                        {
+                            iis.readBits(bitsPerComponent);
+                        }
+                        continue;
+                    }
                     boolean isMasked = true;
                     for (int c = 0; c < numComponents; c++)
                     {
@@ -340,13 +438,14 @@ final class SampledImageReader
                             srcColorValues[c] = (byte)outputByte;
                         }
                     }
-                    raster.setDataElements(x, y, srcColorValues);
+                    int outX = (x - area.x) / subsampling;
+                    raster.setDataElements(outX, outY, srcColorValues);
 
                     // set alpha channel in color key mask, if any
                     if (colorKeyMask != null)
                     {
                         alpha[0] = (byte)(isMasked ? 255 : 0);
-                        colorKeyMask.getRaster().setDataElements(x, y, alpha);
+                        colorKeyMask.getRaster().setDataElements(outX, outY, alpha);
                     }
                 }
 
@@ -15,7 +15,6 @@
  */
 package org.apache.pdfbox.pdmodel.graphics.shading;
 
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
@@ -23,9 +22,7 @@ import java.awt.image.ColorModel;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
 import org.apache.commons.logging.Log;
@@ -67,7 +64,7 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
     {
         super(shading, colorModel, xform, matrix);
         patchList = collectPatches(shading, xform, matrix, controlPoints);
-        createPixelTable(deviceBounds);
+        createRasterTriangles(deviceBounds);
     }
 
     /**
@@ -257,14 +254,14 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
     }
 
     @Override
-    protected Map<Point, Integer> calcPixelTable(Rectangle deviceBounds)  throws IOException
+    List<ShadedTriangle> getTriangles()
     {
-        Map<Point, Integer> map = new HashMap<Point, Integer>();
+        List<ShadedTriangle> triangles = new ArrayList<ShadedTriangle>();
         for (Patch it : patchList)
         {
-            super.calcPixelTable(it.listOfTriangles, map, deviceBounds);
+            triangles.addAll(it.listOfTriangles);
         }
-        return map;
+        return triangles;
     }
 
     @Override
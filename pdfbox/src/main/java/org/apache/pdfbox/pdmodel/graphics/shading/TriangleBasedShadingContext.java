@@ -23,8 +23,8 @@ import java.awt.image.ColorModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.util.Matrix;
@@ -46,8 +46,8 @@ abstract class TriangleBasedShadingContext extends ShadingContext implements Pai
     
     private final boolean hasFunction;
 
-    // map of pixels within triangles to their RGB color
-    private Map<Point, Integer> pixelTable;
+    // the triangles within the device bounds, in the order they are painted
+    private RasterTriangle[] rasterTriangles;
 
     /**
      * Constructor.
@@ -73,55 +73,93 @@ abstract class TriangleBasedShadingContext extends ShadingContext implements Pai
     }
 
     /**
-     * Creates the pixel table.
+     * Collects the triangles which are within the device bounds, together with their boundaries
+     * clipped to the device bounds. No pixels are calculated here, they are calculated for each
+     * tile requested by {@link #getRaster(int, int, int, int)}, so that the memory needed doesn't
+     * depend on the size of the shaded area.
+     *
+     * @param deviceBounds the device bounds of the shaded area
      */
-    protected final void createPixelTable(Rectangle deviceBounds) throws IOException
+    protected final void createRasterTriangles(Rectangle deviceBounds)
     {
-        pixelTable = calcPixelTable(deviceBounds);
+        List<RasterTriangle> list = new ArrayList<RasterTriangle>();
+        for (ShadedTriangle tri : getTriangles())
+        {
+            if (tri.getDeg() == 2)
+            {
+                // the points of a line are not clipped to the device bounds
+                list.add(new RasterTriangle(tri));
+            }
+            else
+            {
+                int[] boundary = tri.getBoundary();
+                boundary[0] = Math.max(boundary[0], deviceBounds.x);
+                boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
+                boundary[2] = Math.max(boundary[2], deviceBounds.y);
+                boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
+                if (boundary[0] <= boundary[1] && boundary[2] <= boundary[3])
+                {
+                    list.add(new RasterTriangle(tri, boundary));
+                }
+            }
+        }
+        rasterTriangles = list.toArray(new RasterTriangle[list.size()]);
     }
 
     /**
-     * Calculate every point and its color and store them in a Hash table.
-     *
-     * @return a Hash table which contains all the points' positions and colors of one image
+     * Returns all triangles of the shading, in the order they are painted.
      */
-    abstract Map<Point, Integer> calcPixelTable(Rectangle deviceBounds) throws IOException;
+    abstract List<ShadedTriangle> getTriangles();
 
     /**
-     * Get the points from the triangles, calculate their color and add point-color mappings.
+     * Calculates the RGB colors of the pixels of the triangles within the given tile. A pixel
+     * which is covered by several triangles gets the color of the last one.
+     *
+     * @param pixels the colors of the tile, with the alpha bits set for the calculated pixels
      */
-    protected void calcPixelTable(List<ShadedTriangle> triangleList, Map<Point, Integer> map,
-            Rectangle deviceBounds) throws IOException
+    private void calcPixels(int x, int y, int w, int h, int[] pixels) throws IOException
     {
-        for (ShadedTriangle tri : triangleList)
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        Point p = new Point();
+        for (RasterTriangle rasterTriangle : rasterTriangles)
         {
-            int degree = tri.getDeg();
-            if (degree == 2)
+            int minTileX = Math.max(rasterTriangle.minX, x);
+            int maxTileX = Math.min(rasterTriangle.maxX, maxX);
+            int minTileY = Math.max(rasterTriangle.minY, y);
+            int maxTileY = Math.min(rasterTriangle.maxY, maxY);
+            if (minTileX > maxTileX || minTileY > maxTileY)
+            {
+                continue;
+            }
+            ShadedTriangle tri = rasterTriangle.triangle;
+            if (tri.getDeg() == 2)
             {
                 Line line = tri.getLine();
-                for (Point p : line.linePoints)
+                for (Point linePoint : line.linePoints)
                 {
-                    map.put(p, evalFunctionAndConvertToRGB(line.calcColor(p)));
+                    if (linePoint.x >= x && linePoint.x <= maxX
+                            && linePoint.y >= y && linePoint.y <= maxY)
+                    {
+                        pixels[(linePoint.y - y) * w + linePoint.x - x] = 0xff000000
+                                | evalFunctionAndConvertToRGB(line.calcColor(linePoint));
+                    }
                 }
             }
             else
             {
-                int[] boundary = tri.getBoundary();
-                boundary[0] = Math.max(boundary[0], deviceBounds.x);
-                boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
-                boundary[2] = Math.max(boundary[2], deviceBounds.y);
-                boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
-                for (int x = boundary[0]; x <= boundary[1]; x++)
+                for (int px = minTileX; px <= maxTileX; px++)
                 {
-                    for (int y = boundary[2]; y <= boundary[3]; y++)
+                    for (int py = minTileY; py <= maxTileY; py++)
                     {
-                        Point p = new Point(x, y);
+                        p.setLocation(px, py);
                         if (tri.contains(p))
                         {
-                            map.put(p, evalFunctionAndConvertToRGB(tri.calcColor(p)));
+                            pixels[(py - y) * w + px - x] = 0xff000000
+                                    | evalFunctionAndConvertToRGB(tri.calcColor(p));
                         }
                     }
-                }         
+                }
             }
         }
     }
@@ -163,6 +201,15 @@ abstract class TriangleBasedShadingContext extends ShadingContext implements Pai
         int[] data = new int[w * h * 4];
         if (!isDataEmpty() || getBackground() != null)
         {
+            int[] pixels = new int[w * h];
+            try
+            {
+                calcPixels(x, y, w, h, pixels);
+            }
+            catch (IOException e)
+            {
+                LOG.error("error while processing shading", e);
+            }
             for (int row = 0; row < h; row++)
             {
                 int currentY = y + row;
@@ -177,13 +224,8 @@ abstract class TriangleBasedShadingContext extends ShadingContext implements Pai
                     {
                         continue;
                     }
-                    Point p = new Point(currentX, currentY);
-                    int value;
-                    if (pixelTable.containsKey(p))
-                    {
-                        value = pixelTable.get(p);
-                    }
-                    else
+                    int value = pixels[row * w + col];
+                    if (value == 0)
                     {
                         if (getBackground() == null)
                         {
@@ -204,4 +246,46 @@ abstract class TriangleBasedShadingContext extends ShadingContext implements Pai
         raster.setPixels(0, 0, w, h, data);
         return raster;
     }
+
+    /**
+     * A triangle with the bounds of the device pixels it may cover.
+     */
+    private static final class RasterTriangle
+    {
+        private final ShadedTriangle triangle;
+        private final int minX;
+        private final int maxX;
+        private final int minY;
+        private final int maxY;
+
+        RasterTriangle(ShadedTriangle triangle, int[] boundary)
+        {
+            this.triangle = triangle;
+            minX = boundary[0];
+            maxX = boundary[1];
+            minY = boundary[2];
+            maxY = boundary[3];
+        }
+
+        // a triangle which has degenerated to a line
+        RasterTriangle(ShadedTriangle triangle)
+        {
+            this.triangle = triangle;
+            int lineMinX = Integer.MAX_VALUE;
+            int lineMaxX = Integer.MIN_VALUE;
+            int lineMinY = Integer.MAX_VALUE;
+            int lineMaxY = Integer.MIN_VALUE;
+            for (Point p : triangle.getLine().linePoints)
+            {
+                lineMinX = Math.min(lineMinX, p.x);
+                lineMaxX = Math.max(lineMaxX, p.x);
+                lineMinY = Math.min(lineMinY, p.y);
+                lineMaxY = Math.max(lineMaxY, p.y);
+            }
+            minX = lineMinX;
+            maxX = lineMaxX;
+            minY = lineMinY;
+            maxY = lineMaxY;
+        }
+    }
 }
@@ -62,7 +62,7 @@ class Type4ShadingContext extends GouraudShadingContext
         //TODO handle cases where bitperflag isn't 8
         LOG.debug("bitsPerFlag: " + bitsPerFlag);
         setTriangleList(collectTriangles(shading, xform, matrix));
-        createPixelTable(deviceBounds);
+        createRasterTriangles(deviceBounds);
     }
 
     private List<ShadedTriangle> collectTriangles(PDShadingType4 freeTriangleShadingType, AffineTransform xform, Matrix matrix)
@@ -18,8 +18,11 @@ package org.apache.pdfbox.pdmodel.graphics.state;
 
 import java.awt.BasicStroke;
 import java.awt.Composite;
+import java.awt.Shape;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
 import org.apache.pdfbox.cos.COSBase;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -40,6 +43,8 @@ public class PDGraphicsState implements Cloneable
 {
     private boolean isClippingPathDirty;
     private Area clippingPath;
+    // the clipping path while it is an axis-aligned rectangle, clippingPath is then only a cache
+    private Rectangle2D clippingRectangle;
     private Matrix currentTransformationMatrix = new Matrix();
     private PDColor strokingColor = PDDeviceGray.INSTANCE.getInitialColor();
     private PDColor nonStrokingColor = PDDeviceGray.INSTANCE.getInitialColor();
@@ -76,7 +81,8 @@ public class PDGraphicsState implements Cloneable
      */
     public PDGraphicsState(PDRectangle page)
     {
-        clippingPath = new Area(page.toGeneralPath());
+        clippingRectangle = new Rectangle2D.Double(page.getLowerLeftX(), page.getLowerLeftY(),
+                page.getWidth(), page.getHeight());
     }
 
     /**
@@ -594,7 +600,15 @@ public class PDGraphicsState implements Cloneable
      */
     public void intersectClippingPath(GeneralPath path)
     {
-        intersectClippingPath(new Area(path));
+        Rectangle2D rectangle = getRectangle(path);
+        if (rectangle != null && clippingRectangle != null)
+        {
+            intersectClippingRectangle(rectangle);
+        }
+        else
+        {
+            intersectClippingPath(new Area(path));
+        }
     }
 
     /**
@@ -603,6 +617,20 @@ public class PDGraphicsState implements Cloneable
      */
     public void intersectClippingPath(Area area)
     {
+        if (clippingRectangle != null)
+        {
+            if (area.isRectangular())
+            {
+                intersectClippingRectangle(area.getBounds2D());
+                return;
+            }
+
+            // not a rectangle anymore, from now on the Area is used
+            clippingPath = new Area(clippingRectangle);
+            clippingRectangle = null;
+            isClippingPathDirty = true;
+        }
+
         // lazy cloning of clipping path for performance
         if (!isClippingPathDirty)
         {
@@ -618,13 +646,96 @@ public class PDGraphicsState implements Cloneable
         clippingPath.intersect(area);
     }
 
+    /**
+     * Intersects the rectangular clipping path with a rectangle. Rectangles aren't modified but
+     * replaced, so clones may share them.
+     */
+    private void intersectClippingRectangle(Rectangle2D rectangle)
+    {
+        double minX = Math.max(clippingRectangle.getMinX(), rectangle.getMinX());
+        double minY = Math.max(clippingRectangle.getMinY(), rectangle.getMinY());
+        double maxX = Math.min(clippingRectangle.getMaxX(), rectangle.getMaxX());
+        double maxY = Math.min(clippingRectangle.getMaxY(), rectangle.getMaxY());
+        clippingRectangle = new Rectangle2D.Double(minX, minY, Math.max(0, maxX - minX),
+                Math.max(0, maxY - minY));
+        clippingPath = null;
+    }
+
+    /**
+     * Returns the given path as a rectangle if it consists of a single axis-aligned rectangle,
+     * e.g. from the "re" operator, or null otherwise.
+     */
+    private static Rectangle2D getRectangle(GeneralPath path)
+    {
+        PathIterator iterator = path.getPathIterator(null);
+        double[] x = new double[5];
+        double[] y = new double[5];
+        double[] coords = new double[6];
+        int count = 0;
+        while (!iterator.isDone())
+        {
+            int type = iterator.currentSegment(coords);
+            if (type == PathIterator.SEG_CLOSE)
+            {
+                iterator.next();
+                break;
+            }
+            if (count == 5 || (type == PathIterator.SEG_MOVETO) != (count == 0)
+                    || type != PathIterator.SEG_MOVETO && type != PathIterator.SEG_LINETO)
+            {
+                return null;
+            }
+            x[count] = coords[0];
+            y[count] = coords[1];
+            count++;
+            iterator.next();
+        }
+        if (!iterator.isDone() || count < 4
+                || count == 5 && (x[4] != x[0] || y[4] != y[0]))
+        {
+            return null;
+        }
+        boolean verticalFirst = x[0] == x[1] && y[1] == y[2] && x[2] == x[3] && y[3] == y[0];
+        boolean horizontalFirst = y[0] == y[1] && x[1] == x[2] && y[2] == y[3] && x[3] == x[0];
+        if (!verticalFirst && !horizontalFirst)
+        {
+            return null;
+        }
+        double minX = Math.min(x[0], x[2]);
+        double minY = Math.min(y[0], y[2]);
+        return new Rectangle2D.Double(minX, minY, Math.max(x[0], x[2]) - minX,
+                Math.max(y[0], y[2]) - minY);
+    }
+
     /**
      * This will get the current clipping path. Do not modify this Area object!
+     * {@link #getCurrentClippingShape()} is faster when the clipping path is a rectangle.
      *
      * @return The current clipping path.
      */
     public Area getCurrentClippingPath()
     {
+        if (clippingRectangle != null && clippingPath == null)
+        {
+            clippingPath = new Area(clippingRectangle);
+        }
+        return clippingPath;
+    }
+
+    /**
+     * This will get the current clipping path, which is a {@link Rectangle2D} as long as only
+     * axis-aligned rectangles have been intersected with it, and an {@link Area} otherwise.
+     * Rectangular clipping paths are intersected without the costly Area operations. The same
+     * object is returned until the clipping path changes. Do not modify this Shape object!
+     *
+     * @return The current clipping path.
+     */
+    public Shape getCurrentClippingShape()
+    {
+        if (clippingRectangle != null)
+        {
+            return clippingRectangle;
+        }
         return clippingPath;
     }
 
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.rendering;
 
+import java.awt.Shape;
 import java.awt.geom.GeneralPath;
 import java.io.IOException;
 import java.util.HashMap;
@@ -23,11 +24,13 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDVectorFont;
 
 /**
- * A simple glyph outline cache.
+ * A simple glyph outline cache. The outlines of embedded TrueType fonts are taken from the
+ * process-wide {@link GlyphOutlineCache}, so they are shared with other documents.
  *
  * @author John Hewson
  */
@@ -36,16 +39,25 @@ final class GlyphCache
     private static final Log LOG = LogFactory.getLog(GlyphCache.class);
     
     private final PDVectorFont font;
-    private final Map<Integer, GeneralPath> cache = new HashMap<Integer, GeneralPath>();
+    private final Map<Integer, Shape> cache = new HashMap<Integer, Shape>();
+    private final GlyphOutlineCache sharedCache;
+    private final Object fontKey;
 
     public GlyphCache(PDVectorFont font)
+    {
+        this(font, GlyphOutlineCache.getSharedInstance());
+    }
+
+    GlyphCache(PDVectorFont font, GlyphOutlineCache sharedCache)
     {
         this.font = font;
+        this.sharedCache = sharedCache;
+        this.fontKey = sharedCache.getFontKey(font);
     }
     
-    public GeneralPath getPathForCharacterCode(int code)
+    public Shape getPathForCharacterCode(int code)
     {
-        GeneralPath path = cache.get(code);
+        Shape path = cache.get(code);
         if (path != null)
         {
             return path;
@@ -68,7 +80,19 @@ final class GlyphCache
                 }
             }
 
-            path = font.getNormalizedPath(code);
+            if (fontKey != null)
+            {
+                int gid = codeToGID(code);
+                path = sharedCache.get(fontKey, gid);
+                if (path == null)
+                {
+                    path = sharedCache.put(fontKey, gid, font.getNormalizedPath(code));
+                }
+            }
+            else
+            {
+                path = font.getNormalizedPath(code);
+            }
             cache.put(code, path);
             return path;
         }
@@ -79,4 +103,13 @@ final class GlyphCache
             return new GeneralPath();
         }
     }
+
+    private int codeToGID(int code) throws IOException
+    {
+        if (font instanceof PDType0Font)
+        {
+            return ((PDType0Font) font).codeToGID(code);
+        }
+        return ((PDTrueTypeFont) font).codeToGID(code);
+    }
 }
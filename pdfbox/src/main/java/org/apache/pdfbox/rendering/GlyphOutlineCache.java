@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDCIDFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDVectorFont;
+
+/**
+ * A process-wide cache of normalized glyph outlines, shared by all documents and threads.
+ *
+ * <p>Glyphs are keyed by a digest of the embedded font program and the glyph ID, so identical
+ * subset fonts in different documents share their outlines, while the character code mapping
+ * (encoding, cmap, CIDToGIDMap) is still done by each font. Only embedded TrueType fonts, simple
+ * or CIDFontType2, are cached here, as their normalized outline depends on nothing but the font
+ * program and the GID. The returned shapes are immutable.</p>
+ *
+ * <p>The cache has a fixed budget of estimated bytes, the least recently used outlines are
+ * evicted when it is exceeded.</p>
+ */
+public final class GlyphOutlineCache
+{
+    private static final Log LOG = LogFactory.getLog(GlyphOutlineCache.class);
+
+    /** the budget of the shared instance, 16 MB. */
+    private static final long DEFAULT_MAX_WEIGHT = 16L * 1024 * 1024;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private static final GlyphOutlineCache SHARED = new GlyphOutlineCache(DEFAULT_MAX_WEIGHT);
+
+    private final Segment[] segments;
+
+    // digests of the font programs, computed once per stream
+    private final Map<COSStream, FontKey> fontKeys = new WeakHashMap<COSStream, FontKey>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Returns the instance used by {@link PageDrawer}.
+     *
+     * @return the shared cache
+     */
+    public static GlyphOutlineCache getSharedInstance()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxWeight the budget of the cache in (estimated) bytes
+     */
+    public GlyphOutlineCache(long maxWeight)
+    {
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("maxWeight must not be negative");
+        }
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++)
+        {
+            segments[i] = new Segment(maxWeight / SEGMENT_COUNT);
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found an outline.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which didn't find an outline.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of outlines which were evicted to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the estimated weight of all cached outlines.
+     *
+     * @return the total weight in bytes
+     */
+    public long getWeight()
+    {
+        long weight = 0;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the number of cached outlines.
+     *
+     * @return the number of cached outlines
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all outlines from the cache.
+     */
+    public void clear()
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the font program of the given font, or null if the outlines of the font
+     * can't be shared.
+     *
+     * @param font the font
+     * @return the key of the font program or null
+     */
+    Object getFontKey(PDVectorFont font)
+    {
+        PDStream program = getFontProgram((PDFont) font);
+        if (program == null)
+        {
+            return null;
+        }
+        COSStream stream = program.getCOSObject();
+        synchronized (fontKeys)
+        {
+            FontKey key = fontKeys.get(stream);
+            if (key != null)
+            {
+                return key;
+            }
+        }
+        FontKey key;
+        try
+        {
+            key = new FontKey(digest(program));
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Could not compute the digest of font " + ((PDFont) font).getName(), e);
+            return null;
+        }
+        synchronized (fontKeys)
+        {
+            fontKeys.put(stream, key);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the embedded TrueType program of a font whose outlines depend only on the program
+     * and the GID, or null.
+     */
+    private static PDStream getFontProgram(PDFont font)
+    {
+        if (!font.isEmbedded() || font.isDamaged() || font.willBeSubset())
+        {
+            return null;
+        }
+        if (font instanceof PDTrueTypeFont)
+        {
+            PDFontDescriptor fd = font.getFontDescriptor();
+            return fd != null ? fd.getFontFile2() : null;
+        }
+        if (font instanceof PDType0Font)
+        {
+            PDCIDFont descendant = ((PDType0Font) font).getDescendantFont();
+            PDFontDescriptor fd = descendant.getFontDescriptor();
+            if (descendant instanceof PDCIDFontType2 && fd != null)
+            {
+                // same order as in PDCIDFontType2
+                if (fd.getFontFile2() != null)
+                {
+                    return fd.getFontFile2();
+                }
+                else if (fd.getFontFile3() != null)
+                {
+                    return fd.getFontFile3();
+                }
+                return fd.getFontFile();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] digest(PDStream program) throws IOException
+    {
+        MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new IOException(e);
+        }
+        InputStream input = program.createInputStream();
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1)
+            {
+                md.update(buffer, 0, count);
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+        return md.digest();
+    }
+
+    /**
+     * Returns a cached outline.
+     *
+     * @param fontKey the key returned by {@link #getFontKey(PDVectorFont)}
+     * @param gid the glyph ID
+     * @return the outline or null if it isn't cached
+     */
+    Shape get(Object fontKey, int gid)
+    {
+        GlyphKey key = new GlyphKey((FontKey) fontKey, gid);
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment)
+        {
+            entry = segment.entries.get(key);
+        }
+        if (entry != null)
+        {
+            hitCount.incrementAndGet();
+            return entry.outline;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds an outline to the cache.
+     *
+     * @param fontKey the key returned by {@link #getFontKey(PDVectorFont)}
+     * @param gid the glyph ID
+     * @param path the normalized outline, it is copied
+     * @return the immutable outline which was cached
+     */
+    Shape put(Object fontKey, int gid, GeneralPath path)
+    {
+        GlyphKey key = new GlyphKey((FontKey) fontKey, gid);
+        ImmutablePath outline = new ImmutablePath(path);
+        Segment segment = segmentFor(key);
+        synchronized (segment)
+        {
+            if (outline.weight > segment.maxWeight)
+            {
+                return outline;
+            }
+            Entry old = segment.entries.put(key, new Entry(outline));
+            if (old != null)
+            {
+                segment.weight -= old.outline.weight;
+            }
+            segment.weight += outline.weight;
+            Iterator<Entry> iterator = segment.entries.values().iterator();
+            while (segment.weight > segment.maxWeight && iterator.hasNext())
+            {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                segment.weight -= eldest.outline.weight;
+                evictionCount.incrementAndGet();
+            }
+        }
+        return outline;
+    }
+
+    private Segment segmentFor(GlyphKey key)
+    {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[(h & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * The digest of a font program.
+     */
+    private static final class FontKey
+    {
+        private final byte[] digest;
+        private final int hash;
+
+        private FontKey(byte[] digest)
+        {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof FontKey && Arrays.equals(digest, ((FontKey) obj).digest);
+        }
+    }
+
+    /**
+     * A glyph of a font program.
+     */
+    private static final class GlyphKey
+    {
+        private final FontKey font;
+        private final int gid;
+
+        private GlyphKey(FontKey font, int gid)
+        {
+            this.font = font;
+            this.gid = gid;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return font.hash * 31 + gid;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof GlyphKey))
+            {
+                return false;
+            }
+            GlyphKey other = (GlyphKey) obj;
+            return gid == other.gid && font.equals(other.font);
+        }
+    }
+
+    /**
+     * A cached outline.
+     */
+    private static final class Entry
+    {
+        private final ImmutablePath outline;
+
+        private Entry(ImmutablePath outline)
+        {
+            this.outline = outline;
+        }
+    }
+
+    /**
+     * A part of the cache, guarded by its own monitor. The map is in access order, so iterating
+     * it starts with the least recently used entry.
+     */
+    private static final class Segment
+    {
+        private final Map<GlyphKey, Entry> entries =
+                new LinkedHashMap<GlyphKey, Entry>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(long maxWeight)
+        {
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    /**
+     * A read-only view of a private copy of a path, so it can be used by several threads.
+     */
+    private static final class ImmutablePath implements Shape
+    {
+        private final Path2D.Float path;
+        private final long weight;
+
+        private ImmutablePath(GeneralPath source)
+        {
+            path = new Path2D.Float(source);
+            weight = weigh(path);
+        }
+
+        /**
+         * Estimates the memory used by a path from the number of its coordinates and segments.
+         */
+        private static long weigh(Path2D path)
+        {
+            long weight = 64;
+            float[] coords = new float[6];
+            for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next())
+            {
+                switch (it.currentSegment(coords))
+                {
+                    case PathIterator.SEG_MOVETO:
+                    case PathIterator.SEG_LINETO:
+                        weight += 9;
+                        break;
+                    case PathIterator.SEG_QUADTO:
+                        weight += 17;
+                        break;
+                    case PathIterator.SEG_CUBICTO:
+                        weight += 25;
+                        break;
+                    default:
+                        weight += 1;
+                        break;
+                }
+            }
+            return weight;
+        }
+
+        @Override
+        public Rectangle getBounds()
+        {
+            return path.getBounds();
+        }
+
+        @Override
+        public Rectangle2D getBounds2D()
+        {
+            return path.getBounds2D();
+        }
+
+        @Override
+        public boolean contains(double x, double y)
+        {
+            return path.contains(x, y);
+        }
+
+        @Override
+        public boolean contains(Point2D p)
+        {
+            return path.contains(p);
+        }
+
+        @Override
+        public boolean intersects(double x, double y, double w, double h)
+        {
+            return path.intersects(x, y, w, h);
+        }
+
+        @Override
+        public boolean intersects(Rectangle2D r)
+        {
+            return path.intersects(r);
+        }
+
+        @Override
+        public boolean contains(double x, double y, double w, double h)
+        {
+            return path.contains(x, y, w, h);
+        }
+
+        @Override
+        public boolean contains(Rectangle2D r)
+        {
+            return path.contains(r);
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at)
+        {
+            return path.getPathIterator(at);
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at, double flatness)
+        {
+            return path.getPathIterator(at, flatness);
+        }
+    }
+}
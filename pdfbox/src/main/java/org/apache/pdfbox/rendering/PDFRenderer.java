@@ -35,6 +35,8 @@ public class PDFRenderer
     protected final PDDocument document;
     // TODO keep rendering state such as caches here
 
+    private boolean subsamplingAllowed = false;
+
     /**
      * Creates a new PDFRenderer.
      * @param document the document to render
@@ -44,6 +46,30 @@ public class PDFRenderer
         this.document = document;
     }
 
+    /**
+     * Returns whether large images may be read at a lower resolution.
+     *
+     * @return true if subsampling is allowed
+     */
+    public boolean isSubsamplingAllowed()
+    {
+        return subsamplingAllowed;
+    }
+
+    /**
+     * Sets whether large images may be read at a lower resolution when they are drawn at a small
+     * size. Only every n-th pixel of such an image is decoded, with n chosen so that the image
+     * still has at least one pixel per device pixel. This makes rendering thumbnails and previews
+     * of scanned pages much faster and needs much less memory, but the quality may suffer, so
+     * it is disabled by default.
+     *
+     * @param subsamplingAllowed true to allow subsampling
+     */
+    public void setSubsamplingAllowed(boolean subsamplingAllowed)
+    {
+        this.subsamplingAllowed = subsamplingAllowed;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -140,7 +166,7 @@ public class PDFRenderer
         transform(g, page, scale);
 
         // the end-user may provide a custom PageDrawer
-        PageDrawerParameters parameters = new PageDrawerParameters(this, page);
+        PageDrawerParameters parameters = new PageDrawerParameters(this, page, subsamplingAllowed);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(g, page.getCropBox());       
         
@@ -179,7 +205,7 @@ public class PDFRenderer
         graphics.clearRect(0, 0, (int) cropBox.getWidth(), (int) cropBox.getHeight());
 
         // the end-user may provide a custom PageDrawer
-        PageDrawerParameters parameters = new PageDrawerParameters(this, page);
+        PageDrawerParameters parameters = new PageDrawerParameters(this, page, subsamplingAllowed);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(graphics, cropBox);
     }
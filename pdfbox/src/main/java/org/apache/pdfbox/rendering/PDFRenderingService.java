@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.ThreadLocalResourceCache;
+
+/**
+ * Renders the pages of a document concurrently on the threads of an {@link ExecutorService}.
+ *
+ * <p>The number of pages being rendered or waiting in a callback is limited, submitting more pages
+ * blocks until one of them is done. With the callback methods this bounds the number of images
+ * in memory, as the permit of a page is only returned after its callback has finished.</p>
+ *
+ * <p>Thread safety contract: the document must have been loaded completely and must not be
+ * modified or closed before this service has been closed. Fonts keep mutable state, so the
+ * resource cache of the document is replaced by a {@link ThreadLocalResourceCache} while the
+ * service is open. Every worker thread has its own fonts, color spaces and other resources, while
+ * image XObjects are shared by all workers, so that an image is decoded once. The glyph outlines
+ * of embedded TrueType fonts are shared through {@link GlyphOutlineCache}.</p>
+ */
+public class PDFRenderingService implements Closeable
+{
+    private static final Log LOG = LogFactory.getLog(PDFRenderingService.class);
+
+    /**
+     * Receives the rendered pages. The methods are called by the worker threads.
+     */
+    public interface PageCallback
+    {
+        /**
+         * Called when a page has been rendered.
+         *
+         * @param pageIndex the zero-based index of the page
+         * @param image the rendered page
+         */
+        void pageRendered(int pageIndex, BufferedImage image);
+
+        /**
+         * Called when a page could not be rendered.
+         *
+         * @param pageIndex the zero-based index of the page
+         * @param exception the reason of the failure
+         */
+        void pageFailed(int pageIndex, Exception exception);
+    }
+
+    private final PDFRenderer renderer;
+    private final PDDocument document;
+    private final ExecutorService executor;
+    private final int maxPendingPages;
+    private final Semaphore permits;
+    private final ResourceCache resourceCache;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param renderer the renderer, it is shared by all workers
+     * @param executor the executor which runs the tasks, it is not shut down by this class
+     * @param maxPendingPages the maximum number of pages being rendered or waiting for a callback
+     */
+    public PDFRenderingService(PDFRenderer renderer, ExecutorService executor, int maxPendingPages)
+    {
+        if (maxPendingPages < 1)
+        {
+            throw new IllegalArgumentException("maxPendingPages must be positive: "
+                    + maxPendingPages);
+        }
+        this.renderer = renderer;
+        this.document = renderer.document;
+        this.executor = executor;
+        this.maxPendingPages = maxPendingPages;
+        this.permits = new Semaphore(maxPendingPages);
+        this.resourceCache = document.getResourceCache();
+        document.setResourceCache(new ThreadLocalResourceCache(true));
+    }
+
+    /**
+     * Submits a page for rendering. This blocks while the maximum number of pages is pending. The
+     * permit is returned as soon as the page has been rendered, so the caller is responsible for
+     * not keeping too many of the returned images.
+     *
+     * @param pageIndex the zero-based index of the page
+     * @param dpi the DPI (dots per inch) to render at
+     * @param imageType the type of image to return
+     * @return the future rendered image
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Future<BufferedImage> submit(final int pageIndex, final float dpi,
+            final ImageType imageType) throws InterruptedException
+    {
+        return submitTask(pageIndex, new Callable<BufferedImage>()
+        {
+            @Override
+            public BufferedImage call() throws IOException
+            {
+                try
+                {
+                    return renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+                }
+                finally
+                {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Submits a page for rendering, the result is passed to the callback. This blocks while the
+     * maximum number of pages is pending.
+     *
+     * @param pageIndex the zero-based index of the page
+     * @param dpi the DPI (dots per inch) to render at
+     * @param imageType the type of image to create
+     * @param callback receives the rendered page
+     * @return a future which can be used to cancel the task
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Future<?> submit(final int pageIndex, final float dpi, final ImageType imageType,
+            final PageCallback callback) throws InterruptedException
+    {
+        return submitTask(pageIndex, new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                try
+                {
+                    render(pageIndex, dpi, imageType, callback);
+                }
+                finally
+                {
+                    permits.release();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Renders a range of pages and waits until all of them have been passed to the callback.
+     *
+     * @param firstPage the zero-based index of the first page
+     * @param lastPage the zero-based index of the last page
+     * @param dpi the DPI (dots per inch) to render at
+     * @param imageType the type of image to create
+     * @param callback receives the rendered pages
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public void renderPages(int firstPage, int lastPage, final float dpi,
+            final ImageType imageType, final PageCallback callback) throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(lastPage - firstPage + 1);
+        for (int i = firstPage; i <= lastPage; i++)
+        {
+            final int pageIndex = i;
+            submitTask(pageIndex, new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    try
+                    {
+                        render(pageIndex, dpi, imageType, callback);
+                    }
+                    finally
+                    {
+                        permits.release();
+                        done.countDown();
+                    }
+                    return null;
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void render(int pageIndex, float dpi, ImageType imageType, PageCallback callback)
+    {
+        BufferedImage image;
+        try
+        {
+            image = renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+        }
+        catch (Exception e)
+        {
+            callback.pageFailed(pageIndex, e);
+            return;
+        }
+        try
+        {
+            callback.pageRendered(pageIndex, image);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Page callback failed for page " + pageIndex, e);
+        }
+    }
+
+    private <T> Future<T> submitTask(int pageIndex, Callable<T> task) throws InterruptedException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                throw new IllegalStateException("The rendering service has been closed");
+            }
+        }
+        permits.acquire();
+        try
+        {
+            // resolve the page on the calling thread, this checks the index and repairs the page
+            // dictionary if necessary, so that the workers only read it
+            document.getPage(pageIndex);
+            return executor.submit(task);
+        }
+        catch (RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for all pending pages and restores the resource cache of the document.
+     *
+     * @throws IOException if the thread was interrupted while waiting
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+        }
+        try
+        {
+            permits.acquire(maxPendingPages);
+            permits.release(maxPendingPages);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the pending pages", e);
+        }
+        finally
+        {
+            document.setResourceCache(resourceCache);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.awt.TexturePaint;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -55,6 +56,8 @@ import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
 import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
 import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
 import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
 import org.apache.pdfbox.pdmodel.graphics.pattern.PDShadingPattern;
 import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
@@ -85,6 +88,9 @@ public class PageDrawer extends PDFGraphicsStreamEngine
 
     // parent document renderer - note: this is needed for not-yet-implemented resource caching
     private final PDFRenderer renderer;
+
+    // whether large images may be read at a lower resolution
+    private final boolean subsamplingAllowed;
     
     // the graphics device to draw to, xform is the initial transform of the device (i.e. DPI)
     private Graphics2D graphics;
@@ -104,7 +110,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     private GeneralPath linePath = new GeneralPath();
     
     // last clipping path
-    private Area lastClip;
+    private Shape lastClip;
     
     // buffered clipping area for text being drawn
     private Area textClippingArea;
@@ -122,6 +128,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     {
         super(parameters.getPage());
         this.renderer = parameters.getRenderer();
+        this.subsamplingAllowed = parameters.isSubsamplingAllowed();
     }
 
     /**
@@ -215,7 +222,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         GeneralPath oldLinePath = linePath;
         linePath = new GeneralPath();
 
-        Area oldLastClip = lastClip;
+        Shape oldLastClip = lastClip;
         lastClip = null;
         
         boolean oldFlipTG = flipTG;
@@ -281,10 +288,19 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     // Graphics2D#getClip() returns a new object instead of the same one passed to setClip
     private void setClip()
     {
-        Area clippingPath = getGraphicsState().getCurrentClippingPath();
+        Shape clippingPath = getGraphicsState().getCurrentClippingShape();
         if (clippingPath != lastClip)
         {
-            graphics.setClip(clippingPath);
+            if (clippingPath instanceof Rectangle2D)
+            {
+                // Java2D rounds the bounds of a Rectangle2D clip outwards, a path is rasterized
+                // like any other clipping path
+                graphics.setClip(new Path2D.Double(clippingPath));
+            }
+            else
+            {
+                graphics.setClip(clippingPath);
+            }
             lastClip = clippingPath;
         }
     }
@@ -343,21 +359,21 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             glyphCaches.put(font, cache);
         }
         
-        GeneralPath path = cache.getPathForCharacterCode(code);
+        Shape path = cache.getPathForCharacterCode(code);
         drawGlyph(path, font, code, displacement, at);
     }
 
     /**
      * Renders a glyph.
      * 
-     * @param path the GeneralPath for the glyph
+     * @param path the outline of the glyph
      * @param font the font
      * @param code character code
      * @param displacement the glyph's displacement (advance)
      * @param at the transformation
      * @throws IOException if something went wrong
      */
-    private void drawGlyph(GeneralPath path, PDFont font, int code, Vector displacement, AffineTransform at) throws IOException
+    private void drawGlyph(Shape path, PDFont font, int code, Vector displacement, AffineTransform at) throws IOException
     {
         PDGraphicsState state = getGraphicsState();
         RenderingMode renderingMode = state.getTextState().getRenderingMode();
@@ -721,8 +737,20 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
         else
         {
-            // draw the image
-            drawBufferedImage(pdImage.getImage(), at);
+            // draw the image, large images drawn at a small size may be read subsampled
+            int subsampling = subsamplingAllowed ? getSubsampling(pdImage, at) : 1;
+            if (subsampling > 1 && pdImage instanceof PDImageXObject)
+            {
+                drawBufferedImage(((PDImageXObject) pdImage).getImage(null, subsampling), at);
+            }
+            else if (subsampling > 1 && pdImage instanceof PDInlineImage)
+            {
+                drawBufferedImage(((PDInlineImage) pdImage).getImage(null, subsampling), at);
+            }
+            else
+            {
+                drawBufferedImage(pdImage.getImage(), at);
+            }
         }
 
         if (!pdImage.getInterpolate())
@@ -733,6 +761,22 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    /**
+     * Returns the largest subsampling factor for which the image still has at least one pixel per
+     * device pixel, so that scaling it down is still done with interpolation.
+     */
+    private int getSubsampling(PDImage pdImage, AffineTransform at)
+    {
+        AffineTransform deviceTransform = new AffineTransform(graphics.getTransform());
+        deviceTransform.concatenate(at);
+        double deviceWidth = Math.hypot(deviceTransform.getScaleX(), deviceTransform.getShearY());
+        double deviceHeight = Math.hypot(deviceTransform.getShearX(), deviceTransform.getScaleY());
+        int width = pdImage.getWidth();
+        int height = pdImage.getHeight();
+        double subsampling = Math.floor(Math.min(width / deviceWidth, height / deviceHeight));
+        return (int) Math.max(1, Math.min(subsampling, Math.min(width, height)));
+    }
+
     private void drawBufferedImage(BufferedImage image, AffineTransform at) throws IOException
     {
         graphics.setComposite(getGraphicsState().getNonStrokingJavaComposite());
@@ -1124,7 +1168,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         private TransparencyGroup(PDTransparencyGroup form, boolean isSoftMask) throws IOException
         {
             Graphics2D g2dOriginal = graphics;
-            Area lastClipOriginal = lastClip;
+            Shape lastClipOriginal = lastClip;
 
             // get the CTM x Form Matrix transform
             Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
@@ -1134,7 +1178,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             GeneralPath transformedBox = form.getBBox().transform(transform);
 
             // clip the bbox to prevent giant bboxes from consuming all memory
-            Area clip = (Area)getGraphicsState().getCurrentClippingPath().clone();
+            Area clip = new Area(getGraphicsState().getCurrentClippingShape());
             clip.intersect(new Area(transformedBox));
             Rectangle2D clipRect = clip.getBounds2D();
             this.bbox = new PDRectangle((float)clipRect.getX(), (float)clipRect.getY(),
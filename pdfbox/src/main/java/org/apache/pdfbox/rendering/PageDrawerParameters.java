@@ -30,14 +30,16 @@ public final class PageDrawerParameters
 {
     private final PDFRenderer renderer;
     private final PDPage page;
+    private final boolean subsamplingAllowed;
 
     /**
      * Package-private constructor.
      */
-    PageDrawerParameters(PDFRenderer renderer, PDPage page)
+    PageDrawerParameters(PDFRenderer renderer, PDPage page, boolean subsamplingAllowed)
     {
         this.renderer = renderer;
         this.page = page;
+        this.subsamplingAllowed = subsamplingAllowed;
     }
 
     /**
@@ -48,6 +50,14 @@ public final class PageDrawerParameters
         return page;
     }
     
+    /**
+     * Returns whether large images may be read at a lower resolution.
+     */
+    public boolean isSubsamplingAllowed()
+    {
+        return subsamplingAllowed;
+    }
+
     /**
      * Returns the renderer.
      */
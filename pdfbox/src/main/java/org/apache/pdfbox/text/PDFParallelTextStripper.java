@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.ThreadLocalResourceCache;
+
+/**
+ * Extracts the text of a document by distributing its pages over the threads of an
+ * {@link ExecutorService}. Every task gets its own {@link PDFTextStripper} which extracts a
+ * contiguous range of pages, the results are written to the output in page order.
+ *
+ * <p>Thread safety contract: the document must have been loaded completely, i.e. by one of the
+ * <code>PDDocument.load()</code> methods, and it must not be modified or closed while the text is
+ * being extracted. The workers only read the shared COS objects. Page resources such as fonts
+ * keep mutable state, so the resource cache of the document is replaced by a
+ * {@link ThreadLocalResourceCache} during the extraction and restored afterwards.</p>
+ *
+ * <p>As every task runs its own stripper, {@link PDFTextStripper#startDocument(PDDocument)} and
+ * {@link PDFTextStripper#endDocument(PDDocument)} are called once per task.</p>
+ */
+public class PDFParallelTextStripper
+{
+    /**
+     * Creates the configured {@link PDFTextStripper} instances used by the tasks.
+     */
+    public interface StripperFactory
+    {
+        /**
+         * Creates a new text stripper. Each call must return a new instance.
+         *
+         * @return a new text stripper
+         * @throws IOException if the stripper could not be created
+         */
+        PDFTextStripper createStripper() throws IOException;
+    }
+
+    private final StripperFactory stripperFactory;
+    private final ExecutorService executor;
+    private int pagesPerTask = 8;
+
+    /**
+     * Constructor.
+     *
+     * @param stripperFactory the factory for the text strippers of the tasks
+     * @param executor the executor which runs the tasks, it is not shut down by this class
+     */
+    public PDFParallelTextStripper(StripperFactory stripperFactory, ExecutorService executor)
+    {
+        this.stripperFactory = stripperFactory;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the number of pages extracted by a single task.
+     *
+     * @return the number of pages per task
+     */
+    public int getPagesPerTask()
+    {
+        return pagesPerTask;
+    }
+
+    /**
+     * Sets the number of pages extracted by a single task. Every task iterates over the page tree,
+     * so very small values add overhead for documents with many pages.
+     *
+     * @param pagesPerTask the number of pages per task
+     */
+    public void setPagesPerTask(int pagesPerTask)
+    {
+        if (pagesPerTask < 1)
+        {
+            throw new IllegalArgumentException("pagesPerTask must be positive: " + pagesPerTask);
+        }
+        this.pagesPerTask = pagesPerTask;
+    }
+
+    /**
+     * This will return the text of a document.
+     *
+     * @param doc The document to get the text from.
+     * @return The text of the PDF document.
+     * @throws IOException if one of the pages could not be processed.
+     */
+    public String getText(PDDocument doc) throws IOException
+    {
+        StringWriter outputStream = new StringWriter();
+        writeText(doc, outputStream);
+        return outputStream.toString();
+    }
+
+    /**
+     * This will write the text of the document to the given writer.
+     *
+     * @param doc The document to get the data from.
+     * @param outputStream The location to put the text.
+     * @throws IOException if one of the pages could not be processed.
+     */
+    public void writeText(PDDocument doc, Writer outputStream) throws IOException
+    {
+        int pageCount = doc.getNumberOfPages();
+        int taskCount = (pageCount + pagesPerTask - 1) / pagesPerTask;
+        CountDownLatch finished = new CountDownLatch(taskCount);
+        List<ExtractionTask> tasks = new ArrayList<ExtractionTask>(taskCount);
+        for (int first = 1; first <= pageCount; first += pagesPerTask)
+        {
+            int last = Math.min(first + pagesPerTask - 1, pageCount);
+            tasks.add(new ExtractionTask(doc, first, last, finished));
+        }
+
+        List<Future<String>> results = new ArrayList<Future<String>>(taskCount);
+        ResourceCache resourceCache = doc.getResourceCache();
+        doc.setResourceCache(new ThreadLocalResourceCache());
+        boolean done = false;
+        try
+        {
+            for (ExtractionTask task : tasks)
+            {
+                results.add(executor.submit(task));
+            }
+
+            // wait for all tasks, even after a failure, as they still use the document
+            IOException ioException = null;
+            RuntimeException runtimeException = null;
+            for (Future<String> result : results)
+            {
+                try
+                {
+                    String text = getResult(result);
+                    if (ioException == null && runtimeException == null)
+                    {
+                        outputStream.write(text);
+                    }
+                }
+                catch (IOException ex)
+                {
+                    if (ioException == null && runtimeException == null)
+                    {
+                        ioException = ex;
+                    }
+                }
+                catch (RuntimeException ex)
+                {
+                    if (ioException == null && runtimeException == null)
+                    {
+                        runtimeException = ex;
+                    }
+                }
+            }
+            done = true;
+            if (ioException != null)
+            {
+                throw ioException;
+            }
+            if (runtimeException != null)
+            {
+                throw runtimeException;
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the text extraction", ex);
+        }
+        finally
+        {
+            if (!done)
+            {
+                // the tasks which are still running must not see the original resource cache
+                cancel(tasks, results, finished);
+            }
+            doc.setResourceCache(resourceCache);
+        }
+    }
+
+    /**
+     * Cancels the tasks which haven't started yet, interrupts the running ones and waits until
+     * they have finished. The interrupted status of the current thread is preserved.
+     */
+    private static void cancel(List<ExtractionTask> tasks, List<Future<String>> results,
+            CountDownLatch finished)
+    {
+        for (ExtractionTask task : tasks)
+        {
+            task.cancel();
+        }
+        for (Future<String> result : results)
+        {
+            result.cancel(true);
+        }
+        boolean interrupted = Thread.interrupted();
+        while (true)
+        {
+            try
+            {
+                finished.await();
+                break;
+            }
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String getResult(Future<String> result)
+            throws IOException, InterruptedException
+    {
+        try
+        {
+            return result.get();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Extracts the text of a range of pages. The task counts down the latch when it has finished,
+     * or when it has been cancelled before it started.
+     */
+    private final class ExtractionTask implements Callable<String>
+    {
+        private final PDDocument doc;
+        private final int startPage;
+        private final int endPage;
+        private final CountDownLatch finished;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        ExtractionTask(PDDocument doc, int startPage, int endPage, CountDownLatch finished)
+        {
+            this.doc = doc;
+            this.startPage = startPage;
+            this.endPage = endPage;
+            this.finished = finished;
+        }
+
+        @Override
+        public String call() throws IOException
+        {
+            if (!claimed.compareAndSet(false, true))
+            {
+                // cancelled before it started
+                return null;
+            }
+            try
+            {
+                PDFTextStripper stripper = stripperFactory.createStripper();
+                stripper.setStartPage(startPage);
+                stripper.setEndPage(endPage);
+                return stripper.getText(doc);
+            }
+            finally
+            {
+                finished.countDown();
+            }
+        }
+
+        void cancel()
+        {
+            if (claimed.compareAndSet(false, true))
+            {
+                finished.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link COSDocument}.
+ */
+public class TestCOSDocument extends TestCase
+{
+    private static final int OBJECT_COUNT = 1000;
+
+    /**
+     * Tests that concurrent lookups of the same keys always return the same pooled object.
+     *
+     * @throws Exception if something went wrong
+     */
+    public void testConcurrentGetObjectFromPool() throws Exception
+    {
+        final COSDocument document = new COSDocument();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<COSObject[]>> results = new ArrayList<Future<COSObject[]>>();
+            for (int i = 0; i < 4; i++)
+            {
+                results.add(executor.submit(new Callable<COSObject[]>()
+                {
+                    @Override
+                    public COSObject[] call() throws IOException
+                    {
+                        COSObject[] objects = new COSObject[OBJECT_COUNT];
+                        for (int nr = 0; nr < OBJECT_COUNT; nr++)
+                        {
+                            objects[nr] = document.getObjectFromPool(new COSObjectKey(nr, 0));
+                        }
+                        return objects;
+                    }
+                }));
+            }
+            COSObject[] expected = results.get(0).get();
+            for (Future<COSObject[]> result : results)
+            {
+                COSObject[] objects = result.get();
+                for (int nr = 0; nr < OBJECT_COUNT; nr++)
+                {
+                    assertSame(expected[nr], objects[nr]);
+                    assertEquals(nr, objects[nr].getObjectNumber());
+                }
+            }
+            assertEquals(OBJECT_COUNT, document.getObjects().size());
+        }
+        finally
+        {
+            executor.shutdown();
+            document.close();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.pdfbox.cos;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
 
@@ -129,6 +130,53 @@ public class TestCOSStream extends TestCase
         validateDecoded(stream, testString);
     }
 
+    /**
+     * Tests the cache of the decoded data: hits, invalidation on write and LRU eviction.
+     *
+     * @throws IOException
+     */
+    public void testDecodedStreamCache() throws IOException
+    {
+        byte[] testString1 = "This is the first test string of TestCOSStream".getBytes("ASCII");
+        byte[] testString2 = "This is the second test string of TestCOSStream".getBytes("ASCII");
+        COSDocument document = new COSDocument();
+        COSStream stream1 = document.createCOSStream();
+        writeStream(stream1, testString1);
+        DecodedStreamCache cache = new DecodedStreamCache(testString1.length + 10);
+        document.setDecodedStreamCache(cache);
+        COSStream stream2 = document.createCOSStream();
+        writeStream(stream2, testString2);
+
+        // the second read is a hit, even while the first stream is still open
+        InputStream input = stream1.createInputStream();
+        assertTrue(Arrays.equals(testString1, IOUtils.toByteArray(stream1.createInputStream())));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(testString1.length, cache.getSize());
+
+        // the first stream is evicted but can still be read
+        assertTrue(Arrays.equals(testString2, IOUtils.toByteArray(stream2.createInputStream())));
+        assertEquals(testString2.length, cache.getSize());
+        assertTrue(Arrays.equals(testString1, IOUtils.toByteArray(input)));
+        input.close();
+
+        // the cached data is removed when the stream is written
+        writeStream(stream2, testString1);
+        assertEquals(0, cache.getSize());
+        assertTrue(Arrays.equals(testString1, IOUtils.toByteArray(stream2.createInputStream())));
+        assertEquals(3, cache.getMissCount());
+
+        document.close();
+        assertEquals(0, cache.getSize());
+    }
+
+    private void writeStream(COSStream stream, byte[] testString) throws IOException
+    {
+        OutputStream output = stream.createOutputStream(COSName.FLATE_DECODE);
+        output.write(testString);
+        output.close();
+    }
+
     private byte[] encodeData(byte[] original, COSName filter) throws IOException
     {
         Filter encodingFilter = FilterFactory.INSTANCE.getFilter(filter);
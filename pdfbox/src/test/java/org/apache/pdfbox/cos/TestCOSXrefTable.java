@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link COSXrefTable}.
+ */
+public class TestCOSXrefTable extends TestCase
+{
+    /**
+     * Tests the primitive accessors.
+     */
+    public void testPrimitiveAccess()
+    {
+        COSXrefTable table = new COSXrefTable();
+        assertFalse(table.containsKey(1, 0));
+        assertEquals(-5, table.get(1, 0, -5));
+
+        assertTrue(table.put(1, 0, 100));
+        assertTrue(table.put(1, 1, -7));
+        assertFalse(table.put(1, 0, 200));
+        assertEquals(2, table.size());
+        assertEquals(200, table.get(1, 0, -5));
+        assertEquals(-7, table.get(1, 1, -5));
+
+        assertTrue(table.remove(1, 0));
+        assertFalse(table.remove(1, 0));
+        assertFalse(table.containsKey(1, 0));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * Tests keys which can't be packed into a single long.
+     */
+    public void testOverflowKeys()
+    {
+        COSXrefTable table = new COSXrefTable();
+        table.put(new COSObjectKey(3, 70000), 42L);
+        table.put(new COSObjectKey(-1, 0), 43L);
+        table.put(new COSObjectKey(3, 0), 44L);
+        assertEquals(3, table.size());
+        assertEquals(Long.valueOf(42), table.get(new COSObjectKey(3, 70000)));
+        assertEquals(Long.valueOf(43), table.get(new COSObjectKey(-1, 0)));
+        assertEquals(Long.valueOf(44), table.get(new COSObjectKey(3, 0)));
+        assertEquals(3, table.entrySet().size());
+
+        COSXrefTable copy = new COSXrefTable();
+        copy.putAll(table);
+        assertEquals(table, copy);
+    }
+
+    /**
+     * Compares the table with a HashMap using random operations, including growing and removal.
+     */
+    public void testAgainstHashMap()
+    {
+        Random random = new Random(12345);
+        COSXrefTable table = new COSXrefTable();
+        Map<COSObjectKey, Long> expected = new HashMap<COSObjectKey, Long>();
+        for (int i = 0; i < 100000; i++)
+        {
+            COSObjectKey key = new COSObjectKey(random.nextInt(20000), random.nextInt(3));
+            if (random.nextInt(4) == 0)
+            {
+                assertEquals(expected.remove(key), table.remove(key));
+            }
+            else
+            {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), table.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected, table);
+        assertEquals(table, expected);
+        for (Map.Entry<COSObjectKey, Long> entry : expected.entrySet())
+        {
+            COSObjectKey key = entry.getKey();
+            assertTrue(table.containsKey(key));
+            assertEquals(entry.getValue().longValue(),
+                    table.get(key.getNumber(), key.getGeneration(), 0));
+        }
+        table.clear();
+        assertTrue(table.isEmpty());
+    }
+
+    /**
+     * Tests removing entries through the iterators of the map views.
+     */
+    public void testIteratorRemove()
+    {
+        Random random = new Random(54321);
+        COSXrefTable table = new COSXrefTable();
+        Map<COSObjectKey, Long> expected = new HashMap<COSObjectKey, Long>();
+        for (int i = 0; i < 5000; i++)
+        {
+            COSObjectKey key = new COSObjectKey(random.nextInt(10000), random.nextInt(2));
+            expected.put(key, (long) i);
+            table.put(key, (long) i);
+        }
+        COSObjectKey overflowKey = new COSObjectKey(5, 70000);
+        expected.put(overflowKey, 1L);
+        table.put(overflowKey, 1L);
+
+        int initialSize = table.size();
+        int visited = 0;
+        Iterator<Map.Entry<COSObjectKey, Long>> iterator = table.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<COSObjectKey, Long> entry = iterator.next();
+            assertEquals(expected.get(entry.getKey()), entry.getValue());
+            if (entry.getKey().getNumber() % 2 == 0)
+            {
+                iterator.remove();
+                expected.remove(entry.getKey());
+            }
+            visited++;
+        }
+        assertEquals(initialSize, visited);
+        assertEquals(expected, table);
+
+        table.keySet().removeAll(expected.keySet());
+        assertTrue(table.isEmpty());
+        try
+        {
+            table.entrySet().iterator().remove();
+            fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException ex)
+        {
+            // expected
+        }
+    }
+}
@@ -20,8 +20,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.zip.DataFormatException;
 
 import junit.framework.TestCase;
 
@@ -138,6 +140,71 @@ public class TestFilters extends TestCase
         checkEncodeDecode(lzwFilter, baos.toByteArray());
     }
 
+    /**
+     * Checks that the Inflaters, Deflaters and buffers of the default FlateProvider are reused and
+     * that they work after having been reused.
+     *
+     * @throws IOException
+     */
+    public void testFlateCodecPool() throws IOException
+    {
+        Filter flateFilter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+        FlateCodecPool.clear();
+        checkEncodeDecode(flateFilter, "first stream".getBytes("US-ASCII"));
+        long created = FlateCodecPool.getCreatedCount();
+        long reused = FlateCodecPool.getReusedCount();
+        byte[] data = new byte[100000];
+        new Random(123).nextBytes(data);
+        checkEncodeDecode(flateFilter, data);
+        checkEncodeDecode(flateFilter, "third stream".getBytes("US-ASCII"));
+        assertEquals(created, FlateCodecPool.getCreatedCount());
+        assertTrue(FlateCodecPool.getReusedCount() >= reused + 8);
+
+        FlateCodecPool.clear();
+        checkEncodeDecode(flateFilter, "after clear".getBytes("US-ASCII"));
+        assertTrue(FlateCodecPool.getCreatedCount() > created);
+    }
+
+    /**
+     * Checks that the FlateDecode filter uses the FlateProvider which has been set.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testFlateProvider() throws IOException
+    {
+        final FlateProvider defaultProvider = FlateProviders.instance();
+        final int[] calls = new int[2];
+        FlateProviders.set(new FlateProvider()
+        {
+            @Override
+            public void inflate(InputStream encoded, OutputStream decoded)
+                    throws DataFormatException, IOException
+            {
+                calls[0]++;
+                defaultProvider.inflate(encoded, decoded);
+            }
+
+            @Override
+            public void deflate(InputStream input, OutputStream encoded) throws IOException
+            {
+                calls[1]++;
+                defaultProvider.deflate(input, encoded);
+            }
+        });
+        try
+        {
+            Filter flateFilter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+            checkEncodeDecode(flateFilter, "FlateProvider test".getBytes("US-ASCII"));
+            assertEquals(1, calls[0]);
+            assertEquals(1, calls[1]);
+        }
+        finally
+        {
+            FlateProviders.set(null);
+        }
+        assertSame(defaultProvider, FlateProviders.instance());
+    }
+
     private void checkEncodeDecode(Filter filter, byte[] original) throws IOException
     {
         ByteArrayOutputStream encoded = new ByteArrayOutputStream();
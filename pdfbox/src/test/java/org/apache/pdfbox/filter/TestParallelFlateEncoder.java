@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.InflaterInputStream;
+import junit.framework.TestCase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.util.Charsets;
+
+/**
+ * Tests for ParallelFlateEncoder.
+ */
+public class TestParallelFlateEncoder extends TestCase
+{
+    @Override
+    protected void tearDown()
+    {
+        ParallelFlateEncoder.setThreshold(ParallelFlateEncoder.DEFAULT_THRESHOLD);
+        ParallelFlateEncoder.setExecutor(null);
+    }
+
+    /**
+     * Checks that the concatenated blocks are a valid zlib stream, including the checksum, and
+     * that back references across block boundaries work.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testEncode() throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            ParallelFlateEncoder.setExecutor(executor);
+            ParallelFlateEncoder.setThreshold(0);
+            for (int length : new int[] { 128 * 1024 + 1, 1000 * 1000 })
+            {
+                byte[] original = createData(length);
+                assertTrue(ParallelFlateEncoder.isParallel(length));
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                ParallelFlateEncoder.encode(new ByteArrayInputStream(original), encoded);
+                assertTrue(encoded.size() < length / 2);
+
+                InputStream inflated = new InflaterInputStream(
+                        new ByteArrayInputStream(encoded.toByteArray()));
+                assertTrue(Arrays.equals(original, IOUtils.toByteArray(inflated)));
+
+                ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+                FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE).decode(
+                        new ByteArrayInputStream(encoded.toByteArray()), decoded,
+                        new COSStream(), 0);
+                assertTrue(Arrays.equals(original, decoded.toByteArray()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Checks that streams above the threshold are compressed in parallel when written.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testCOSStream() throws IOException
+    {
+        ParallelFlateEncoder.setThreshold(200 * 1000);
+        byte[] original = createData(500 * 1000);
+        COSStream stream = new COSStream();
+        OutputStream output = stream.createOutputStream(COSName.FLATE_DECODE);
+        output.write(original);
+        output.close();
+        assertTrue(stream.getLength() < original.length / 2);
+
+        InputStream input = stream.createInputStream();
+        assertTrue(Arrays.equals(original, IOUtils.toByteArray(input)));
+        input.close();
+        stream.close();
+    }
+
+    /**
+     * Checks that small streams aren't compressed in parallel.
+     */
+    public void testThreshold()
+    {
+        assertFalse(ParallelFlateEncoder.isParallel(ParallelFlateEncoder.DEFAULT_THRESHOLD - 1));
+        ParallelFlateEncoder.setThreshold(Integer.MAX_VALUE);
+        assertFalse(ParallelFlateEncoder.isParallel(Integer.MAX_VALUE - 1));
+    }
+
+    // text-like data which repeats words across block boundaries
+    private static byte[] createData(int length)
+    {
+        String[] words = { "stream ", "endstream ", "obj ", "0 0 612 792 re ", "BT ", "ET\n" };
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        int i = 0;
+        while (i < length)
+        {
+            byte[] word = words[random.nextInt(words.length)].getBytes(Charsets.US_ASCII);
+            int count = Math.min(word.length, length - i);
+            System.arraycopy(word, 0, data, i, count);
+            i += count;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * This is a unit test for {@link RandomAccessMemoryMappedFile}.
+ */
+public class TestRandomAccessMemoryMappedFile extends TestCase
+{
+    private static final int SEGMENT_SIZE = 16;
+
+    private File createFile(int length) throws IOException
+    {
+        File file = File.createTempFile("pdfbox", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            for (int i = 0; i < length; i++)
+            {
+                out.write(i);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Test reading single bytes across segment boundaries.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testReadSingleBytes() throws IOException
+    {
+        File file = createFile(3 * SEGMENT_SIZE + 5);
+        RandomAccessMemoryMappedFile raf = new RandomAccessMemoryMappedFile(file, SEGMENT_SIZE);
+        assertEquals(3 * SEGMENT_SIZE + 5, raf.length());
+        for (int i = 0; i < raf.length(); i++)
+        {
+            assertEquals(i, raf.getPosition());
+            assertEquals(i, raf.read());
+        }
+        assertTrue(raf.isEOF());
+        assertEquals(-1, raf.read());
+        assertEquals(-1, raf.peek());
+        raf.close();
+        assertTrue(raf.isClosed());
+        file.delete();
+    }
+
+    /**
+     * Test reading byte arrays which span several segments.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testReadBuffer() throws IOException
+    {
+        File file = createFile(3 * SEGMENT_SIZE + 5);
+        RandomAccessMemoryMappedFile raf = new RandomAccessMemoryMappedFile(file, SEGMENT_SIZE);
+        raf.seek(SEGMENT_SIZE - 2);
+        byte[] buffer = new byte[2 * SEGMENT_SIZE + 4];
+        assertEquals(buffer.length, raf.read(buffer));
+        for (int i = 0; i < buffer.length; i++)
+        {
+            assertEquals(SEGMENT_SIZE - 2 + i, buffer[i]);
+        }
+        assertEquals(3 * SEGMENT_SIZE + 2, raf.getPosition());
+        assertEquals(3, raf.available());
+
+        // the last read only returns the remaining bytes
+        assertEquals(3, raf.read(buffer, 0, buffer.length));
+        assertEquals(-1, raf.read(buffer, 0, buffer.length));
+
+        raf.rewind(5);
+        assertEquals(3 * SEGMENT_SIZE, raf.peek());
+        byte[] fully = raf.readFully(5);
+        assertEquals(3 * SEGMENT_SIZE + 4, fully[4]);
+        raf.close();
+        file.delete();
+    }
+
+    /**
+     * Test that a document can be loaded using a memory mapped file.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testLoadDocument() throws IOException
+    {
+        File file = new File("src/test/resources/input/FC60_Times.pdf");
+        PDDocument doc = PDDocument.load(file,
+                MemoryUsageSetting.setupMainMemoryOnly().setUseMemoryMappedFile(true));
+        try
+        {
+            assertTrue(doc.getNumberOfPages() > 0);
+        }
+        finally
+        {
+            doc.close();
+        }
+    }
+}
@@ -16,13 +16,32 @@
 package org.apache.pdfbox.multipdf;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
 
 import junit.framework.TestCase;
 
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfwriter.COSWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
 /**
@@ -111,11 +130,277 @@ public class PDFMergerUtilityTest extends TestCase
                 MemoryUsageSetting.setupTempFileOnly());
     }
 
+    /**
+     * Tests the streaming merge, which writes the pages of each source as soon as it has been read.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testStreamingMerge() throws IOException
+    {
+        checkMergeIdentical("PDFBox.GlobalResourceMergeTest.Doc01.pdf",
+                "PDFBox.GlobalResourceMergeTest.Doc02.pdf",
+                "GlobalResourceStreamingMergeTestResult.pdf",
+                MemoryUsageSetting.setupMainMemoryOnly(),
+                PDFMergerUtility.DocumentMergeMode.STREAMING_MODE);
+
+        // once again, with scratch file
+        checkMergeIdentical("jpegrgb.pdf",
+                "multitiff.pdf",
+                "JpegMultiStreamingMergeTestResult.pdf",
+                MemoryUsageSetting.setupTempFileOnly(),
+                PDFMergerUtility.DocumentMergeMode.STREAMING_MODE);
+
+        // pages linking to later pages, which are written before their turn
+        File linked = new File(TARGETTESTDIR, "StreamingMergeLinks.pdf");
+        createLinkedPages(linked);
+        File merged = new File(TARGETTESTDIR, "StreamingMergeLinksTestResult.pdf");
+        PDFMergerUtility pdfMergerUtility = new PDFMergerUtility();
+        pdfMergerUtility.addSource(linked);
+        pdfMergerUtility.addSource(linked);
+        pdfMergerUtility.setDestinationFileName(merged.getPath());
+        pdfMergerUtility.setDocumentMergeMode(PDFMergerUtility.DocumentMergeMode.STREAMING_MODE);
+        pdfMergerUtility.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+
+        PDDocument mergedDoc = PDDocument.load(merged);
+        try
+        {
+            assertEquals(4, mergedDoc.getNumberOfPages());
+            COSDictionary pages = mergedDoc.getPages().getCOSObject();
+            for (int i = 0; i < 4; i++)
+            {
+                PDPage page = mergedDoc.getPage(i);
+                assertSame(pages, page.getCOSObject().getDictionaryObject(COSName.PARENT));
+                assertEquals(i, mergedDoc.getPages().indexOf(page));
+            }
+            for (int i = 0; i < 4; i += 2)
+            {
+                PDAnnotationLink link =
+                        (PDAnnotationLink) mergedDoc.getPage(i).getAnnotations().get(0);
+                PDPage target = ((PDPageDestination) link.getDestination()).getPage();
+                assertEquals(i + 1, mergedDoc.getPages().indexOf(target));
+                PDAnnotation annotation = mergedDoc.getPage(i + 1).getAnnotations().get(0);
+                assertSame(target.getCOSObject(),
+                        annotation.getCOSObject().getDictionaryObject(COSName.P));
+            }
+        }
+        finally
+        {
+            mergedDoc.close();
+        }
+    }
+
+    // creates two pages, the first one links to the second one, which has a link to itself
+    private static void createLinkedPages(File file) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDPage first = new PDPage();
+            PDPage second = new PDPage();
+            document.addPage(first);
+            document.addPage(second);
+
+            PDAnnotationLink link = new PDAnnotationLink();
+            link.setRectangle(new PDRectangle(10, 10, 100, 20));
+            PDPageFitDestination destination = new PDPageFitDestination();
+            destination.setPage(second);
+            link.setDestination(destination);
+            first.setAnnotations(Collections.<PDAnnotation>singletonList(link));
+
+            PDAnnotationLink selfLink = new PDAnnotationLink();
+            selfLink.setRectangle(new PDRectangle(10, 10, 100, 20));
+            selfLink.setPage(second);
+            second.setAnnotations(Collections.<PDAnnotation>singletonList(selfLink));
+            document.save(file);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that an image which is in both sources is only stored once.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testDeduplicateStreams() throws IOException
+    {
+        File source = new File(SRCDIR, "jpegrgb.pdf");
+        for (PDFMergerUtility.DocumentMergeMode mergeMode : PDFMergerUtility.DocumentMergeMode.values())
+        {
+            File merged = new File(TARGETTESTDIR, "DeduplicateMergeTestResult-" + mergeMode + ".pdf");
+            PDFMergerUtility pdfMergerUtility = new PDFMergerUtility();
+            pdfMergerUtility.addSource(source);
+            pdfMergerUtility.addSource(source);
+            pdfMergerUtility.setDestinationFileName(merged.getPath());
+            pdfMergerUtility.setDocumentMergeMode(mergeMode);
+            pdfMergerUtility.setDeduplicateStreams(true);
+            pdfMergerUtility.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+
+            assertTrue(merged.length() < source.length() * 3 / 2);
+            PDDocument mergedDoc = PDDocument.load(merged);
+            assertEquals(2, mergedDoc.getNumberOfPages());
+            checkSameImage(mergedDoc);
+            mergedDoc.close();
+        }
+
+        // and for documents merged with appendDocument
+        PDDocument destination = new PDDocument();
+        PDDocument srcDoc = PDDocument.load(source);
+        PDFMergerUtility pdfMergerUtility = new PDFMergerUtility();
+        pdfMergerUtility.appendDocument(destination, srcDoc);
+        pdfMergerUtility.appendDocument(destination, srcDoc);
+        assertTrue(new StreamDeduplicator().deduplicate(destination) > 0);
+        checkSameImage(destination);
+        srcDoc.close();
+        destination.close();
+    }
+
+    /**
+     * Tests that identical streams which refer to different objects of their sources are not
+     * merged into one stream.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testDeduplicateStreamsWithDifferentResources() throws IOException
+    {
+        File helvetica = new File(TARGETTESTDIR, "DeduplicateFormHelvetica.pdf");
+        File courier = new File(TARGETTESTDIR, "DeduplicateFormCourier.pdf");
+        createFormPage(helvetica, PDType1Font.HELVETICA);
+        createFormPage(courier, PDType1Font.COURIER);
+        for (PDFMergerUtility.DocumentMergeMode mergeMode : PDFMergerUtility.DocumentMergeMode.values())
+        {
+            File merged = new File(TARGETTESTDIR, "DeduplicateFormMergeTestResult-" + mergeMode + ".pdf");
+            PDFMergerUtility pdfMergerUtility = new PDFMergerUtility();
+            pdfMergerUtility.addSource(helvetica);
+            pdfMergerUtility.addSource(courier);
+            pdfMergerUtility.setDestinationFileName(merged.getPath());
+            pdfMergerUtility.setDocumentMergeMode(mergeMode);
+            pdfMergerUtility.setDeduplicateStreams(true);
+            pdfMergerUtility.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+
+            PDDocument mergedDoc = PDDocument.load(merged);
+            try
+            {
+                assertEquals(2, mergedDoc.getNumberOfPages());
+                assertEquals("Helvetica", getFormFontName(mergedDoc.getPage(0)));
+                assertEquals("Courier", getFormFontName(mergedDoc.getPage(1)));
+            }
+            finally
+            {
+                mergedDoc.close();
+            }
+        }
+    }
+
+    /**
+     * Tests that the deduplicator of the streaming merge tells apart indirect objects of
+     * different sources after the streams of the first source have been written.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testDeduplicatorAcrossSources() throws IOException
+    {
+        COSWriter writer = new COSWriter(new ByteArrayOutputStream());
+        try
+        {
+            writer.startDocument(1.4f);
+            StreamDeduplicator deduplicator = new StreamDeduplicator();
+            COSStream first = createForm(COSName.getPDFName("Helvetica"));
+            assertSame(first, deduplicator.deduplicate(first));
+            deduplicator.replaceStreamsByReferences(writer);
+            writer.releaseObjects();
+
+            COSStream second = createForm(COSName.getPDFName("Courier"));
+            assertSame(second, deduplicator.deduplicate(second));
+            assertEquals(0, deduplicator.getDuplicateCount());
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    // creates a form stream whose font is an indirect object
+    private static COSStream createForm(COSName baseFont) throws IOException
+    {
+        COSDictionary font = new COSDictionary();
+        font.setItem(COSName.TYPE, COSName.FONT);
+        font.setItem(COSName.SUBTYPE, COSName.TYPE1);
+        font.setItem(COSName.BASE_FONT, baseFont);
+        COSDictionary fonts = new COSDictionary();
+        fonts.setItem(COSName.getPDFName("F1"), new COSObject(font));
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.FONT, fonts);
+
+        COSStream form = new COSStream();
+        form.setItem(COSName.SUBTYPE, COSName.FORM);
+        form.setItem(COSName.RESOURCES, resources);
+        OutputStream output = form.createOutputStream();
+        output.write("BT /F1 12 Tf 10 10 Td (Hello) Tj ET".getBytes("US-ASCII"));
+        output.close();
+        return form;
+    }
+
+    // creates a page with a form, the form refers to the given font by an indirect object
+    private static void createFormPage(File file, PDFont font) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDFormXObject form = new PDFormXObject(document);
+            form.setBBox(new PDRectangle(200, 50));
+            PDResources formResources = new PDResources();
+            formResources.put(COSName.getPDFName("F1"), font);
+            form.setResources(formResources);
+            OutputStream output = form.getStream().createOutputStream();
+            output.write("BT /F1 12 Tf 10 10 Td (Hello) Tj ET".getBytes("US-ASCII"));
+            output.close();
+
+            PDPageContentStream contents = new PDPageContentStream(document, page);
+            contents.drawXObject(form, 100, 100, 200, 50);
+            contents.close();
+            document.save(file);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static String getFormFontName(PDPage page) throws IOException
+    {
+        PDResources resources = page.getResources();
+        COSName name = resources.getXObjectNames().iterator().next();
+        PDFormXObject form = (PDFormXObject) resources.getXObject(name);
+        return form.getResources().getFont(COSName.getPDFName("F1")).getName();
+    }
+
+    private void checkSameImage(PDDocument doc) throws IOException
+    {
+        PDResources resources1 = doc.getPage(0).getResources();
+        PDResources resources2 = doc.getPage(1).getResources();
+        COSName name = resources1.getXObjectNames().iterator().next();
+        assertSame(resources1.getXObject(name).getCOSObject(),
+                resources2.getXObject(name).getCOSObject());
+    }
+
     // checks that the result file of a merge has the same rendering as the two
     // source files
     private void checkMergeIdentical(String filename1, String filename2, String mergeFilename, 
             MemoryUsageSetting memUsageSetting)
             throws IOException
+    {
+        checkMergeIdentical(filename1, filename2, mergeFilename, memUsageSetting,
+                PDFMergerUtility.DocumentMergeMode.PDFBOX_LEGACY_MODE);
+    }
+
+    private void checkMergeIdentical(String filename1, String filename2, String mergeFilename,
+            MemoryUsageSetting memUsageSetting, PDFMergerUtility.DocumentMergeMode mergeMode)
+            throws IOException
     {
         PDDocument srcDoc1 = PDDocument.load(new File(SRCDIR, filename1), (String)null);
         int src1PageCount = srcDoc1.getNumberOfPages();
@@ -141,6 +426,7 @@ public class PDFMergerUtilityTest extends TestCase
         pdfMergerUtility.addSource(new File(SRCDIR, filename1));
         pdfMergerUtility.addSource(new File(SRCDIR, filename2));
         pdfMergerUtility.setDestinationFileName(TARGETTESTDIR + mergeFilename);
+        pdfMergerUtility.setDocumentMergeMode(mergeMode);
         pdfMergerUtility.mergeDocuments(memUsageSetting);
 
         PDDocument mergedDoc
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.multipdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+/**
+ * Test suite for Splitter.
+ */
+public class SplitterTest extends TestCase
+{
+    /**
+     * Checks that the streaming split saves the same documents as the split into a list.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testSplitToOutputStreams() throws IOException
+    {
+        PDDocument document = createDocument(5);
+        Splitter splitter = new Splitter();
+        splitter.setSplitAtPage(2);
+        List<PDDocument> expectedDocuments = splitter.split(document);
+
+        final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+        splitter = new Splitter();
+        splitter.setSplitAtPage(2);
+        int count = splitter.split(document, new Splitter.OutputStreamFactory()
+        {
+            @Override
+            public OutputStream createOutputStream(int documentNumber)
+            {
+                assertEquals(outputs.size() + 1, documentNumber);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                outputs.add(output);
+                return output;
+            }
+        });
+        assertEquals(3, count);
+        assertEquals(expectedDocuments.size(), outputs.size());
+
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int i = 0; i < count; i++)
+        {
+            PDDocument expected = expectedDocuments.get(i);
+            PDDocument part = PDDocument.load(outputs.get(i).toByteArray());
+            assertEquals(i < 2 ? 2 : 1, part.getNumberOfPages());
+            assertEquals(stripper.getText(expected), stripper.getText(part));
+            part.close();
+            expected.close();
+        }
+        document.close();
+    }
+
+    /**
+     * Checks that a splitter can be used for several splits.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    public void testSplitterReuse() throws IOException
+    {
+        PDDocument document = createDocument(3);
+        Splitter splitter = new Splitter();
+        splitter.setSplitAtPage(2);
+        PDFTextStripper stripper = new PDFTextStripper();
+        String expectedText = "Page 1" + stripper.getLineSeparator() + "Page 2";
+        for (int run = 0; run < 2; run++)
+        {
+            List<PDDocument> documents = splitter.split(document);
+            assertEquals(2, documents.size());
+            assertEquals(expectedText, stripper.getText(documents.get(0)).trim());
+            for (PDDocument part : documents)
+            {
+                part.close();
+            }
+
+            final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+            int count = splitter.split(document, new Splitter.OutputStreamFactory()
+            {
+                @Override
+                public OutputStream createOutputStream(int documentNumber)
+                {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    outputs.add(output);
+                    return output;
+                }
+            });
+            assertEquals(2, count);
+            PDDocument part = PDDocument.load(outputs.get(0).toByteArray());
+            assertEquals(expectedText, stripper.getText(part).trim());
+            part.close();
+        }
+        document.close();
+    }
+
+    private static PDDocument createDocument(int pageCount) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        for (int i = 1; i <= pageCount; i++)
+        {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDPageContentStream contents = new PDPageContentStream(document, page);
+            contents.beginText();
+            contents.setFont(PDType1Font.HELVETICA, 12);
+            contents.newLineAtOffset(100, 700);
+            contents.showText("Page " + i);
+            contents.endText();
+            contents.close();
+        }
+        return document;
+    }
+}
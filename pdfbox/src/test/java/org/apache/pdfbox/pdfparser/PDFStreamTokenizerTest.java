@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.util.Charsets;
+
+/**
+ * Tests for PDFStreamTokenizer.
+ */
+public class PDFStreamTokenizerTest extends TestCase
+{
+    /**
+     * Checks that the tokenizer returns the same tokens as PDFStreamParser for unusual syntax.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testSameTokensAsParser() throws IOException
+    {
+        compareWithParser("1 0 0 1 72.5 -.25 cm 0.1 0 0 RG 10 20 m 30 40 l S");
+        compareWithParser("BT /F1 12 Tf (Hello) Tj [(a) -120 (b) 5.] TJ ET");
+        compareWithParser("--5 +7 - . 123456789012345678901 0.00000000000000000000001 Td");
+        compareWithParser("12345678901234.5678 1.0000000000000000000001 0.00-339 Tc");
+        compareWithParser("/N#20ame /A1 <</Key /Value>> BDC EMC % comment\n q Q");
+        compareWithParser("1 2 d0 3 4 5 6 d1 true false null 1 0 R f* n W B* b");
+        compareWithParser("BI /W 5 /H 1 /BPC 8 /CS /G ID\n12345EI Q ] T*");
+    }
+
+    /**
+     * Checks the primitive views of the tokens.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testPrimitiveTokens() throws IOException
+    {
+        PDFStreamTokenizer tokenizer = new PDFStreamTokenizer(
+                "-12 3.25 /Name Tf".getBytes(Charsets.ISO_8859_1));
+        assertEquals(PDFStreamTokenizer.TokenType.NUMBER, tokenizer.nextToken());
+        assertTrue(tokenizer.isInteger());
+        assertEquals(-12.0, tokenizer.getNumber());
+        assertEquals(PDFStreamTokenizer.TokenType.NUMBER, tokenizer.nextToken());
+        assertFalse(tokenizer.isInteger());
+        assertEquals(3.25, tokenizer.getNumber());
+        assertEquals(new COSFloat("3.25"), tokenizer.getOperand());
+        assertEquals(PDFStreamTokenizer.TokenType.NAME, tokenizer.nextToken());
+        assertEquals("Name", new String(tokenizer.getBuffer(), tokenizer.getTokenOffset(),
+                tokenizer.getTokenLength(), Charsets.ISO_8859_1));
+        assertSame(COSName.getPDFName("Name"), tokenizer.getOperand());
+        assertEquals(PDFStreamTokenizer.TokenType.OPERATOR, tokenizer.nextToken());
+        assertSame(Operator.getOperator("Tf"), tokenizer.getOperator());
+        assertNull(tokenizer.nextToken());
+    }
+
+    /**
+     * Checks the lazily created operands.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testOperands() throws IOException
+    {
+        PDFStreamTokenizer tokenizer = new PDFStreamTokenizer(
+                "1 2.5 /F1 (s)".getBytes(Charsets.ISO_8859_1));
+        PDFStreamOperands operands = new PDFStreamOperands(tokenizer);
+        while (tokenizer.nextToken() != null)
+        {
+            operands.addOperand(tokenizer);
+        }
+        assertEquals(4, operands.size());
+        assertTrue(operands.isNumber(0));
+        assertTrue(operands.isNumber(1));
+        assertFalse(operands.isNumber(2));
+        assertEquals(2.5, operands.getDouble(1));
+        assertSame(COSInteger.ONE, operands.get(0));
+        assertSame(operands.get(1), operands.get(1));
+
+        operands.remove(0);
+        operands.add(0, COSInteger.TWO);
+        assertEquals(Arrays.asList(COSInteger.TWO, new COSFloat("2.5"), COSName.getPDFName("F1"),
+                operands.get(3)), operands);
+
+        // the operands are reused for the next operator
+        operands.clear();
+        assertTrue(operands.isEmpty());
+        tokenizer = new PDFStreamTokenizer("3 /F2".getBytes(Charsets.ISO_8859_1));
+        operands = new PDFStreamOperands(tokenizer);
+        tokenizer.nextToken();
+        operands.addOperand(tokenizer);
+        operands.clear();
+        tokenizer.nextToken();
+        operands.addOperand(tokenizer);
+        assertEquals(1, operands.size());
+        assertEquals(COSName.getPDFName("F2"), operands.get(0));
+        assertFalse(operands.isNumber(0));
+    }
+
+    /**
+     * Checks that all content streams of a document are tokenized like PDFStreamParser does.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testDocument() throws IOException
+    {
+        PDDocument doc = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        try
+        {
+            for (PDPage page : doc.getPages())
+            {
+                compareWithParser(IOUtils.toByteArray(page.getContents()));
+            }
+        }
+        finally
+        {
+            doc.close();
+        }
+    }
+
+    private void compareWithParser(String content) throws IOException
+    {
+        compareWithParser(content.getBytes(Charsets.ISO_8859_1));
+    }
+
+    private void compareWithParser(byte[] content) throws IOException
+    {
+        PDFStreamParser parser = new PDFStreamParser(content);
+        PDFStreamTokenizer tokenizer = new PDFStreamTokenizer(content);
+        Object expected = parser.parseNextToken();
+        while (expected != null)
+        {
+            PDFStreamTokenizer.TokenType tokenType = tokenizer.nextToken();
+            assertNotNull("missing token " + expected, tokenType);
+            if (expected instanceof Operator)
+            {
+                assertEquals(PDFStreamTokenizer.TokenType.OPERATOR, tokenType);
+                Operator operator = tokenizer.getOperator();
+                assertEquals(((Operator) expected).getName(), operator.getName());
+                assertTrue(Arrays.equals(((Operator) expected).getImageData(),
+                        operator.getImageData()));
+            }
+            else
+            {
+                COSBase operand = tokenizer.getOperand();
+                assertEquals(expected.getClass(), operand.getClass());
+                assertEquals(expected.toString(), operand.toString());
+                if (tokenType == PDFStreamTokenizer.TokenType.NUMBER)
+                {
+                    assertEquals(((COSNumber) expected).doubleValue(), tokenizer.getNumber());
+                }
+            }
+            expected = parser.parseNextToken();
+        }
+        assertNull(tokenizer.nextToken());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Test for {@link BoundedResourceCache}.
+ */
+public class TestBoundedResourceCache extends TestCase
+{
+    /**
+     * Checks the LRU eviction and the counters.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testEviction() throws IOException
+    {
+        // room for two resources of the default weight
+        BoundedResourceCache cache = new BoundedResourceCache(2048, 1);
+        COSObject first = new COSObject(new COSDictionary());
+        COSObject second = new COSObject(new COSDictionary());
+        COSObject third = new COSObject(new COSDictionary());
+
+        assertNull(cache.getFont(first));
+        assertEquals(1, cache.getMissCount());
+
+        cache.put(first, PDType1Font.HELVETICA);
+        cache.put(second, PDType1Font.COURIER);
+        assertSame(PDType1Font.HELVETICA, cache.getFont(first));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2048, cache.getWeight());
+
+        // "second" is the least recently used one now
+        cache.put(third, PDType1Font.TIMES_ROMAN);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertNull(cache.getFont(second));
+        assertSame(PDType1Font.HELVETICA, cache.getFont(first));
+        assertSame(PDType1Font.TIMES_ROMAN, cache.getFont(third));
+
+        // a lookup with the wrong type is a miss
+        assertNull(cache.getXObject(first));
+        assertEquals(3, cache.getMissCount());
+
+        // replacing an entry doesn't change the weight
+        cache.put(first, PDType1Font.COURIER);
+        assertEquals(2048, cache.getWeight());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    /**
+     * Checks that a custom weight is used and resources above the budget don't evict others.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testCustomWeight() throws IOException
+    {
+        BoundedResourceCache cache = new BoundedResourceCache(100, 1)
+        {
+            @Override
+            protected long weigh(Object resource)
+            {
+                return resource == PDType1Font.HELVETICA ? 500 : 10;
+            }
+        };
+        COSObject small = new COSObject(new COSDictionary());
+        COSObject big = new COSObject(new COSDictionary());
+        cache.put(small, PDType1Font.COURIER);
+        cache.put(big, PDType1Font.HELVETICA);
+        PDFont font = cache.getFont(big);
+        assertNull(font);
+        assertSame(PDType1Font.COURIER, cache.getFont(small));
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    /**
+     * Checks that the budget applies to the whole cache, not to each segment, so that images
+     * larger than a segment's share are cached, and the least recently used ones of all segments
+     * are evicted.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testBudgetSharedBySegments() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            // 100x100 images weigh 40000, far more than a sixteenth of the budget
+            BoundedResourceCache cache = new BoundedResourceCache(100000);
+            PDImageXObject[] images = new PDImageXObject[3];
+            COSObject[] keys = new COSObject[images.length];
+            for (int i = 0; i < images.length; i++)
+            {
+                images[i] = LosslessFactory.createFromImage(document,
+                        new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB));
+                keys[i] = new COSObject(images[i].getCOSObject());
+            }
+
+            cache.put(keys[0], images[0]);
+            assertSame(images[0], cache.getXObject(keys[0]));
+            cache.put(keys[1], images[1]);
+            assertEquals(80000, cache.getWeight());
+            assertEquals(0, cache.getEvictionCount());
+
+            // the first image has been used last, so the second one is evicted
+            assertSame(images[0], cache.getXObject(keys[0]));
+            cache.put(keys[2], images[2]);
+            assertEquals(1, cache.getEvictionCount());
+            assertEquals(80000, cache.getWeight());
+            assertNull(cache.getXObject(keys[1]));
+            assertSame(images[0], cache.getXObject(keys[0]));
+            assertSame(images[2], cache.getXObject(keys[2]));
+
+            // only resources above the whole budget aren't cached
+            BoundedResourceCache smallCache = new BoundedResourceCache(39999);
+            smallCache.put(keys[0], images[0]);
+            assertNull(smallCache.getXObject(keys[0]));
+            assertEquals(0, smallCache.getWeight());
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+}
@@ -27,7 +27,13 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfwriter.CompressParameters;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
 
 import junit.framework.TestCase;
 import static junit.framework.TestCase.assertNull;
@@ -193,4 +199,80 @@ public class TestPDDocument extends TestCase
         boolean deleted = f.delete();
         assertTrue("delete good file failed after successful load() and close()", deleted);
     }
+
+    /**
+     * Test saving with object streams and an xref stream.
+     * @throws IOException if something went wrong
+     */
+    public void testSaveLoadCompressed() throws IOException
+    {
+        byte[] plain = createDocument(null, CompressParameters.NO_COMPRESSION);
+        byte[] pdf = createDocument(null, new CompressParameters(7));
+        assertTrue(pdf.length < plain.length);
+        assertEquals("%PDF-1.5", new String(Arrays.copyOfRange(pdf, 0, 8), "UTF-8"));
+        String content = new String(pdf, "ISO-8859-1");
+        assertTrue(content.contains("/ObjStm"));
+        assertFalse(content.contains("\nxref\n"));
+        assertFalse(content.contains("trailer"));
+
+        PDDocument loadDoc = PDDocument.load(pdf);
+        assertEquals(20, loadDoc.getNumberOfPages());
+        assertTrue(loadDoc.getDocument().isXRefStream());
+        assertEquals("Author", loadDoc.getDocumentInformation().getAuthor());
+        assertTrue(new PDFTextStripper().getText(loadDoc).contains("page 19"));
+        loadDoc.close();
+    }
+
+    /**
+     * Test saving an encrypted document with object streams.
+     * @throws IOException if something went wrong
+     */
+    public void testSaveLoadCompressedEncrypted() throws IOException
+    {
+        StandardProtectionPolicy policy = new StandardProtectionPolicy("owner", "user",
+                new AccessPermission());
+        byte[] pdf = createDocument(policy, CompressParameters.DEFAULT_COMPRESSION);
+        assertFalse(new String(pdf, "ISO-8859-1").contains("Author"));
+
+        PDDocument loadDoc = PDDocument.load(pdf, "user");
+        assertTrue(loadDoc.isEncrypted());
+        assertEquals(20, loadDoc.getNumberOfPages());
+        assertEquals("Author", loadDoc.getDocumentInformation().getAuthor());
+        assertTrue(new PDFTextStripper().getText(loadDoc).contains("page 19"));
+        assertNotNull(loadDoc.getDocument().getTrailer().getDictionaryObject(COSName.ENCRYPT));
+        loadDoc.close();
+    }
+
+    private static byte[] createDocument(StandardProtectionPolicy policy,
+            CompressParameters compressParameters) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            document.getDocumentInformation().setAuthor("Author");
+            for (int i = 0; i < 20; i++)
+            {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                PDPageContentStream contents = new PDPageContentStream(document, page);
+                contents.beginText();
+                contents.setFont(PDType1Font.HELVETICA, 12);
+                contents.newLineAtOffset(100, 700);
+                contents.showText("page " + i);
+                contents.endText();
+                contents.close();
+            }
+            if (policy != null)
+            {
+                document.protect(policy);
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            document.save(baos, compressParameters);
+            return baos.toByteArray();
+        }
+        finally
+        {
+            document.close();
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Test for {@link StreamingPageProcessor} and {@link StreamingResourceCache}.
+ */
+public class TestStreamingPageProcessor extends TestCase
+{
+    /**
+     * Checks that resources of a single page are released while shared ones stay cached.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testResourceCache() throws IOException
+    {
+        StreamingResourceCache cache = new StreamingResourceCache(1);
+        COSObject fontObject = new COSObject(new COSDictionary());
+        COSObject otherObject = new COSObject(new COSDictionary());
+
+        cache.put(fontObject, PDType1Font.HELVETICA);
+        assertSame(PDType1Font.HELVETICA, cache.getFont(fontObject));
+        assertNull(cache.getXObject(fontObject));
+        cache.endPage();
+        assertNull(cache.getFont(fontObject));
+
+        // second page using the same font
+        cache.put(fontObject, PDType1Font.HELVETICA);
+        cache.endPage();
+        assertSame(PDType1Font.HELVETICA, cache.getFont(fontObject));
+        assertEquals(1, cache.getSharedResourceCount());
+
+        // the least recently used shared resource is dropped
+        cache.put(otherObject, PDType1Font.COURIER);
+        cache.endPage();
+        cache.put(otherObject, PDType1Font.COURIER);
+        assertEquals(1, cache.getSharedResourceCount());
+        assertNull(cache.getFont(fontObject));
+        assertSame(PDType1Font.COURIER, cache.getFont(otherObject));
+    }
+
+    /**
+     * Checks that only a limited number of resources is remembered to detect shared resources.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testKnownResourcesBounded() throws IOException
+    {
+        StreamingResourceCache cache = new StreamingResourceCache(10, 2);
+        COSObject first = new COSObject(new COSDictionary());
+        COSObject second = new COSObject(new COSDictionary());
+        COSObject third = new COSObject(new COSDictionary());
+
+        cache.put(first, PDType1Font.HELVETICA);
+        cache.endPage();
+        cache.put(second, PDType1Font.COURIER);
+        cache.put(third, PDType1Font.TIMES_ROMAN);
+        cache.endPage();
+
+        // the first resource has been forgotten, so it isn't detected as shared
+        cache.put(first, PDType1Font.HELVETICA);
+        assertEquals(0, cache.getSharedResourceCount());
+        cache.endPage();
+        assertNull(cache.getFont(first));
+
+        // the third resource is still known
+        cache.put(third, PDType1Font.TIMES_ROMAN);
+        cache.endPage();
+        assertEquals(1, cache.getSharedResourceCount());
+        assertSame(PDType1Font.TIMES_ROMAN, cache.getFont(third));
+    }
+
+    /**
+     * Checks that every page and its resources can be resolved while streaming and that the
+     * resource cache of the document is restored afterwards.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testProcess() throws IOException
+    {
+        PDDocument doc = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        try
+        {
+            ResourceCache resourceCache = doc.getResourceCache();
+            final int[] processed = new int[1];
+            new StreamingPageProcessor().process(doc, new StreamingPageProcessor.PageHandler()
+            {
+                @Override
+                public void processPage(PDPage page, int pageIndex) throws IOException
+                {
+                    assertEquals(processed[0]++, pageIndex);
+                    assertTrue(page.getResourceCache() instanceof StreamingResourceCache);
+                    PDResources resources = page.getResources();
+                    for (COSName name : resources.getFontNames())
+                    {
+                        PDFont font = resources.getFont(name);
+                        assertNotNull(font);
+                        assertSame(font, resources.getFont(name));
+                    }
+                }
+            });
+            assertEquals(doc.getNumberOfPages(), processed[0]);
+            assertSame(resourceCache, doc.getResourceCache());
+        }
+        finally
+        {
+            doc.close();
+        }
+    }
+}
@@ -18,9 +18,15 @@ package org.apache.pdfbox.pdmodel.common.function;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import junit.framework.TestCase;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.function.type4.CompiledProgram;
+import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
+import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
+import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
+import org.apache.pdfbox.pdmodel.common.function.type4.Operators;
 
 /**
  * Tests the {@link PDFunctionType4} class.
@@ -99,4 +105,62 @@ public class TestPDFunctionType4 extends TestCase
         assertEquals(-0.7f, output[0], 0.0001f);
     }
 
+    /**
+     * Checks that compiled functions give the same results as the interpreter.
+     * @throws Exception if an error occurs
+     */
+    public void testCompiledProgram() throws Exception
+    {
+        String[] functions = {
+            "{ 2 copy gt { exch pop 0.5 mul } { pop dup mul 0.3 add } ifelse dup 1 exch sub }",
+            "{ 360 mul sin 2 div exch 360 mul cos 2 div add }",
+            "{ cvi 3 mul 2147483647 add 7 idiv 3 mod 1 roll cvr }",
+            "{ 1 index 0.5 lt { 3 1 roll 2 -1 roll } if 3 copy pop 3 index exch }",
+            "{ 2147483647 1 add -2147483648 neg 5 -2 bitshift 12 not 3 2 roll atan }",
+            "{ 1 1.0 eq { 2 exp } if 0.2 ge { 0 } { 1 } ifelse add round abs }",
+            "{ -1.5 truncate -1.5 floor -1.5 ceiling 4 sqrt 100 log 1 ln 9 -3 roll }"
+        };
+        float[] input = new float[] { 0.25f, 0.75f, 0.5f };
+        for (String function : functions)
+        {
+            InstructionSequence sequence = InstructionSequenceBuilder.parse(function);
+            CompiledProgram program = CompiledProgram.compile(sequence);
+            assertNotNull(function, program);
+
+            ExecutionContext context = new ExecutionContext(new Operators());
+            for (float value : input)
+            {
+                context.getStack().push(value);
+            }
+            sequence.execute(context);
+            int numberOfOutputs = context.getStack().size();
+            float[] expected = new float[numberOfOutputs];
+            for (int i = numberOfOutputs - 1; i >= 0; i--)
+            {
+                expected[i] = context.popReal();
+            }
+            assertTrue(function, Arrays.equals(expected, program.execute(input, numberOfOutputs)));
+        }
+
+        // procs used as values aren't compiled
+        assertNull(CompiledProgram.compile(
+                InstructionSequenceBuilder.parse("{ { 1 } { 2 } exch true 3 1 roll ifelse }")));
+        assertNull(CompiledProgram.compile(InstructionSequenceBuilder.parse("{ dup copy }")));
+
+        // errors are reported by the interpreter
+        assertNull(CompiledProgram.compile(InstructionSequenceBuilder.parse("{ 1.5 2 idiv }"))
+                .execute(new float[0], 1));
+        PDFunctionType4 function = createFunction("{ 2 index }",
+                new float[] { 0f, 1f, 0f, 1f }, new float[] { 0f, 1f });
+        try
+        {
+            function.eval(new float[] { 0.5f, 0.5f });
+            fail("the stack underflow should have been reported");
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+    }
+
 }
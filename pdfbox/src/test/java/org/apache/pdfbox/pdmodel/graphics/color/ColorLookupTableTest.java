@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+
+/**
+ * Tests the color lookup tables of special color spaces, and the images converted with them.
+ */
+public class ColorLookupTableTest extends TestCase
+{
+    /**
+     * Checks that the interpolation on the grid is close to converting each pixel, for three
+     * and four components.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testGridInterpolation() throws IOException
+    {
+        // large enough to be interpolated on the grid; the multilinear function is only off by
+        // rounding, the CMYK profile has steep parts between some of the grid points
+        checkGrid(createFunction("{ 3 1 roll 1 index mul exch 0.5 mul }", 3, 3),
+                PDDeviceRGB.INSTANCE, 3, 300, 240, 1);
+        checkGrid(createFunction("{ 4 2 roll exch 0.7 mul }", 4, 4),
+                PDDeviceCMYK.INSTANCE, 4, 400, 330, 24);
+    }
+
+    private static void checkGrid(PDFunction tintTransform, PDColorSpace alternateColorSpace,
+            int numComponents, int width, int height, int maxDifference) throws IOException
+    {
+        ColorLookupTable table = new ColorLookupTable(tintTransform, alternateColorSpace,
+                numComponents);
+        WritableRaster raster = createRaster(numComponents, width, height);
+        BufferedImage image = table.toRGBImage(raster);
+
+        // only some of the pixels are converted directly, to keep the test fast
+        float[] value = new float[numComponents];
+        int[] samples = new int[numComponents];
+        long differences = 0;
+        int count = 0;
+        for (int y = 0; y < height; y += 3)
+        {
+            for (int x = y % 7; x < width; x += 7)
+            {
+                raster.getPixel(x, y, samples);
+                for (int c = 0; c < numComponents; c++)
+                {
+                    value[c] = samples[c] / 255f;
+                }
+                int expected = toRGB(alternateColorSpace.toRGB(tintTransform.eval(value)));
+                int actual = image.getRGB(x, y) & 0xffffff;
+                for (int shift = 0; shift <= 16; shift += 8)
+                {
+                    int difference = Math.abs((expected >> shift & 0xff)
+                            - (actual >> shift & 0xff));
+                    assertTrue("pixel " + x + "," + y + " differs by " + difference,
+                            difference <= maxDifference);
+                    differences += difference;
+                }
+                count++;
+            }
+        }
+        // less than one level on average
+        assertTrue("mean difference too large", differences < count * 3L);
+    }
+
+    /**
+     * Checks that small images with three and four components, and all images with one and two
+     * components are converted exactly.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testExactConversion() throws IOException
+    {
+        checkExact(createFunction("{ dup 0.5 mul 0 0 }", 1, 4), PDDeviceCMYK.INSTANCE, 1, 300);
+        checkExact(createFunction("{ 2 copy mul 0 0 }", 2, 4), PDDeviceCMYK.INSTANCE, 2, 300);
+        // too small to sample the grid
+        checkExact(createFunction("{ 3 1 roll 1 index mul exch 0.5 mul }", 3, 3),
+                PDDeviceRGB.INSTANCE, 3, 20);
+        checkExact(createFunction("{ 4 2 roll exch 0.7 mul }", 4, 4),
+                PDDeviceCMYK.INSTANCE, 4, 20);
+    }
+
+    private static void checkExact(PDFunction tintTransform, PDColorSpace alternateColorSpace,
+            int numComponents, int size) throws IOException
+    {
+        ColorLookupTable table = new ColorLookupTable(tintTransform, alternateColorSpace,
+                numComponents);
+        WritableRaster raster = createRaster(numComponents, size, size);
+        BufferedImage expected = toRGBImagePerPixel(tintTransform, alternateColorSpace, raster);
+        checkSameImage(expected, table.toRGBImage(raster));
+        // the second conversion uses the colors converted by the first one
+        checkSameImage(expected, table.toRGBImage(raster));
+    }
+
+    /**
+     * Checks the Separation images converted with a lookup table against converting each pixel.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testSeparationImage() throws IOException
+    {
+        String program = "{ dup 0.5 mul exch dup 0.2 mul exch 0.9 mul 0.1 }";
+        PDSeparation separation = createSeparation(COSName.DEVICECMYK, program, 4);
+        WritableRaster raster = createRaster(1, 200, 50);
+        checkSameImage(toRGBImagePerPixel(separation, raster), separation.toRGBImage(raster));
+
+        separation = createSeparation(COSName.DEVICERGB, "{ dup dup mul exch 1 exch sub 0.3 }", 3);
+        checkSameImage(toRGBImagePerPixel(separation, raster), separation.toRGBImage(raster));
+
+        // Lab is converted with the tint transform and toRGB()
+        COSArray lab = new COSArray();
+        lab.add(COSName.getPDFName("Lab"));
+        COSDictionary labDictionary = new COSDictionary();
+        COSArray whitePoint = new COSArray();
+        whitePoint.setFloatArray(new float[] { 0.9505f, 1f, 1.089f });
+        labDictionary.setItem(COSName.getPDFName("WhitePoint"), whitePoint);
+        lab.add(labDictionary);
+        PDFunction tintTransform = createFunction("{ 0.8 mul 0.2 0.7 }", 1, 3);
+        separation = createSeparation(lab, tintTransform);
+        checkSameImage(toRGBImagePerPixel(tintTransform, separation.getAlternateColorSpace(),
+                raster), separation.toRGBImage(raster));
+
+        // a new tint transform replaces the table
+        tintTransform = createFunction("{ 0.5 mul 0.6 0.3 }", 1, 3);
+        separation.setTintTransform(tintTransform);
+        checkSameImage(toRGBImagePerPixel(tintTransform, separation.getAlternateColorSpace(),
+                raster), separation.toRGBImage(raster));
+    }
+
+    /**
+     * Checks the DeviceN images converted with a lookup table against converting each pixel.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testDeviceNImage() throws IOException
+    {
+        PDDeviceN deviceN = createDeviceN(1, COSName.DEVICECMYK, "{ dup 0.5 mul 0 0 }", 4);
+        WritableRaster raster = createRaster(1, 200, 50);
+        checkSameImage(toRGBImagePerPixel(deviceN, raster), deviceN.toRGBImage(raster));
+
+        deviceN = createDeviceN(2, COSName.DEVICECMYK, "{ 2 copy mul 0 0 }", 4);
+        raster = createRaster(2, 200, 50);
+        checkSameImage(toRGBImagePerPixel(deviceN, raster), deviceN.toRGBImage(raster));
+
+        deviceN = createDeviceN(3, COSName.DEVICERGB, "{ 3 1 roll 1 index mul exch 0.5 mul }", 3);
+        raster = createRaster(3, 20, 20);
+        checkSameImage(toRGBImagePerPixel(deviceN, raster), deviceN.toRGBImage(raster));
+
+        // 16-bit samples are converted pixel by pixel
+        deviceN = createDeviceN(2, COSName.DEVICERGB, "{ 2 copy mul }", 3);
+        raster = Raster.createBandedRaster(DataBuffer.TYPE_USHORT, 30, 30, 2, new Point(0, 0));
+        fillRaster(raster);
+        checkSameImage(toRGBImagePerPixel(deviceN, raster), deviceN.toRGBImage(raster));
+    }
+
+    /**
+     * Checks the Indexed images converted row by row against the color table.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testIndexedImage() throws IOException
+    {
+        int maxIndex = 200;
+        byte[] lookup = new byte[(maxIndex + 1) * 3];
+        new Random(3).nextBytes(lookup);
+        COSArray array = new COSArray();
+        array.add(COSName.INDEXED);
+        array.add(COSName.DEVICERGB);
+        array.add(COSInteger.get(maxIndex));
+        array.add(new COSString(lookup));
+        PDIndexed indexed = new PDIndexed(array);
+
+        WritableRaster raster = createRaster(1, 200, 50);
+        BufferedImage image = indexed.toRGBImage(raster);
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                // indexes above the maximum use the last color
+                int index = Math.min(raster.getSample(x, y, 0), maxIndex) * 3;
+                int expected = (lookup[index] & 0xff) << 16 | (lookup[index + 1] & 0xff) << 8
+                        | (lookup[index + 2] & 0xff);
+                assertEquals("pixel " + x + "," + y, expected, image.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    // the conversion of Separation images before the lookup table, except for Lab
+    private static BufferedImage toRGBImagePerPixel(PDSeparation separation, WritableRaster raster)
+            throws IOException
+    {
+        int numAltComponents = separation.getAlternateColorSpace().getNumberOfComponents();
+        WritableRaster altRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE,
+                raster.getWidth(), raster.getHeight(), numAltComponents, new Point(0, 0));
+        float[] samples = new float[1];
+        int[] alt = new int[numAltComponents];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                raster.getPixel(x, y, samples);
+                separation.tintTransform(samples, alt);
+                altRaster.setPixel(x, y, alt);
+            }
+        }
+        return separation.getAlternateColorSpace().toRGBImage(altRaster);
+    }
+
+    private static BufferedImage toRGBImagePerPixel(PDDeviceN deviceN, WritableRaster raster)
+            throws IOException
+    {
+        return toRGBImagePerPixel(deviceN.getTintTransform(), deviceN.getAlternateColorSpace(),
+                raster);
+    }
+
+    // the conversion of DeviceN images before the lookup table
+    private static BufferedImage toRGBImagePerPixel(PDFunction tintTransform,
+            PDColorSpace alternateColorSpace, WritableRaster raster) throws IOException
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        WritableRaster rgbRaster = rgbImage.getRaster();
+        float[] src = new float[raster.getNumBands()];
+        int[] rgb = new int[3];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                raster.getPixel(x, y, src);
+                for (int s = 0; s < src.length; s++)
+                {
+                    src[s] = src[s] / 255;
+                }
+                float[] rgbFloat = alternateColorSpace.toRGB(tintTransform.eval(src));
+                for (int s = 0; s < 3; s++)
+                {
+                    rgb[s] = (int) (rgbFloat[s] * 255f);
+                }
+                rgbRaster.setPixel(x, y, rgb);
+            }
+        }
+        return rgbImage;
+    }
+
+    private static int toRGB(float[] rgb)
+    {
+        return ((int) (rgb[0] * 255f) & 0xff) << 16 | ((int) (rgb[1] * 255f) & 0xff) << 8
+                | ((int) (rgb[2] * 255f) & 0xff);
+    }
+
+    private static void checkSameImage(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    // a smooth gradient with some noise, which covers all sample values
+    private static WritableRaster createRaster(int numComponents, int width, int height)
+    {
+        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, width, height,
+                numComponents, new Point(0, 0));
+        fillRaster(raster);
+        return raster;
+    }
+
+    private static void fillRaster(WritableRaster raster)
+    {
+        Random random = new Random(7);
+        int numComponents = raster.getNumBands();
+        int[] pixel = new int[numComponents];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                for (int c = 0; c < numComponents; c++)
+                {
+                    pixel[c] = ((x * (c + 1) + y * (3 - c)) / 3 + random.nextInt(9)) & 0xff;
+                }
+                raster.setPixel(x, y, pixel);
+            }
+        }
+    }
+
+    private static PDSeparation createSeparation(COSBase alternateColorSpace, String program,
+            int numAltComponents) throws IOException
+    {
+        return createSeparation(alternateColorSpace,
+                createFunction(program, 1, numAltComponents));
+    }
+
+    private static PDSeparation createSeparation(COSBase alternateColorSpace,
+            PDFunction tintTransform) throws IOException
+    {
+        COSArray array = new COSArray();
+        array.add(COSName.SEPARATION);
+        array.add(COSName.getPDFName("Spot"));
+        array.add(alternateColorSpace);
+        array.add(tintTransform);
+        return new PDSeparation(array);
+    }
+
+    private static PDDeviceN createDeviceN(int numComponents, COSName alternateColorSpace,
+            String program, int numAltComponents) throws IOException
+    {
+        COSArray names = new COSArray();
+        for (int i = 0; i < numComponents; i++)
+        {
+            names.add(COSName.getPDFName("Spot" + i));
+        }
+        COSArray array = new COSArray();
+        array.add(COSName.DEVICEN);
+        array.add(names);
+        array.add(alternateColorSpace);
+        array.add(createFunction(program, numComponents, numAltComponents));
+        return new PDDeviceN(array);
+    }
+
+    // a PostScript calculator function with the domain and range 0..1
+    private static PDFunction createFunction(String program, int numInputs, int numOutputs)
+            throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.FUNCTION_TYPE, 4);
+        stream.setItem(COSName.DOMAIN, createUnitRanges(numInputs));
+        stream.setItem(COSName.RANGE, createUnitRanges(numOutputs));
+        OutputStream output = stream.createOutputStream();
+        output.write(program.getBytes("US-ASCII"));
+        output.close();
+        return PDFunction.create(stream);
+    }
+
+    private static COSArray createUnitRanges(int count)
+    {
+        COSArray ranges = new COSArray();
+        for (int i = 0; i < count; i++)
+        {
+            ranges.add(COSInteger.ZERO);
+            ranges.add(COSInteger.ONE);
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+
+/**
+ * Tests the region and subsampling support of SampledImageReader.
+ */
+public class SampledImageReaderTest extends TestCase
+{
+    /**
+     * Tests the fast path for 8 bit images.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void test8Bit() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            BufferedImage image = new BufferedImage(101, 67, BufferedImage.TYPE_INT_RGB);
+            Random random = new Random(1);
+            for (int y = 0; y < image.getHeight(); y++)
+            {
+                for (int x = 0; x < image.getWidth(); x++)
+                {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            PDImageXObject ximage = LosslessFactory.createFromImage(document, image);
+            checkSubsampled(ximage, null, 1);
+            checkSubsampled(ximage, null, 3);
+            checkSubsampled(ximage, new Rectangle(10, 5, 50, 40), 1);
+            checkSubsampled(ximage, new Rectangle(10, 5, 50, 40), 4);
+            checkSubsampled(ximage, new Rectangle(-10, 50, 500, 40), 2);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests 1 bit images and the general case with a decode array.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void test1BitAndDecode() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            byte[] data = new byte[5 * 37];
+            new Random(2).nextBytes(data);
+            PDImageXObject ximage = new PDImageXObject(document, new ByteArrayInputStream(data),
+                    null, 37, 37, 1, PDDeviceGray.INSTANCE);
+            checkSubsampled(ximage, null, 2);
+            checkSubsampled(ximage, new Rectangle(3, 7, 30, 11), 3);
+
+            COSArray decode = new COSArray();
+            decode.add(COSInteger.ONE);
+            decode.add(COSInteger.ZERO);
+            // a new image, as the full image of the first one has already been cached
+            ximage = new PDImageXObject(document, new ByteArrayInputStream(data),
+                    null, 37, 37, 1, PDDeviceGray.INSTANCE);
+            ximage.setDecode(decode);
+            checkSubsampled(ximage, null, 2);
+            checkSubsampled(ximage, new Rectangle(3, 7, 30, 11), 3);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests subsampling done by the DCT filter.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testJPEG() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDImageXObject ximage = JPEGFactory.createFromStream(document,
+                    SampledImageReaderTest.class.getResourceAsStream("jpeg.jpg"));
+            checkSubsampled(ximage, null, 2);
+            checkSubsampled(ximage, new Rectangle(100, 50, 101, 99), 5);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests invalid arguments.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testInvalidArguments() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDImageXObject ximage = new PDImageXObject(document,
+                    new ByteArrayInputStream(new byte[16]), null, 4, 4, 8, PDDeviceGray.INSTANCE);
+            try
+            {
+                ximage.getImage(new Rectangle(10, 10, 5, 5), 1);
+                fail("IllegalArgumentException expected");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+            try
+            {
+                ximage.getImage(null, 0);
+                fail("IllegalArgumentException expected");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static void checkSubsampled(PDImageXObject pdImage, Rectangle region,
+            int subsampling)
+            throws IOException
+    {
+        BufferedImage full = pdImage.getImage();
+        BufferedImage part = pdImage.getImage(region, subsampling);
+        Rectangle area = new Rectangle(0, 0, full.getWidth(), full.getHeight());
+        if (region != null)
+        {
+            area = area.intersection(region);
+        }
+        assertEquals((area.width + subsampling - 1) / subsampling, part.getWidth());
+        assertEquals((area.height + subsampling - 1) / subsampling, part.getHeight());
+        for (int y = 0; y < part.getHeight(); y++)
+        {
+            for (int x = 0; x < part.getWidth(); x++)
+            {
+                int expected = full.getRGB(area.x + x * subsampling, area.y + y * subsampling);
+                assertEquals("pixel " + x + "," + y, expected, part.getRGB(x, y));
+            }
+        }
+    }
+}
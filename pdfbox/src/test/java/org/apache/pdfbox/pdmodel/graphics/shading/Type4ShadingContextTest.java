@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Tests the rasterization of Gouraud-shaded triangle meshes.
+ */
+public class Type4ShadingContextTest extends TestCase
+{
+    // two triangles which cover the square from (0, 0) to (20, 20) with red, green, white and
+    // blue corners, each vertex is a flag, x, y and r, g, b
+    private static final int[][] VERTICES = {
+        { 0, 0, 0, 255, 0, 0 }, { 0, 20, 0, 0, 255, 0 }, { 0, 0, 20, 0, 0, 255 },
+        { 0, 20, 0, 0, 255, 0 }, { 0, 20, 20, 255, 255, 255 }, { 0, 0, 20, 0, 0, 255 }
+    };
+
+    /**
+     * Checks the colors of the corners and of an interior pixel of the mesh.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testColors() throws IOException
+    {
+        Type4ShadingContext context = createContext();
+        Raster raster = context.getRaster(0, 0, 32, 32);
+        checkPixel(raster, 0, 0, 255, 0, 0);
+        checkPixel(raster, 20, 0, 0, 255, 0);
+        checkPixel(raster, 0, 20, 0, 0, 255);
+        checkPixel(raster, 20, 20, 255, 255, 255);
+        // a quarter of the way to green and to blue
+        checkPixel(raster, 5, 5, 128, 64, 64);
+        // between green, white and blue
+        checkPixel(raster, 15, 15, 128, 191, 191);
+        // pixels of the tile outside of the mesh
+        assertEquals(0, raster.getSample(25, 5, 3));
+        assertEquals(0, raster.getSample(5, 25, 3));
+
+        // the same pixels in a smaller tile
+        raster = context.getRaster(4, 4, 2, 2);
+        checkPixel(raster, 1, 1, 128, 64, 64);
+        context.dispose();
+    }
+
+    /**
+     * Checks that tiles outside of the mesh are transparent.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void testTransparentOutside() throws IOException
+    {
+        Type4ShadingContext context = createContext();
+        checkTransparent(context.getRaster(40, 0, 16, 16));
+        checkTransparent(context.getRaster(0, 40, 16, 16));
+        checkTransparent(context.getRaster(100, 100, 64, 64));
+        context.dispose();
+    }
+
+    private static Type4ShadingContext createContext() throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.SHADING_TYPE, 4);
+        stream.setItem(COSName.COLORSPACE, COSName.DEVICERGB);
+        stream.setInt(COSName.BITS_PER_COORDINATE, 8);
+        stream.setInt(COSName.BITS_PER_COMPONENT, 8);
+        stream.setInt(COSName.BITS_PER_FLAG, 8);
+        COSArray decode = new COSArray();
+        for (int i = 0; i < 2; i++)
+        {
+            decode.add(COSInteger.ZERO);
+            decode.add(COSInteger.get(255));
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            decode.add(COSInteger.ZERO);
+            decode.add(COSInteger.ONE);
+        }
+        stream.setItem(COSName.DECODE, decode);
+        OutputStream output = stream.createOutputStream();
+        for (int[] vertex : VERTICES)
+        {
+            for (int value : vertex)
+            {
+                output.write(value);
+            }
+        }
+        output.close();
+
+        PDShadingType4 shading = new PDShadingType4(stream);
+        return new Type4ShadingContext(shading, ColorModel.getRGBdefault(), new AffineTransform(),
+                new Matrix(), new Rectangle(0, 0, 200, 200));
+    }
+
+    private static void checkPixel(Raster raster, int x, int y, int r, int g, int b)
+    {
+        String pixel = "pixel " + x + "," + y;
+        assertEquals(pixel, r, raster.getSample(x, y, 0), 2);
+        assertEquals(pixel, g, raster.getSample(x, y, 1), 2);
+        assertEquals(pixel, b, raster.getSample(x, y, 2), 2);
+        assertEquals(pixel, 255, raster.getSample(x, y, 3));
+    }
+
+    private static void checkTransparent(Raster raster)
+    {
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                assertEquals(0, raster.getSample(x, y, 3));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.state;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import junit.framework.TestCase;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+/**
+ * Tests for the clipping path of PDGraphicsState.
+ */
+public class TestPDGraphicsState extends TestCase
+{
+    /**
+     * Checks that rectangles are intersected without Area.
+     */
+    public void testRectangularClip()
+    {
+        PDGraphicsState state = new PDGraphicsState(new PDRectangle(0, 0, 100, 200));
+        state.intersectClippingPath(rectangle(10.5f, 20, 50, 300));
+        state.intersectClippingPath(new GeneralPath(new Rectangle2D.Float(0, 30, 40, 40)));
+        Shape clip = state.getCurrentClippingShape();
+        assertTrue(clip instanceof Rectangle2D);
+        assertEquals(new Rectangle2D.Double(10.5, 30, 29.5, 40), clip);
+        assertSameArea(clip, state.getCurrentClippingPath());
+
+        // a clone shares the clip until it is changed
+        PDGraphicsState clone = state.clone();
+        assertSame(clip, clone.getCurrentClippingShape());
+        clone.intersectClippingPath(rectangle(200, 200, 10, 10));
+        assertTrue(clone.getCurrentClippingShape().getBounds2D().isEmpty());
+        assertTrue(clone.getCurrentClippingPath().isEmpty());
+        assertSame(clip, state.getCurrentClippingShape());
+    }
+
+    /**
+     * Checks that other paths fall back to Area.
+     */
+    public void testPathClip()
+    {
+        PDGraphicsState state = new PDGraphicsState(new PDRectangle(0, 0, 100, 200));
+        GeneralPath triangle = new GeneralPath();
+        triangle.moveTo(0, 0);
+        triangle.lineTo(50, 0);
+        triangle.lineTo(0, 50);
+        triangle.closePath();
+        PDGraphicsState clone = state.clone();
+        clone.intersectClippingPath(triangle);
+        Area expected = new Area(new Rectangle2D.Float(0, 0, 100, 200));
+        expected.intersect(new Area(triangle));
+        assertSameArea(expected, clone.getCurrentClippingShape());
+
+        // two rectangles in one path
+        GeneralPath twoRectangles = new GeneralPath(new Rectangle2D.Float(0, 0, 10, 10));
+        twoRectangles.append(new Rectangle2D.Float(20, 20, 10, 10), false);
+        state.intersectClippingPath(twoRectangles);
+        assertTrue(state.getCurrentClippingShape() instanceof Area);
+        assertSameArea(twoRectangles, state.getCurrentClippingShape());
+
+        // rectangles are intersected with the Area once it is used
+        state.intersectClippingPath(rectangle(5, 5, 20, 20));
+        expected = new Area(twoRectangles);
+        expected.intersect(new Area(new Rectangle2D.Float(5, 5, 20, 20)));
+        assertSameArea(expected, state.getCurrentClippingShape());
+        assertSame(state.getCurrentClippingPath(), state.getCurrentClippingShape());
+        assertSameArea(triangle, clone.getCurrentClippingPath());
+    }
+
+    private static void assertSameArea(Shape expected, Shape actual)
+    {
+        assertTrue(new Area(expected).equals(new Area(actual)));
+    }
+
+    private static GeneralPath rectangle(float x, float y, float width, float height)
+    {
+        // the same path as created by the "re" operator
+        GeneralPath path = new GeneralPath();
+        path.moveTo(x, y);
+        path.lineTo(x + width, y);
+        path.lineTo(x + width, y + height);
+        path.lineTo(x, y + height);
+        path.closePath();
+        return path;
+    }
+}
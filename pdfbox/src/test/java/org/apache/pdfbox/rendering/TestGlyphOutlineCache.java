@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.io.File;
+import java.io.IOException;
+import junit.framework.TestCase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.PDVectorFont;
+
+/**
+ * Tests for GlyphOutlineCache.
+ */
+public class TestGlyphOutlineCache extends TestCase
+{
+    private static final File INPUT = new File("src/test/resources/input/simple-openoffice.pdf");
+
+    /**
+     * Checks that the outlines of the same embedded font are shared between documents.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testSharedBetweenDocuments() throws IOException
+    {
+        GlyphOutlineCache sharedCache = new GlyphOutlineCache(1024 * 1024);
+        PDDocument doc1 = PDDocument.load(INPUT);
+        PDDocument doc2 = PDDocument.load(INPUT);
+        try
+        {
+            PDVectorFont font1 = getEmbeddedTrueTypeFont(doc1, sharedCache);
+            PDVectorFont font2 = getEmbeddedTrueTypeFont(doc2, sharedCache);
+            assertNotSame(font1, font2);
+            GlyphCache cache1 = new GlyphCache(font1, sharedCache);
+            GlyphCache cache2 = new GlyphCache(font2, sharedCache);
+
+            Shape path = cache1.getPathForCharacterCode('a');
+            assertFalse(path instanceof GeneralPath);
+            assertEquals(font1.getNormalizedPath('a').getBounds2D(), path.getBounds2D());
+            assertEquals(0, sharedCache.getHitCount());
+            assertEquals(1, sharedCache.size());
+
+            assertSame(path, cache2.getPathForCharacterCode('a'));
+            assertEquals(1, sharedCache.getHitCount());
+            assertTrue(sharedCache.getWeight() > 0);
+        }
+        finally
+        {
+            doc1.close();
+            doc2.close();
+        }
+    }
+
+    /**
+     * Checks that the budget is respected.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testEviction() throws IOException
+    {
+        GlyphOutlineCache sharedCache = new GlyphOutlineCache(16 * 1024);
+        PDDocument doc = PDDocument.load(INPUT);
+        try
+        {
+            PDVectorFont font = getEmbeddedTrueTypeFont(doc, sharedCache);
+            GlyphCache cache = new GlyphCache(font, sharedCache);
+            for (int code = 0; code < 256; code++)
+            {
+                cache.getPathForCharacterCode(code);
+            }
+            assertTrue(sharedCache.getWeight() <= 16 * 1024);
+            sharedCache.clear();
+            assertEquals(0, sharedCache.size());
+            assertEquals(0, sharedCache.getWeight());
+        }
+        finally
+        {
+            doc.close();
+        }
+    }
+
+    /**
+     * Checks that fonts without an embedded TrueType program are not shared.
+     */
+    public void testNotShared()
+    {
+        GlyphOutlineCache sharedCache = new GlyphOutlineCache(1024);
+        assertNull(sharedCache.getFontKey(PDType1Font.HELVETICA));
+    }
+
+    private static PDVectorFont getEmbeddedTrueTypeFont(PDDocument doc,
+            GlyphOutlineCache sharedCache) throws IOException
+    {
+        PDResources resources = doc.getPage(0).getResources();
+        for (COSName name : resources.getFontNames())
+        {
+            PDFont font = resources.getFont(name);
+            if (font instanceof PDVectorFont
+                    && sharedCache.getFontKey((PDVectorFont) font) != null)
+            {
+                return (PDVectorFont) font;
+            }
+        }
+        fail("no embedded TrueType font found");
+        return null;
+    }
+}
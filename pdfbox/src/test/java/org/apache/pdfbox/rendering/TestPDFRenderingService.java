@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.ThreadLocalResourceCache;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Tests for PDFRenderingService.
+ */
+public class TestPDFRenderingService extends TestCase
+{
+    private static final float DPI = 36;
+
+    /**
+     * Checks that the pages rendered in parallel are identical to the sequentially rendered ones.
+     *
+     * @throws Exception if something went wrong
+     */
+    public void testRenderPages() throws Exception
+    {
+        PDDocument document = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            int pageCount = document.getNumberOfPages();
+            final BufferedImage[] expected = new BufferedImage[pageCount];
+            for (int i = 0; i < pageCount; i++)
+            {
+                expected[i] = renderer.renderImageWithDPI(i, DPI, ImageType.RGB);
+            }
+
+            ResourceCache resourceCache = document.getResourceCache();
+            final List<String> errors = new ArrayList<String>();
+            final AtomicInteger pending = new AtomicInteger();
+            final AtomicInteger maxPending = new AtomicInteger();
+            PDFRenderingService service = new PDFRenderingService(renderer, executor, 2);
+            try
+            {
+                assertNotSame(resourceCache, document.getResourceCache());
+                service.renderPages(0, pageCount - 1, DPI, ImageType.RGB,
+                        new PDFRenderingService.PageCallback()
+                {
+                    @Override
+                    public void pageRendered(int pageIndex, BufferedImage image)
+                    {
+                        int count = pending.incrementAndGet();
+                        synchronized (maxPending)
+                        {
+                            maxPending.set(Math.max(maxPending.get(), count));
+                        }
+                        if (!sameImage(expected[pageIndex], image))
+                        {
+                            addError(errors, "page " + pageIndex + " differs");
+                        }
+                        pending.decrementAndGet();
+                    }
+
+                    @Override
+                    public void pageFailed(int pageIndex, Exception exception)
+                    {
+                        addError(errors, "page " + pageIndex + " failed: " + exception);
+                    }
+                });
+                assertEquals(new ArrayList<String>(), errors);
+                assertTrue(maxPending.get() <= 2);
+
+                Future<BufferedImage> future = service.submit(pageCount - 1, DPI, ImageType.RGB);
+                assertTrue(sameImage(expected[pageCount - 1], future.get()));
+            }
+            finally
+            {
+                service.close();
+            }
+            assertSame(resourceCache, document.getResourceCache());
+        }
+        finally
+        {
+            executor.shutdown();
+            document.close();
+        }
+    }
+
+    /**
+     * Checks that an invalid page index is reported to the caller.
+     *
+     * @throws Exception if something went wrong
+     */
+    public void testInvalidPage() throws Exception
+    {
+        PDDocument document = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            PDFRenderingService service = new PDFRenderingService(new PDFRenderer(document),
+                    executor, 1);
+            try
+            {
+                service.submit(document.getNumberOfPages(), DPI, ImageType.RGB);
+                fail("IndexOutOfBoundsException expected");
+            }
+            catch (IndexOutOfBoundsException e)
+            {
+                // expected, and the permit must have been returned
+                assertNotNull(service.submit(0, DPI, ImageType.RGB).get());
+            }
+            finally
+            {
+                service.close();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+            document.close();
+        }
+    }
+
+    /**
+     * Checks that the resource cache of the service shares images, but no other resources,
+     * between the worker threads.
+     *
+     * @throws Exception if something went wrong
+     */
+    public void testSharedImages() throws Exception
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            final ResourceCache cache = new ThreadLocalResourceCache(true);
+            final COSObject imageObject = new COSObject(null);
+            final COSObject formObject = new COSObject(null);
+            PDImageXObject image = new PDImageXObject(document);
+            PDFormXObject form = new PDFormXObject(document);
+            cache.put(imageObject, image);
+            cache.put(formObject, form);
+
+            final PDXObject[] seen = new PDXObject[2];
+            Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        seen[0] = cache.getXObject(imageObject);
+                        seen[1] = cache.getXObject(formObject);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            assertSame(image, seen[0]);
+            assertNull(seen[1]);
+            assertSame(form, cache.getXObject(formObject));
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static void addError(List<String> errors, String error)
+    {
+        synchronized (errors)
+        {
+            errors.add(error);
+        }
+    }
+
+    private static boolean sameImage(BufferedImage expected, BufferedImage actual)
+    {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight())
+        {
+            return false;
+        }
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
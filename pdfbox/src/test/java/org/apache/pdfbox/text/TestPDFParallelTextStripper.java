@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+
+/**
+ * Test for {@link PDFParallelTextStripper}.
+ */
+public class TestPDFParallelTextStripper extends TestCase
+{
+    /**
+     * Check that the parallel extraction returns the same text as the sequential one.
+     *
+     * @throws IOException if something went wrong
+     */
+    public void testSameTextAsSequential() throws IOException
+    {
+        PDDocument doc = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            String expected = new PDFTextStripper().getText(doc);
+
+            ResourceCache resourceCache = doc.getResourceCache();
+            PDFParallelTextStripper parallelStripper = new PDFParallelTextStripper(
+                    new PDFParallelTextStripper.StripperFactory()
+                    {
+                        @Override
+                        public PDFTextStripper createStripper() throws IOException
+                        {
+                            return new PDFTextStripper();
+                        }
+                    }, executor);
+            for (int pagesPerTask = 1; pagesPerTask <= 5; pagesPerTask += 2)
+            {
+                parallelStripper.setPagesPerTask(pagesPerTask);
+                assertEquals(expected, parallelStripper.getText(doc));
+            }
+            assertSame(resourceCache, doc.getResourceCache());
+        }
+        finally
+        {
+            executor.shutdown();
+            doc.close();
+        }
+    }
+
+    /**
+     * Check that an interrupted extraction waits for the running tasks before it restores the
+     * resource cache.
+     *
+     * @throws Exception if something went wrong
+     */
+    public void testInterrupted() throws Exception
+    {
+        PDDocument doc = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            final AtomicInteger running = new AtomicInteger();
+            final Thread caller = Thread.currentThread();
+            PDFParallelTextStripper parallelStripper = new PDFParallelTextStripper(
+                    new PDFParallelTextStripper.StripperFactory()
+                    {
+                        @Override
+                        public PDFTextStripper createStripper() throws IOException
+                        {
+                            return new PDFTextStripper()
+                            {
+                                @Override
+                                protected void startDocument(PDDocument document)
+                                {
+                                    running.incrementAndGet();
+                                    try
+                                    {
+                                        caller.interrupt();
+                                        // ignores the interrupt, like a task busy in parsing
+                                        long end = System.currentTimeMillis() + 200;
+                                        while (System.currentTimeMillis() < end)
+                                        {
+                                            Thread.yield();
+                                        }
+                                    }
+                                    finally
+                                    {
+                                        running.decrementAndGet();
+                                    }
+                                }
+                            };
+                        }
+                    }, executor);
+            parallelStripper.setPagesPerTask(1);
+
+            ResourceCache resourceCache = doc.getResourceCache();
+            try
+            {
+                parallelStripper.getText(doc);
+                fail("interrupt expected");
+            }
+            catch (IOException ex)
+            {
+                assertTrue(Thread.interrupted());
+            }
+            assertEquals(0, running.get());
+            assertSame(resourceCache, doc.getResourceCache());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            doc.close();
+        }
+    }
+}